@@ -142,11 +142,21 @@ public class InvocationParser {
     System.out.println(" -mr       select right as master side");
     System.out.println(" -mt=VAL   set element matching threshold");
     System.out.println(" -mp=FILE  specify previous match file");
+    System.out.println(" -ma       match by optimal assignment, not greedily");
+    System.out.println(" -mb=KEY   block match candidates by 'type',"
+        + " 'container', 'prefix', or 'token' - default=type");
+    System.out.println(" -mc=FILE  cache similarity measures in FILE"
+        + " across sessions");
     System.out.println(" -md[=VAL] use 'by dependency' matching startegy");
     System.out.println(" -me[=VAL] use 'by ECL' matching startegy");
     System.out.println(" -mh[=VAL] use 'by history' matching startegy");
     System.out.println(" -mi[=VAL] use 'by ID' matching startegy");
+    System.out.println(" -mj=NUM   measure similarity with NUM threads"
+        + " - default=processors");
+    System.out.println(" -mk=NUM   rank only the NUM best candidates per element"
+        + " - default=0 (all)");
     System.out.println(" -mn[=VAL] use 'by name' matching startegy");
+    System.out.println(" -mo       keep similarity measures off-heap");
     System.out.println(" -ms[=VAL] use 'by structure' matching startegy");
     System.out.println(" -mt=VAL   set element matching threshold");
     System.out.println(" -u1=FILE  use specified user matching strategy #1");
@@ -160,6 +170,8 @@ public class InvocationParser {
     System.out.println(" -i\t   run in interactive mode - default");
     System.out.println(" -tc=FILE  specify conflict detection decision table");
     System.out.println(" -tr=FILE  specify conflict resolution decision table");
+    System.out.println(" -tj=NUM   evaluate decision tables with NUM threads"
+        + " - default=processors");
     System.out.println();
   }
 
@@ -426,6 +438,18 @@ public class InvocationParser {
 
               ch = arg.charAt(++j);
               switch (ch) {
+                case 'a':
+                  options_.put("match_assign", "true");
+                break;
+
+                case 'b':
+                  options_.put("match_blocking", rhs);
+                break;
+
+                case 'c':
+                  options_.put("match_cache", rhs);
+                break;
+
                 case 'd':
                   options_.put("by_dependency", rhs);
                 break;
@@ -442,6 +466,14 @@ public class InvocationParser {
                   options_.put("by_id", rhs);
                 break;
 
+                case 'j':
+                  options_.put("match_threads", rhs);
+                break;
+
+                case 'k':
+                  options_.put("match_top_k", rhs);
+                break;
+
                 case 'l':
                   options_.put("master_side", "left");
                 break;
@@ -450,6 +482,10 @@ public class InvocationParser {
                   options_.put("by_name", rhs);
                 break;
 
+                case 'o':
+                  options_.put("match_offheap", "true");
+                break;
+
                 case 's':
                   options_.put("by_structure", rhs);
                 break;
@@ -486,6 +522,10 @@ public class InvocationParser {
                   options_.put("conflict_table", rhs);
                 break;
 
+                case 'j':
+                  options_.put("table_threads", rhs);
+                break;
+
                 case 'm':
                   options_.put("match_table", rhs);
                 break;
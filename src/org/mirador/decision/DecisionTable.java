@@ -32,12 +32,12 @@ import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.ENamedElement;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
-import org.eclipse.emf.ecore.EStructuralFeature;
 import java.io.File;
 import java.io.FileReader;
 import java.io.StreamTokenizer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
 import java.util.ListIterator;
@@ -216,6 +216,87 @@ public class DecisionTable {
   }
 
 
+  /**
+   * Tests if evaluating the table, and any auxiliary table, leaves the models
+   * untouched, its actions doing no more than record their findings. Such a
+   * table may be evaluated on several changes at once.
+   *
+   * @return  true = table only reads the models, false = it may alter them
+   */
+  public boolean isReadOnly() {
+    for (TableAction act : actions_) {
+      if (act != do_false_ && act != do_true_ && act != do_assert_
+          && act != do_throw_ && act != do_master_ && act != do_left_
+          && act != do_right_)
+        return false;
+    }
+
+    return (aux_table_ == null || aux_table_.isReadOnly());
+  }
+
+
+  /**
+   * Tests if the table can find in favor of a pair only when one of the named
+   * conditions holds for it. Each rule must either require one of the
+   * conditions, or a match in an auxiliary table that is itself so
+   * restricted, or else do nothing but find against the pair. Pairs for which
+   * none of the conditions hold may then be passed over, as the table would
+   * find against them anyway.
+   *
+   * @param  cond_names  Names of the conditions that relate a pair.
+   * @return  true = table is restricted to related pairs, false = it is not
+   */
+  public boolean isRestrictedTo(Collection<String> cond_names) {
+    int row_sz = apt_mask_.length;
+    int col_sz = (row_sz != 0) ? apt_mask_[0].length : 0;
+
+    for (int i = 0; i < row_sz; ++i) {
+      if (conditions_.get(i) != aux_match_)
+        continue;
+
+      for (int j = 0; j < col_sz; ++j) {  // Auxiliary table gets evaluated.
+        if (apt_mask_[i][j]
+            && (aux_table_ == null || !aux_table_.isRestrictedTo(cond_names)))
+          return false;
+      }
+    }
+
+    for (int j = 0; j < col_sz; ++j) {
+      boolean is_related = false;
+
+      for (int i = 0; i < row_sz && !is_related; ++i) {
+        TableCondition cond = conditions_.get(i);
+
+        is_related = apt_mask_[i][j] && true_mask_[i][j]
+            && (cond == aux_match_ || cond_names.contains(cond.getName()));
+      }
+
+      if (is_related)
+        continue;
+
+      for (TableAction act : actions_) {
+        if (act.step(j) != 0 && act != do_false_)
+          return false;
+      }
+    }
+
+    return true;
+  }
+
+
+  /**
+   * Tests if two changes both affect the same property. Only alterations
+   * change properties, and those carry masks of the features they change.
+   */
+  static private boolean isSameFeatureChanged(AtomicChangeOp op0,
+      AtomicChangeOp op1) {
+    if (!(op0 instanceof AlterChangeOp) || !(op1 instanceof AlterChangeOp))
+      return false;
+
+    return ((AlterChangeOp) op0).isSameFeatureChanged((AlterChangeOp) op1);
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ initializers
   public void buildMasks() {
     apt_mask_ = new boolean[conditions_.size()][conditions_.get(0).size()];
@@ -555,21 +636,7 @@ public class DecisionTable {
       AtomicChangeOp op0 = ((AtomicChangeOp) objs[0]);
       AtomicChangeOp op1 = ((AtomicChangeOp) objs[1]);
 
-      ENamedElement tar0 = op0.getTargeted();
-      ENamedElement upd0 = op0.getUpdated();
-      ENamedElement tar1 = op1.getTargeted();
-      ENamedElement upd1 = op1.getUpdated();
-
-      EcoreComparator comparer = new EcoreComparator();
-      List<EStructuralFeature> feats0 = comparer.differs(upd0, tar0);
-      List<EStructuralFeature> feats1 = comparer.differs(upd1, tar1);
-
-      for (EStructuralFeature feat : feats0) {
-        if (feats1.contains(feat))
-          return true;
-      }
-
-      return false;
+      return isSameFeatureChanged(op0, op1);
     }
   });
 
@@ -1318,21 +1385,7 @@ public class DecisionTable {
       AtomicChangeOp op1 = ((ContradictChangeOp) objs[0])
           .getChangeRight().getChange(0);
 
-      ENamedElement tar0 = op0.getTargeted();
-      ENamedElement upd0 = op0.getUpdated();
-      ENamedElement tar1 = op1.getTargeted();
-      ENamedElement upd1 = op1.getUpdated();
-
-      EcoreComparator comparer = new EcoreComparator();
-      List<EStructuralFeature> feats0 = comparer.differs(upd0, tar0);
-      List<EStructuralFeature> feats1 = comparer.differs(upd1, tar1);
-
-      for (EStructuralFeature feat : feats0) {
-        if (feats1.contains(feat))
-          return true;
-      }
-
-      return false;
+      return isSameFeatureChanged(op0, op1);
     }
   });
 
@@ -22,22 +22,75 @@ import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EParameter;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.ETypedElement;
 import org.eclipse.emf.ecore.EcorePackage;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
-/**                                                                       DOCDO: Provide class overview.
+/**
+ * Comparer of Ecore model elements, feature by feature. The features compared
+ * for each kind of element are planned once, and kept for all comparers. The
+ * features found to differ are given as a bit mask of feature IDs, which is
+ * reused from one comparison to the next. Elements met along the way are
+ * remembered only for the length of one comparison, so a single comparer may
+ * be used for any number of them. A comparer is not thread-safe.
  *
  * @since   v0.53 - Nov 2, 2010
  * @author  Stephen Barrett
  */
 public class EcoreComparator extends EcoreUtil.EqualityHelper {
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Gives the features that differ between two model elements.
+   *
+   * @param  obj1  Element to compare.
+   * @param  obj2  Element to compare with.
+   * @return  Differing features, in feature ID order.
+   */
   public List<EStructuralFeature> differs(EObject obj1, EObject obj2) {
+    long changed = changedFeatures(obj1, obj2);
+    List<EStructuralFeature> rc = new ArrayList<EStructuralFeature>();
+
+    for (int id = 0; changed != 0; ++id, changed >>>= 1) {
+      if ((changed & 1) != 0)
+        rc.add(obj1.eClass().getEStructuralFeature(id));
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the features that differ between two model elements, as a bit mask
+   * of their feature IDs. Features of elements of the same Ecore type have
+   * the same IDs, so masks may be tested against each other directly.
+   *
+   * @param  obj1  Element to compare.
+   * @param  obj2  Element to compare with.
+   * @return  Bit mask of differing feature IDs, 0 = none differ.
+   */
+  public long changedFeatures(EObject obj1, EObject obj2) {
     work(obj1, obj2, false);
-    return feats_;
+    return changed_;
+  }
+
+
+  /**
+   * Gives the feature a move changes for a kind of element, as a bit mask of
+   * its feature ID: that of the reference to the element's container. The
+   * bit may be joined with those of changedFeatures().
+   *
+   * @param  cls  Kind of element moved.
+   * @return  Bit of the container feature ID, 0 = kind not compared.
+   */
+  static public long movedFeatures(EClass cls) {
+    int id = planFor(cls).container_id_;
+    return (id >= 0) ? 1L << id : 0;
   }
 
 
@@ -51,8 +104,28 @@ public class EcoreComparator extends EcoreUtil.EqualityHelper {
   }
 
 
-  private boolean work(EObject obj1, EObject obj2,
-      boolean do_update) {
+  /**
+   * Compares two elements. Referenced elements are compared through
+   * equals(), and so by recursion, so what was remembered of the elements
+   * met is forgotten only once the outermost comparison is done.
+   */
+  private boolean work(EObject obj1, EObject obj2, boolean do_update) {
+    if (depth_ == 0)
+      changed_ = 0;
+
+    ++depth_;
+
+    try {
+      return compare(obj1, obj2, do_update);
+    }
+    finally {
+      if (--depth_ == 0)
+        clear();
+    }
+  }
+
+
+  private boolean compare(EObject obj1, EObject obj2, boolean do_update) {
     if (obj1 == null)
       return obj2 == null;
 
@@ -81,305 +154,288 @@ public class EcoreComparator extends EcoreUtil.EqualityHelper {
     put(obj1, obj2);
     put(obj2, obj1);
 
-    boolean rc = false;
-
-    if (cls.getInstanceClass() == EAttribute.class)
-      rc = work((EAttribute) obj1, (EAttribute) obj2, do_update);
-    else if (cls.getInstanceClass() == EClass.class)
-      rc = work((EClass) obj1, (EClass) obj2, do_update);
-    else if (cls.getInstanceClass() == EDataType.class)
-      rc = work((EDataType) obj1, (EDataType) obj2, do_update);
-    else if (cls.getInstanceClass() == EOperation.class)
-      rc = work((EOperation) obj1, (EOperation) obj2, do_update);
-    else if (cls.getInstanceClass() == EParameter.class)
-      rc = work((EParameter) obj1, (EParameter) obj2, do_update);
-    else if (cls.getInstanceClass() == EPackage.class)
-      rc = work((EPackage) obj1, (EPackage) obj2, do_update);
-    else if (cls.getInstanceClass() == EReference.class)
-      rc = work((EReference) obj1, (EReference) obj2, do_update);
-
-    if (!rc) {
-      remove(obj1);
-      remove(obj2);
-    }
-
-    return rc;
-  }
-
+    FeaturePlan plan = planFor(cls);
+    long changed = 0;
 
-  private boolean work(EAttribute obj1, EAttribute obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
-
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-//        || id == EcorePackage.EATTRIBUTE__CHANGEABLE
-//        || id == EcorePackage.EATTRIBUTE__DEFAULT_VALUE_LITERAL
-//        || id == EcorePackage.EATTRIBUTE__DERIVED
-          || id == EcorePackage.EATTRIBUTE__EANNOTATIONS
-          || id == EcorePackage.EATTRIBUTE__ECONTAINING_CLASS
-          || id == EcorePackage.EATTRIBUTE__EGENERIC_TYPE
-//        || id == EcorePackage.EATTRIBUTE__ETYPE
-          || id == EcorePackage.EATTRIBUTE__ID
-//        || id == EcorePackage.EATTRIBUTE__LOWER_BOUND
-//        || id == EcorePackage.EATTRIBUTE__NAME
-//        || id == EcorePackage.EATTRIBUTE__ORDERED
-//        || id == EcorePackage.EATTRIBUTE__TRANSIENT
-//        || id == EcorePackage.EATTRIBUTE__UNIQUE
-//        || id == EcorePackage.EATTRIBUTE__UNSETTABLE
-//        || id == EcorePackage.EATTRIBUTE__UPPER_BOUND
-//        || id == EcorePackage.EATTRIBUTE__VOLATILE
-         )
-        continue;
+    for (int id : plan.feature_ids_) {
+      EStructuralFeature feature = cls.getEStructuralFeature(id);
 
       // FIXME:2 Need three objects: targeted, updated, and original! Otherwise feature is just changed back in case of both execution.
-      if (!haveEqualFeature(obj1, obj2, feature))
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
-    }
-
-    feats_ = feats;
-    return feats_.isEmpty();
-  }
-
-
-  private boolean work(EClass obj1, EClass obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
-
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-//        || id == EcorePackage.ECLASS__ABSTRACT
-          || id == EcorePackage.ECLASS__EANNOTATIONS
-          || id == EcorePackage.ECLASS__EGENERIC_SUPER_TYPES
-          || id == EcorePackage.ECLASS__EOPERATIONS
-          || id == EcorePackage.ECLASS__EPACKAGE
-          || id == EcorePackage.ECLASS__ESTRUCTURAL_FEATURES
-//        || id == EcorePackage.ECLASS__ESUPER_TYPES
-          || id == EcorePackage.ECLASS__ETYPE_PARAMETERS
-//        || id == EcorePackage.ECLASS__INSTANCE_CLASS_NAME
-//        || id == EcorePackage.ECLASS__INSTANCE_TYPE_NAME
-//        || id == EcorePackage.ECLASS__INTERFACE
-//        || id == EcorePackage.ECLASS__NAME
-         )
+      if (haveEqualFeature(obj1, obj2, feature))
         continue;
 
-      if (!haveEqualFeature(obj1, obj2, feature))
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
-    }
-
-    feats_ = feats;
-    return feats_.isEmpty();
-  }
+      // Don't fail match if eTypes vary only in their eSuperTypes.
+      if (id == plan.loose_type_id_) {
+        EClassifier typ1 = ((ETypedElement) obj1).getEType();
+        EClassifier typ2 = ((ETypedElement) obj2).getEType();
 
+        if (typ1 != null && typ2 != null && typ1.eClass() == typ2.eClass())
+          continue;
+      }
 
-  private boolean work(EDataType obj1, EDataType obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
+      if (do_update)
+        obj2.eSet(feature, obj1.eGet(feature));
+      else
+        changed |= 1L << id;
+    }
 
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-          || id == EcorePackage.EDATA_TYPE__EANNOTATIONS
-          || id == EcorePackage.EDATA_TYPE__EPACKAGE
-          || id == EcorePackage.EDATA_TYPE__ETYPE_PARAMETERS
-//        || id == EcorePackage.EDATA_TYPE__INSTANCE_CLASS_NAME
-//        || id == EcorePackage.EDATA_TYPE__INSTANCE_TYPE_NAME
-//        || id == EcorePackage.EDATA_TYPE__NAME
-//        || id == EcorePackage.EDATA_TYPE__SERIALIZABLE
-         )
-        continue;
+    boolean rc = plan.is_comparable_ && changed == 0;
 
-      if (!haveEqualFeature(obj1, obj2, feature))
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
+    if (!rc) {
+      remove(obj1);
+      remove(obj2);
     }
 
-    feats_ = feats;
-    return feats_.isEmpty();
+    if (depth_ == 1)
+      changed_ = changed;
+
+    return rc;
   }
 
 
-  private boolean work(EOperation obj1, EOperation obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
+  /**
+   * Gives the plan of the features to compare for a kind of element, making
+   * it on first use.
+   */
+  static FeaturePlan planFor(EClass cls) {
+    FeaturePlan rc = plans_.get(cls);
 
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-          || id == EcorePackage.EOPERATION__EANNOTATIONS
-          || id == EcorePackage.EOPERATION__ECONTAINING_CLASS
-          || id == EcorePackage.EOPERATION__EEXCEPTIONS
-          || id == EcorePackage.EOPERATION__EGENERIC_EXCEPTIONS
-          || id == EcorePackage.EOPERATION__EGENERIC_TYPE
-          || id == EcorePackage.EOPERATION__EPARAMETERS
-//        || id == EcorePackage.EOPERATION__ETYPE
-          || id == EcorePackage.EOPERATION__ETYPE_PARAMETERS
-//        || id == EcorePackage.EOPERATION__LOWER_BOUND
-//        || id == EcorePackage.EOPERATION__NAME
-//        || id == EcorePackage.EOPERATION__ORDERED
-//        || id == EcorePackage.EOPERATION__UNIQUE
-//        || id == EcorePackage.EOPERATION__UPPER_BOUND
-         )
-        continue;
+    if (rc == null) {
+      rc = new FeaturePlan(cls);
+      FeaturePlan prior = plans_.putIfAbsent(cls, rc);
 
-      if (!haveEqualFeature(obj1, obj2, feature))
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
+      if (prior != null)
+        rc = prior;
     }
 
-    feats_ = feats;
-    return feats_.isEmpty();
+    return rc;
   }
 
 
-  private boolean work(EPackage obj1, EPackage obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
+  // Instance data ----------------------------------------------------------
+  /** IDs of the features found to differ, a bit each. */
+  private long changed_;
 
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-          || id == EcorePackage.EPACKAGE__EANNOTATIONS
-          || id == EcorePackage.EPACKAGE__ECLASSIFIERS
-          || id == EcorePackage.EPACKAGE__EFACTORY_INSTANCE
-          || id == EcorePackage.EPACKAGE__ESUBPACKAGES
-          || id == EcorePackage.EPACKAGE__ESUPER_PACKAGE
-//        || id == EcorePackage.EPACKAGE__NAME
-//        || id == EcorePackage.EPACKAGE__NS_PREFIX
-//        || id == EcorePackage.EPACKAGE__NS_URI
-         )
-        continue;
+  /** Depth of comparison, 0 = not comparing. */
+  private int depth_;
+  // End instance data ------------------------------------------------------
 
-      if (!haveEqualFeature(obj1, obj2, feature))
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
-    }
 
-    feats_ = feats;
-    return feats_.isEmpty();
-  }
+  // Class data -------------------------------------------------------------
+  /** Features to compare, by kind of element. */
+  static private final ConcurrentMap<EClass, FeaturePlan> plans_ =
+      new ConcurrentHashMap<EClass, FeaturePlan>();
+
+  // Features never compared, by kind of element. Those commented out are
+  // compared, as well as any feature not listed.
+  static private final int[] ATTRIBUTE_SKIPS = {
+//    EcorePackage.EATTRIBUTE__CHANGEABLE,
+//    EcorePackage.EATTRIBUTE__DEFAULT_VALUE_LITERAL,
+//    EcorePackage.EATTRIBUTE__DERIVED,
+      EcorePackage.EATTRIBUTE__EANNOTATIONS,
+      EcorePackage.EATTRIBUTE__ECONTAINING_CLASS,
+      EcorePackage.EATTRIBUTE__EGENERIC_TYPE,
+//    EcorePackage.EATTRIBUTE__ETYPE,
+//    EcorePackage.EATTRIBUTE__ID,
+//    EcorePackage.EATTRIBUTE__LOWER_BOUND,
+//    EcorePackage.EATTRIBUTE__NAME,
+//    EcorePackage.EATTRIBUTE__ORDERED,
+//    EcorePackage.EATTRIBUTE__TRANSIENT,
+//    EcorePackage.EATTRIBUTE__UNIQUE,
+//    EcorePackage.EATTRIBUTE__UNSETTABLE,
+//    EcorePackage.EATTRIBUTE__UPPER_BOUND,
+//    EcorePackage.EATTRIBUTE__VOLATILE,
+  };
+
+
+  static private final int[] CLASS_SKIPS = {
+//    EcorePackage.ECLASS__ABSTRACT,
+      EcorePackage.ECLASS__EANNOTATIONS,
+      EcorePackage.ECLASS__EGENERIC_SUPER_TYPES,
+      EcorePackage.ECLASS__EOPERATIONS,
+      EcorePackage.ECLASS__EPACKAGE,
+      EcorePackage.ECLASS__ESTRUCTURAL_FEATURES,
+//    EcorePackage.ECLASS__ESUPER_TYPES,
+      EcorePackage.ECLASS__ETYPE_PARAMETERS,
+//    EcorePackage.ECLASS__INSTANCE_CLASS_NAME,
+//    EcorePackage.ECLASS__INSTANCE_TYPE_NAME,
+//    EcorePackage.ECLASS__INTERFACE,
+//    EcorePackage.ECLASS__NAME,
+  };
+
+
+  static private final int[] DATATYPE_SKIPS = {
+      EcorePackage.EDATA_TYPE__EANNOTATIONS,
+      EcorePackage.EDATA_TYPE__EPACKAGE,
+      EcorePackage.EDATA_TYPE__ETYPE_PARAMETERS,
+//    EcorePackage.EDATA_TYPE__INSTANCE_CLASS_NAME,
+//    EcorePackage.EDATA_TYPE__INSTANCE_TYPE_NAME,
+//    EcorePackage.EDATA_TYPE__NAME,
+//    EcorePackage.EDATA_TYPE__SERIALIZABLE,
+  };
+
+
+  static private final int[] OPERATION_SKIPS = {
+      EcorePackage.EOPERATION__EANNOTATIONS,
+      EcorePackage.EOPERATION__ECONTAINING_CLASS,
+      EcorePackage.EOPERATION__EEXCEPTIONS,
+      EcorePackage.EOPERATION__EGENERIC_EXCEPTIONS,
+      EcorePackage.EOPERATION__EGENERIC_TYPE,
+      EcorePackage.EOPERATION__EPARAMETERS,
+//    EcorePackage.EOPERATION__ETYPE,
+      EcorePackage.EOPERATION__ETYPE_PARAMETERS,
+//    EcorePackage.EOPERATION__LOWER_BOUND,
+//    EcorePackage.EOPERATION__NAME,
+//    EcorePackage.EOPERATION__ORDERED,
+//    EcorePackage.EOPERATION__UNIQUE,
+//    EcorePackage.EOPERATION__UPPER_BOUND,
+  };
+
+
+  static private final int[] PACKAGE_SKIPS = {
+      EcorePackage.EPACKAGE__EANNOTATIONS,
+      EcorePackage.EPACKAGE__ECLASSIFIERS,
+      EcorePackage.EPACKAGE__EFACTORY_INSTANCE,
+      EcorePackage.EPACKAGE__ESUBPACKAGES,
+      EcorePackage.EPACKAGE__ESUPER_PACKAGE,
+//    EcorePackage.EPACKAGE__NAME,
+//    EcorePackage.EPACKAGE__NS_PREFIX,
+//    EcorePackage.EPACKAGE__NS_URI,
+  };
+
+
+  static private final int[] PARAMETER_SKIPS = {
+      EcorePackage.EPARAMETER__EANNOTATIONS,
+      EcorePackage.EPARAMETER__EGENERIC_TYPE,
+      EcorePackage.EPARAMETER__EOPERATION,
+//    EcorePackage.EPARAMETER__ETYPE,
+//    EcorePackage.EPARAMETER__LOWER_BOUND,
+//    EcorePackage.EPARAMETER__NAME,
+//    EcorePackage.EPARAMETER__ORDERED,
+//    EcorePackage.EPARAMETER__UNIQUE,
+//    EcorePackage.EPARAMETER__UPPER_BOUND,
+  };
+
+
+  static private final int[] REFERENCE_SKIPS = {
+//    EcorePackage.EREFERENCE__CHANGEABLE,
+      EcorePackage.EREFERENCE__CONTAINER,
+//    EcorePackage.EREFERENCE__CONTAINMENT,
+//    EcorePackage.EREFERENCE__DEFAULT_VALUE_LITERAL,
+//    EcorePackage.EREFERENCE__DERIVED,
+      EcorePackage.EREFERENCE__EANNOTATIONS,
+      EcorePackage.EREFERENCE__ECONTAINING_CLASS,
+      EcorePackage.EREFERENCE__EGENERIC_TYPE,
+      EcorePackage.EREFERENCE__EKEYS,
+//    EcorePackage.EREFERENCE__EOPPOSITE,
+//    EcorePackage.EREFERENCE__ETYPE,
+//    EcorePackage.EREFERENCE__LOWER_BOUND,
+//    EcorePackage.EREFERENCE__NAME,
+//    EcorePackage.EREFERENCE__ORDERED,
+//    EcorePackage.EREFERENCE__RESOLVE_PROXIES,
+//    EcorePackage.EREFERENCE__TRANSIENT,
+//    EcorePackage.EREFERENCE__UNIQUE,
+//    EcorePackage.EREFERENCE__UNSETTABLE,
+//    EcorePackage.EREFERENCE__UPPER_BOUND,
+//    EcorePackage.EREFERENCE__VOLATILE,
+  };
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Features to compare for a kind of element: those not derived, and not
+   * excluded for the kind. Kinds of element other than those of Ecore models
+   * are not comparable, and never match. The plan is shared with EcoreHasher,
+   * so that elements hash alike exactly when they compare alike.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static final class FeaturePlan {
+    FeaturePlan(EClass cls) {
+      Class<?> typ = cls.getInstanceClass();
+      int[] skips = null;
+      int loose_type_id = -1;
+
+      if (typ == EAttribute.class)
+        skips = ATTRIBUTE_SKIPS;
+      else if (typ == EClass.class)
+        skips = CLASS_SKIPS;
+      else if (typ == EDataType.class)
+        skips = DATATYPE_SKIPS;
+      else if (typ == EOperation.class)
+        skips = OPERATION_SKIPS;
+      else if (typ == EPackage.class)
+        skips = PACKAGE_SKIPS;
+      else if (typ == EParameter.class) {
+        skips = PARAMETER_SKIPS;
+        loose_type_id = EcorePackage.EPARAMETER__ETYPE;
+      }
+      else if (typ == EReference.class) {
+        skips = REFERENCE_SKIPS;
+        loose_type_id = EcorePackage.EREFERENCE__ETYPE;
+      }
 
+      int[] feature_ids = new int[0];
+      int container_id = -1;
 
-  private boolean work(EParameter obj1, EParameter obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
+      if (skips != null) {
+        int size = cls.getFeatureCount();
+        feature_ids = new int[size];
+        size = 0;
 
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-          || id == EcorePackage.EPARAMETER__EANNOTATIONS
-          || id == EcorePackage.EPARAMETER__EGENERIC_TYPE
-          || id == EcorePackage.EPARAMETER__EOPERATION
-//        || id == EcorePackage.EPARAMETER__ETYPE
-//        || id == EcorePackage.EPARAMETER__LOWER_BOUND
-//        || id == EcorePackage.EPARAMETER__NAME
-//        || id == EcorePackage.EPARAMETER__ORDERED
-//        || id == EcorePackage.EPARAMETER__UNIQUE
-//        || id == EcorePackage.EPARAMETER__UPPER_BOUND
-         )
-        continue;
+        for (int id = 0; id < feature_ids.length; ++id) {
+          if (cls.getEStructuralFeature(id).isDerived() || isSkipped(id, skips))
+            continue;
 
-      if (!haveEqualFeature(obj1, obj2, feature)) {
-        if (id == EcorePackage.EPARAMETER__ETYPE) { // Don't fail match if
-          EClassifier typ1 = obj1.getEType();       //   eTypes vary only in
-          EClassifier typ2 = obj2.getEType();       //   their eSuperTypes.
+          if (id >= Long.SIZE)
+            throw new IllegalStateException("Too many features to compare in "
+                + cls.getName());
 
-          if ( typ1.eClass() == typ2.eClass())
-            continue;
+          feature_ids[size++] = id;
         }
 
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
+        feature_ids = Arrays.copyOf(feature_ids, size);
+
+        for (EReference reference : cls.getEAllReferences()) {
+          if (reference.isContainer()
+              && cls.getFeatureID(reference) < Long.SIZE) {
+            container_id = cls.getFeatureID(reference);
+            break;
+          }
+        }
       }
+
+      feature_ids_ = feature_ids;
+      loose_type_id_ = loose_type_id;
+      container_id_ = container_id;
+      is_comparable_ = skips != null;
     }
 
-    feats_ = feats;
-    return feats_.isEmpty();
-  }
 
+    static private boolean isSkipped(int id, int[] skips) {
+      for (int skip : skips) {
+        if (skip == id)
+          return true;
+      }
 
-  private boolean work(EReference obj1, EReference obj2, boolean do_update) {
-    List<EStructuralFeature> feats = new ArrayList<EStructuralFeature>();
-    EClass cls = obj1.eClass();
+      return false;
+    }
 
-    for (int i = 0, size = cls.getFeatureCount(); i < size; ++i) {
-      EStructuralFeature feature = cls.getEStructuralFeature(i);
-      int id = feature.getFeatureID();
-
-      if (feature.isDerived()
-//        || id == EcorePackage.EREFERENCE__CHANGEABLE
-          || id == EcorePackage.EREFERENCE__CONTAINER
-          || id == EcorePackage.EREFERENCE__CONTAINMENT
-//        || id == EcorePackage.EREFERENCE__DEFAULT_VALUE_LITERAL
-//        || id == EcorePackage.EREFERENCE__DERIVED
-          || id == EcorePackage.EREFERENCE__EANNOTATIONS
-          || id == EcorePackage.EREFERENCE__ECONTAINING_CLASS
-          || id == EcorePackage.EREFERENCE__EGENERIC_TYPE
-          || id == EcorePackage.EREFERENCE__EKEYS
-//        || id == EcorePackage.EREFERENCE__EOPPOSITE
-//        || id == EcorePackage.EREFERENCE__ETYPE
-//        || id == EcorePackage.EREFERENCE__LOWER_BOUND
-//        || id == EcorePackage.EREFERENCE__NAME
-//        || id == EcorePackage.EREFERENCE__ORDERED
-//        || id == EcorePackage.EREFERENCE__RESOLVE_PROXIES
-//        || id == EcorePackage.EREFERENCE__TRANSIENT
-//        || id == EcorePackage.EREFERENCE__UNIQUE
-//        || id == EcorePackage.EREFERENCE__UNSETTABLE
-//        || id == EcorePackage.EREFERENCE__UPPER_BOUND
-//        || id == EcorePackage.EREFERENCE__VOLATILE
-         )
-        continue;
 
-      if (!haveEqualFeature(obj1, obj2, feature)) {
-        if (id == EcorePackage.EPARAMETER__ETYPE) { // Don't fail match if
-          EClassifier typ1 = obj1.getEType();       //   eTypes vary only in
-          EClassifier typ2 = obj2.getEType();       //   their eSuperTypes.
+    // Instance data --------------------------------------------------------
+    /** IDs of the features to compare, in ID order. */
+    final int[] feature_ids_;
 
-          if ( typ1.eClass() == typ2.eClass())
-            continue;
-        }
+    /** ID of eType feature matched loosely, -1 = none. */
+    final int loose_type_id_;
 
-        if (do_update)
-          obj2.eSet(feature, obj1.eGet(feature));
-        else
-          feats.add(feature);
-      }
-    }
+    /** ID of the reference to the container, -1 = none. */
+    final int container_id_;
 
-    feats_ = feats;
-    return feats_.isEmpty();
+    final boolean is_comparable_;
+    // End instance data ----------------------------------------------------
   }
-
-
-  // Instance data ----------------------------------------------------------
-  private List<EStructuralFeature> feats_ = new ArrayList<EStructuralFeature>();
-  // End instance data ------------------------------------------------------
+  // End nested types -------------------------------------------------------
 }
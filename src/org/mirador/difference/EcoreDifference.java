@@ -52,9 +52,12 @@ import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EcoreFactory;
 import org.eclipse.emf.ecore.xmi.XMIResource;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -74,6 +77,9 @@ public class EcoreDifference {
     difference_ = diff_model_.getXmiModel();
     original_ = original;
     replica_ = replica;
+    difference_ids_ = idMap(difference_);
+    original_ids_ = idMap(original);
+    replica_ids_ = idMap(replica);
   }
 
 
@@ -83,27 +89,41 @@ public class EcoreDifference {
   }
 
 
+  /**
+   * Sets the receiver of the changes found while differencing. Each added,
+   * deleted, or altered element is passed on as soon as its difference
+   * element is made, in the order the difference model holds them.
+   *
+   * @param  consumer  Receiver of the changes, or null for none.
+   * @category  setter
+   */
+  public void setChangeConsumer(ChangeConsumer consumer) {
+    consumer_ = consumer;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
   private EAttribute addElement(EClass container, EAttribute contained) {
     EAttribute diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEAttribute();
 
       // Place new element in proper container.
       container.getEStructuralFeatures().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEAttribute();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EClass) difference_.getEObject(id + '_')
-          : (EClass) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EClass) lookUp(difference_ids_, id + '_')
+          : (EClass) lookUp(difference_ids_, id);
       container.getEStructuralFeatures().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEAttribute();
 
@@ -121,11 +141,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.ATTRIBUTE, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EClass) difference_.getEObject(id + '_');
+      container = (EClass) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEStructuralFeatures().add(alt);
@@ -148,20 +168,21 @@ public class EcoreDifference {
   private EClass addElement(EPackage container, EClass contained) {
     EClass diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEClass();
 
       // Place new element in proper container.
       container.getEClassifiers().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEClass();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EPackage) difference_.getEObject(id + '_')
-          : (EPackage) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EPackage) lookUp(difference_ids_, id + '_')
+          : (EPackage) lookUp(difference_ids_, id);
 //      container.getEClassifiers().add(diff);
 
       if (container != null && container instanceof DeletedEPackage)
@@ -169,7 +190,7 @@ public class EcoreDifference {
       else
         difference_.getContents().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEClass();
 
@@ -187,11 +208,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.CLASS, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EPackage) difference_.getEObject(id + '_');
+      container = (EPackage) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEClassifiers().add(alt);
@@ -214,23 +235,24 @@ public class EcoreDifference {
   private EDataType addElement(EPackage container, EDataType contained) {
     EDataType diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEDataType();
 
       // Place new element in proper container.
       container.getEClassifiers().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEDataType();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EPackage) difference_.getEObject(id + '_')
-          : (EPackage) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EPackage) lookUp(difference_ids_, id + '_')
+          : (EPackage) lookUp(difference_ids_, id);
       container.getEClassifiers().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEDataType();
 
@@ -248,11 +270,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.DATATYPE, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EPackage) difference_.getEObject(id + '_');
+      container = (EPackage) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEClassifiers().add(alt);
@@ -275,23 +297,24 @@ public class EcoreDifference {
   private EOperation addElement(EClass container, EOperation contained) {
     EOperation diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEOperation();
 
       // Place new element in proper container.
       container.getEOperations().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEOperation();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EClass) difference_.getEObject(id + '_')
-          : (EClass) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EClass) lookUp(difference_ids_, id + '_')
+          : (EClass) lookUp(difference_ids_, id);
       container.getEOperations().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEOperation();
 
@@ -309,11 +332,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.OPERATION, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EClass) difference_.getEObject(id + '_');
+      container = (EClass) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEOperations().add(alt);
@@ -336,23 +359,24 @@ public class EcoreDifference {
   private EPackage addElement(EPackage container, EPackage contained) {
     EPackage diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEPackage();
 
       // Place new element in proper container.
       container.getESubpackages().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEPackage();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EPackage) difference_.getEObject(id + '_')
-          : (EPackage) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EPackage) lookUp(difference_ids_, id + '_')
+          : (EPackage) lookUp(difference_ids_, id);
       container.getESubpackages().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEPackage();
 
@@ -373,11 +397,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.PACKAGE, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EPackage) difference_.getEObject(id + '_');
+      container = (EPackage) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getESubpackages().add(alt);
@@ -400,23 +424,24 @@ public class EcoreDifference {
   private EParameter addElement(EOperation container, EParameter contained) {
     EParameter diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEParameter();
 
       // Place new element in proper container.
       container.getEParameters().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEParameter();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EOperation) difference_.getEObject(id + '_')
-          : (EOperation) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EOperation) lookUp(difference_ids_, id + '_')
+          : (EOperation) lookUp(difference_ids_, id);
       container.getEParameters().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEParameter();
 
@@ -434,11 +459,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.PARAMETER, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EOperation) difference_.getEObject(id + '_');
+      container = (EOperation) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEParameters().add(alt);
@@ -461,23 +486,24 @@ public class EcoreDifference {
   private EReference addElement(EClass container, EReference contained) {
     EReference diff;
     String id = getId(contained);
+    MiradorType category = categories_.get(id);
 
-    if (add_ids_.contains(id)) {
+    if (category == MiradorType.ADD) {
       diff = new AddedEReference();
 
       // Place new element in proper container.
       container.getEStructuralFeatures().add(diff);
     }
-    else if (del_ids_.contains(id)) {
+    else if (category == MiradorType.DELETE) {
       diff = new DeletedEReference();
 
       id = difference_.getID(container);
-      container = (difference_.getEObject(id + '_') != null)
-          ? (EClass) difference_.getEObject(id + '_')
-          : (EClass) difference_.getEObject(id);
+      container = (lookUp(difference_ids_, id + '_') != null)
+          ? (EClass) lookUp(difference_ids_, id + '_')
+          : (EClass) lookUp(difference_ids_, id);
       container.getEStructuralFeatures().add(diff);
     }
-    else if (alt_ids_.contains(id)) {
+    else if (category == MiradorType.ALTER) {
       // Create new object to represent updated element in difference model.
       diff = EcoreFactory.eINSTANCE.createEReference();
 
@@ -495,11 +521,11 @@ public class EcoreDifference {
 
       EcoreExtra extra =
           new EcoreExtra(alt, id, EcoreType.REFERENCE, MiradorType.ALTER);
-      diff_model_.addExtra(alt, extra);
+      addExtra(alt, extra);
 
       // Place changed element in either changed container, or the model root.
       id = difference_.getID(container);
-      container = (EClass) difference_.getEObject(id + '_');
+      container = (EClass) lookUp(difference_ids_, id + '_');
 
       if (container != null)
         container.getEStructuralFeatures().add(alt);
@@ -519,75 +545,180 @@ public class EcoreDifference {
   }
 
 
+  /**
+   * Categorizes the elements of two replicas of the same original model in a
+   * single walk of the original, which each replica would otherwise walk on
+   * its own. Each replica is still walked once for its added elements. The
+   * original is hashed once for both, and each replica on its own, so that
+   * subtrees unchanged in a replica are passed over whole.
+   *
+   * @param  left  Difference of the left replica from the original.
+   * @param  right  Difference of the right replica from the original.
+   * @throws IllegalArgumentException  Replicas are not of the same original.
+   */
+  static public void categorizeElements(EcoreDifference left,
+      EcoreDifference right) {
+    if (left.original_ != right.original_)
+      throw new IllegalArgumentException("Replicas of different originals.");
+
+    left.org_hasher_ = new EcoreHasher(left.original_);
+    right.org_hasher_ = left.org_hasher_;
+    left.rep_hasher_ = new EcoreHasher(left.replica_);
+    right.rep_hasher_ = new EcoreHasher(right.replica_);
+
+    left.categorizeAdditions();
+    right.categorizeAdditions();
+
+    // Compare original model to both replicas at once.
+    for (EObject org : left.original_.getContents())
+      categorizeOriginal(org, left, right);
+
+    left.finishCategories();
+    right.finishCategories();
+  }
+
+
   // ID lists are constructed from the top of the model down.
   // A Deleted element must be held in a Changed container, and all of its
   // contents must be Deleted elements as well.
+  //
+  // Each ID is categorized once, in a hash map, so that looking up the
+  // category of an element takes constant time whatever the model size.
+  // Subtrees hashed alike in both models are unchanged throughout, and so
+  // are never entered: their elements are left uncategorized.
   private void categorizeElements()  {
+    org_hasher_ = new EcoreHasher(original_);
+    rep_hasher_ = new EcoreHasher(replica_);
+
+    categorizeAdditions();
+
+    // Compare original model to replica in order to find deleted elements.
+    for (EObject org : original_.getContents())
+      categorizeOriginal(org, this, null);
+
+    finishCategories();
+  }
+
+
+  /**
+   * Walks the replica down from its roots for added elements, passing over
+   * the subtrees that are unchanged from the original.
+   */
+  private void categorizeAdditions() {
+    for (EObject rep : replica_.getContents())
+      categorizeAdditions(rep);
+  }
+
+
+  private void categorizeAdditions(EObject rep) {
     // Compare replica model to original in order to find added elements.
-    for (TreeIterator<EObject> it = replica_.getAllContents(); it.hasNext();) {
-      EObject rep = it.next();
-      String id = replica_.getID(rep);  // Ecore element identifier.
+    String id = replica_.getID(rep);  // Ecore element identifier.
 
-      if (id == null)
-        continue;  // e.g., GenericTypeImpl
+    if (id != null) {  // Else e.g., GenericTypeImpl
+      EObject org = lookUp(original_ids_, id);
 
-      if (original_.getEObject(id) == null)
-        add_ids_.add(id);  // Element was added to the replica.
+      if (org == null)
+        categories_.put(id, MiradorType.ADD);  // Element added to replica.
+      else if (isUnchangedSubtree(org, rep))
+        return;
     }
 
+    for (EObject sub : rep.eContents())
+      categorizeAdditions(sub);
+  }
 
-    // Compare original model to replica in order to find deleted elements.
-    for (TreeIterator<EObject> it = original_.getAllContents(); it.hasNext();) {
-      EObject org = it.next();
-      String id = original_.getID(org);  // Ecore element identifier.
 
-      if (id == null)
-        continue;  // e.g., GenericTypeImpl
+  /**
+   * Categorizes an element of the original model for each difference given,
+   * then walks on down into its contents for those differences in which it
+   * was changed.
+   *
+   * @param  lhs  Difference to categorize for, or null for none.
+   * @param  rhs  Another difference to categorize for, or null for none.
+   */
+  static private void categorizeOriginal(EObject org, EcoreDifference lhs,
+      EcoreDifference rhs) {
+    String id = ((lhs != null) ? lhs : rhs).original_.getID(org);
 
-      // Partition elements into deleted, and changed groups.
-      if (replica_.getEObject(id) == null)
-        del_ids_.add(id);  // Element was removed from the replica.
-      else
-        alt_ids_.add(id);  // Otherwise, assume modified in the replica.
+    if (lhs != null && !lhs.categorizeOriginal(org, id))
+      lhs = null;
+
+    if (rhs != null && !rhs.categorizeOriginal(org, id))
+      rhs = null;
+
+    if (lhs != null || rhs != null) {
+      for (EObject sub : org.eContents())
+        categorizeOriginal(sub, lhs, rhs);
     }
+  }
+
 
+  /**
+   * Categorizes an element of the original model as deleted, or altered in
+   * the replica, or not at all if unchanged.
+   *
+   * @return  true = contents to be categorized, false = subtree unchanged
+   */
+  private boolean categorizeOriginal(EObject org, String id) {
+    if (id == null)
+      return true;  // e.g., GenericTypeImpl
 
-    // Verify assumption of model element modifications.
-    List<String> remove_ids = new ArrayList<String>();
-    EcoreComparator comparer = new EcoreComparator();
+    // Partition elements into deleted, and changed groups.
+    EObject rep = lookUp(replica_ids_, id);
 
-    // Examine changed elements for changes from the bottom of the model up.
-    for (ListIterator<String> it = alt_ids_.listIterator(alt_ids_.size())
-        ; it.hasPrevious();) {
-      String id = it.previous();  // Ecore element identifier.
+    if (rep == null) {
+      categories_.put(id, MiradorType.DELETE);  // Removed from replica.
+      del_ids_.add(id);
+      return true;
+    }
 
-      EObject org = original_.getEObject(id);
-      EObject rep = replica_.getEObject(id);
+    ++checked_ct_;
 
-      // Check elements for equality, and if they contain any deleted elements.
-      if (comparer.equals(org, rep)) { // Shallowly equal. Go deeper.
-        // Verify that the elements still reside in the same container.
-        if (getId(org.eContainer()) != getId(rep.eContainer()))
-          break;  // Replica model element has been moved. Leave as changed.
+    if (isUnchangedSubtree(org, rep))
+      return false;  // Nothing changed beneath.
 
-        // See if any direct contents of original elements have been deleted.
-//        for (Iterator<EObject> in_it = org.eContents().iterator();
-//            in_it.hasNext();) {
-//          // Check if direct content are found in the deleted element list.
-//          if (del_ids_.contains(original_.getID(in_it.next()))) {
-//            id = null;  // Contained element deleted. Keep container as changed.
-//            break;
-//          }
-//        }
+    // Elements referred to count by ID, so an element is altered only when
+    // its own features change, or it moves, and not when an element it
+    // refers to does.
+    boolean is_moved = !isSameContainer(org, rep);
 
-        if (id != null)
-          remove_ids.add(id);  // Element hasn't changed. Remove from list.
-      }
+    if (is_moved
+        || org_hasher_.hashElement(org) != rep_hasher_.hashElement(rep)) {
+      categories_.put(id, MiradorType.ALTER);  // Modified in replica.
+      alt_ids_.add(id);
+
+      if (is_moved)
+        mov_ids_.add(id);
     }
 
-    // Do the unchanged element removals.
-    for (String id : remove_ids)
-      alt_ids_.remove(id);
+    return true;
+  }
+
+
+  private void finishCategories() {
+    rep_hasher_ = null;
+    is_categorized_ = true;
+
+    Debug.dbg.format("Difference: %d elements altered, %d deleted,"
+        + " %d checked\n", alt_ids_.size(), del_ids_.size(), checked_ct_);
+  }
+
+
+  /**
+   * Tells whether an element of the original and its replica are held by the
+   * same container, and their subtrees hashed alike.
+   */
+  private boolean isUnchangedSubtree(EObject org, EObject rep) {
+    return org_hasher_.getHash(org) == rep_hasher_.getHash(rep)
+        && isSameContainer(org, rep);
+  }
+
+
+  private boolean isSameContainer(EObject org, EObject rep) {
+    String org_id = getId(org.eContainer());
+    String rep_id = getId(rep.eContainer());
+
+    return (org_id != null) ? org_id.equals(rep_id) : rep_id == null;
   }
 
 
@@ -638,7 +769,7 @@ public class EcoreDifference {
 
       MiradorType mtyp = MiradorTyper.typeEObject(diff);
       EcoreExtra extra = new EcoreExtra(diff, id, etyp, mtyp);
-      diff_model_.addExtra(diff, extra);
+      addExtra(diff, extra);
 
       // Recursively traverse container (breadth first), copying direct content.
       if (is_recurse) { // Contained becomes new container. Work its content.
@@ -654,7 +785,8 @@ public class EcoreDifference {
 
   public MiradorModel differenceElements(EPackage proj_pkg) {
     //
-    categorizeElements();
+    if (!is_categorized_)
+      categorizeElements();
 
 //    EPackage proj = (EPackage) EcoreUtil.copy(model.getProject());
 //    EPackage proj_pkg = EcoreFactory.eINSTANCE.createEPackage();
@@ -669,9 +801,9 @@ public class EcoreDifference {
     // Recursively traverse deleted elements from top down.
     for (String id : del_ids_) {
       // Get deleted element, and its container.
-      EObject org = original_.getEObject(id);  // Original model element.
+      EObject org = lookUp(original_ids_, id);  // Original model element.
       id = getId(org.eContainer());
-      EObject diff = difference_.getEObject(id);  // Difference model element.
+      EObject diff = lookUp(difference_ids_, id);  // Difference model element.
 
       // Copy original element's direct content into new difference element.
       differenceElement(diff, org, false);
@@ -702,11 +834,11 @@ public class EcoreDifference {
 
       EObject src;
       if (id.endsWith("_"))
-        src = original_.getEObject(id.substring(0, id.length() - 1));
+        src = lookUp(original_ids_, id.substring(0, id.length() - 1));
       else {
-        src = replica_.getEObject(id);  // Added model element.
+        src = lookUp(replica_ids_, id);  // Added model element.
         if (src == null)
-          src = original_.getEObject(id);  // Deleted model element.
+          src = lookUp(original_ids_, id);  // Deleted model element.
       }
 
       EcoreType typ = EcoreTyper.typeEObject(src, false);
@@ -749,10 +881,10 @@ public class EcoreDifference {
 
     // Set to proper type, in correct model.
     if (id != null) {
-      EClassifier typ = (EClassifier) difference_.getEObject(id);
+      EClassifier typ = (EClassifier) lookUp(difference_ids_, id);
 
       if (typ == null)
-        typ = (EClassifier) difference_.getEObject(id + '_');
+        typ = (EClassifier) lookUp(difference_ids_, id + '_');
 
       if (typ != null)
         tar.setEType(typ);
@@ -769,10 +901,10 @@ public class EcoreDifference {
 
       // Set to proper superclass, in correct model.
       if (id != null) {
-        EClass typ = (EClass) difference_.getEObject(id);
+        EClass typ = (EClass) lookUp(difference_ids_, id);
 
         if (typ == null)
-          typ = (EClass) difference_.getEObject(id + '_');
+          typ = (EClass) lookUp(difference_ids_, id + '_');
 
         if (typ != null)
           tar.getESuperTypes().add(typ);
@@ -792,10 +924,10 @@ public class EcoreDifference {
 
     // Set to proper type, in correct model.
     if (id != null) {
-      EClassifier typ = (EClassifier) difference_.getEObject(id);
+      EClassifier typ = (EClassifier) lookUp(difference_ids_, id);
 
       if (typ == null)
-        typ = (EClassifier) difference_.getEObject(id + '_');
+        typ = (EClassifier) lookUp(difference_ids_, id + '_');
 
       if (typ != null)
         tar.setEType(typ);
@@ -814,10 +946,10 @@ public class EcoreDifference {
 
     // Set to proper type, in correct model.
     if (id != null) {
-      EClassifier typ = (EClassifier) difference_.getEObject(id);
+      EClassifier typ = (EClassifier) lookUp(difference_ids_, id);
 
       if (typ == null)
-        typ = (EClassifier) difference_.getEObject(id + '_');
+        typ = (EClassifier) lookUp(difference_ids_, id + '_');
 
       if (typ != null)
         tar.setEType(typ);
@@ -831,10 +963,10 @@ public class EcoreDifference {
 
     // Set to proper type, in correct model.
     if (id != null) {
-      EClassifier typ = (EClassifier) difference_.getEObject(id);
+      EClassifier typ = (EClassifier) lookUp(difference_ids_, id);
 
       if (typ == null)
-        typ = (EClassifier) difference_.getEObject(id + '_');
+        typ = (EClassifier) lookUp(difference_ids_, id + '_');
 
       if (typ != null)
         tar.setEType(typ);
@@ -845,10 +977,10 @@ public class EcoreDifference {
 
     // Set opposite
     if (id != null) {
-      EReference ref = (EReference) difference_.getEObject(id);
+      EReference ref = (EReference) lookUp(difference_ids_, id);
 
       if (ref == null)
-        ref = (EReference) difference_.getEObject(id + '_');
+        ref = (EReference) lookUp(difference_ids_, id + '_');
 
       if (ref != null)
         tar.setEOpposite(ref);
@@ -856,6 +988,27 @@ public class EcoreDifference {
   }
 
 
+  /**
+   * Puts a difference element's extra into the difference model, passing it
+   * on to the change consumer if the element stands for a change. Altered
+   * elements that moved are flagged so.
+   */
+  private void addExtra(ENamedElement diff, EcoreExtra extra) {
+    if (extra.getMiradorType() == MiradorType.ALTER) {
+      String id = extra.getId();
+
+      if (id.endsWith("_")
+          && mov_ids_.contains(id.substring(0, id.length() - 1)))
+        extra.setMoved();
+    }
+
+    diff_model_.addExtra(diff, extra);
+
+    if (consumer_ != null && extra.getMiradorType() != MiradorType.NONE)
+      consumer_.consume(extra);
+  }
+
+
   private String getId(EObject obj) {
     String id = replica_.getID(obj);
     if (id == null)  // If object was deleted...
@@ -865,14 +1018,81 @@ public class EcoreDifference {
   }
 
 
+  /**
+   * Looks up a model element by ID. Unlike XMIResource.getEObject(), an
+   * unknown ID does not fall back to a search of the entire model, which made
+   * each lookup of an added or deleted element cost a full traversal.
+   *
+   * @param  ids  Elements of the model in which to look, by ID.
+   * @param  id  Ecore element identifier.
+   * @return  Element with the ID, or null if the model has none.
+   */
+  static private EObject lookUp(Map<String, EObject> ids, String id) {
+    return ids.get(id);
+  }
+
+
+  /**
+   * Gives the map of IDs to elements that a model keeps as IDs are set. The
+   * map is made on first request, and then kept up to date by the model, so
+   * it is read once per model.
+   */
+  @SuppressWarnings("deprecation")  // Only XMLResource gives its ID map.
+  static private Map<String, EObject> idMap(XMIResource model) {
+    return model.getIDToEObjectMap();
+  }
+
+
   // Instance data ----------------------------------------------------------
   private MiradorModel diff_model_;
   private XMIResource difference_;
   private XMIResource original_;
   private XMIResource replica_;
 
-  private List<String> add_ids_ = new ArrayList<String>();
+  /** Elements of each model by ID, as kept by the model itself. */
+  private final Map<String, EObject> difference_ids_;
+  private final Map<String, EObject> original_ids_;
+  private final Map<String, EObject> replica_ids_;
+
+  /** Category of each added, deleted, or altered element, by ID. */
+  private Map<String, MiradorType> categories_ =
+      new HashMap<String, MiradorType>();
+
+  /** IDs of deleted and altered elements, from the top of the model down. */
   private List<String> del_ids_ = new ArrayList<String>();
   private List<String> alt_ids_ = new ArrayList<String>();
+
+  /** IDs of altered elements moved to another container. */
+  private Set<String> mov_ids_ = new HashSet<String>();
+
+  private boolean is_categorized_;
+
+  /** Subtree hashes of the models, taken when categorizing. */
+  private EcoreHasher org_hasher_;
+  private EcoreHasher rep_hasher_;
+
+  /** Number of elements checked for alteration. */
+  private int checked_ct_;
+
+  private ChangeConsumer consumer_;
   // End instance data ------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Receiver of the changes found by a difference, as they are found.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  public interface ChangeConsumer {
+    /**
+     * Takes in the extra of an added, deleted, or altered element. An altered
+     * element's updated counterpart is put into the difference model next.
+     *
+     * @param  change  Extra of the changed difference element.
+     */
+    public void consume(EcoreExtra change);
+  }
+  // End nested types -------------------------------------------------------
 }
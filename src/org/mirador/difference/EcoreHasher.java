@@ -0,0 +1,218 @@
+/* --------------------------------------------------------------------------+
+   EcoreHasher.java - Structural hashes of the containment subtrees of a
+     model, by which unchanged regions are passed over while differencing.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   The hash of an element mixes the hashes of its contents, in order, into
+   that of the element itself, so that two elements hash alike only if their
+   entire subtrees are alike. Elements referred to, rather than contained,
+   count by ID, or by name if outside the model (e.g., Ecore data types).
+
+   An element itself is hashed over the features EcoreComparator compares
+   for its kind, and its eType as loosely, so that an element hashes alike
+   in two models exactly when no feature of it compares changed. Kinds the
+   comparator does not compare are hashed over all their stored features.
+   -------------------------------------------------------------------------*/
+package ca.dsrg.mirador.difference;
+import ca.dsrg.mirador.difference.EcoreComparator.FeaturePlan;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EGenericType;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Structural hashes of the elements of a model, taken bottom-up over its
+ * containment tree. Two elements with the same hash hold the same ID,
+ * compared feature values, and contents, to 64 bits of hash, so comparing
+ * their hashes stands in for comparing their entire subtrees.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class EcoreHasher {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Hashes every element of a model. The model is only read, so it may be
+   * hashed while other threads read it too.
+   *
+   * @param  model  Model whose elements are to be hashed.
+   */
+  public EcoreHasher(XMIResource model) {
+    model_ = model;
+
+    for (EObject root : model.getContents())
+      hashSubtree(root);
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the hash of the subtree rooted at a model element.
+   *
+   * @param  obj  Element of the hashed model.
+   * @return  Subtree hash, 0 if the element is not of the hashed model.
+   * @category  getter
+   */
+  public long getHash(EObject obj) {
+    Long rc = hashes_.get(obj);
+    return (rc != null) ? rc : 0;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Hashes what makes up a model element itself: its ID, Ecore type, and the
+   * values of the features compared for its kind. Contents are left to the
+   * subtree hash, and containers to the hash of the container.
+   *
+   * @param  obj  Element of the hashed model.
+   * @return  Hash of the element alone.
+   */
+  public long hashElement(EObject obj) {
+    EClass cls = obj.eClass();
+    FeaturePlan plan = EcoreComparator.planFor(cls);
+    long hash = FNV_OFFSET;
+
+    hash = hashString(hash, model_.getID(obj));
+    hash = hashString(hash, cls.getName());
+
+    if (!plan.is_comparable_) {
+      for (EStructuralFeature feature : cls.getEAllStructuralFeatures()) {
+        if (!feature.isTransient() && !isContainment(feature))
+          hash = hashFeature(hash, obj, feature, false);
+      }
+
+      return hash;
+    }
+
+    for (int id : plan.feature_ids_) {
+      hash = hashFeature(hash, obj, cls.getEStructuralFeature(id),
+          id == plan.loose_type_id_);
+    }
+
+    return hash;
+  }
+
+
+  /**
+   * Mixes the value of a feature into a hash, if set. A type matched loosely
+   * counts by its kind only, as the comparator matches it.
+   */
+  private long hashFeature(long hash, EObject obj, EStructuralFeature feature,
+      boolean is_loose_type) {
+    if (feature.isDerived() || !obj.eIsSet(feature))
+      return hash;
+
+    Object value = obj.eGet(feature);
+    hash = hashString(hash, feature.getName());
+
+    if (is_loose_type) {
+      hash = hashString(hash,
+          (value != null) ? ((EObject) value).eClass().getName() : null);
+    }
+    else if (value instanceof List<?>) {
+      for (Object item : (List<?>) value)
+        hash = hashString(hash, valueOf(item));
+    }
+    else
+      hash = hashString(hash, valueOf(value));
+
+    return hash;
+  }
+
+
+  private long hashSubtree(EObject obj) {
+    long hash = hashElement(obj);
+
+    for (EObject sub : obj.eContents())
+      hash = (hash ^ hashSubtree(sub)) * FNV_PRIME;
+
+    hash = mix(hash);
+    if (hash == 0)
+      hash = 1;  // Keep 0 for elements not hashed.
+
+    hashes_.put(obj, hash);
+    return hash;
+  }
+
+
+  /**
+   * Gives the text a feature value is hashed by. Elements count by their ID,
+   * or by name if they have none.
+   */
+  private String valueOf(Object value) {
+    if (!(value instanceof EObject))
+      return String.valueOf(value);
+
+    EObject obj = (EObject) value;
+    String rc = model_.getID(obj);
+
+    if (rc == null) {
+      if (obj instanceof ENamedElement)
+        rc = ((ENamedElement) obj).getName();
+      else if (obj instanceof EGenericType)
+        rc = valueOf(((EGenericType) obj).getEClassifier());
+      else
+        rc = obj.eClass().getName();
+    }
+
+    return rc;
+  }
+
+
+  static private boolean isContainment(EStructuralFeature feature) {
+    return feature instanceof EReference
+        && (((EReference) feature).isContainment()
+        || ((EReference) feature).isContainer());
+  }
+
+
+  static private long hashString(long hash, String text) {
+    if (text == null)
+      return (hash ^ 0xFF) * FNV_PRIME;
+
+    for (int i = 0; i < text.length(); ++i)
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+
+    return (hash ^ 0xFE) * FNV_PRIME;  // Mark end, so "ab"+"c" != "a"+"bc".
+  }
+
+
+  static private long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return hash;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private final XMIResource model_;
+
+  /** Subtree hash of each element, by identity. */
+  private final Map<EObject, Long> hashes_ =
+      new IdentityHashMap<EObject, Long>();
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final long FNV_OFFSET = 0xcbf29ce484222325L;
+  static private final long FNV_PRIME = 0x100000001b3L;
+  // End class data ---------------------------------------------------------
+}
@@ -0,0 +1,411 @@
+/* --------------------------------------------------------------------------+
+   AssignmentMatcher.java - Matching of model elements by optimal assignment
+     of ranked candidates.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Threshold matching is greedy: the first element to claim a candidate keeps
+   it, however much better a later element may have paired with it. Here the
+   candidates of all elements of an Ecore type are instead assigned at once,
+   so as to maximize the total similarity of the matches made. Candidates are
+   only those kept in the ranked matrix, so the assignment problem is sparse
+   and is solved by successive shortest augmenting paths (i.e., the Hungarian
+   method) over the candidate edges alone.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureCell;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureRow;
+import ca.dsrg.mirador.model.EcoreExtra;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Matcher of model elements that maximizes the total similarity of matches,
+ * as an alternative to threshold matching. Manually made matches are kept,
+ * and neither of their elements is offered to any other.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class AssignmentMatcher {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Suppress default constructor to prevent instantiation.
+   */
+  private AssignmentMatcher() {}
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Matches elements to the candidates of their ranked rows, such that the
+   * total measure of the matches made is greatest. Only candidates meeting
+   * the threshold are considered. Works from master side's (i.e.,
+   * from_element) point of view.
+   *
+   * @param  rankings  Ranked candidates of the master side's elements.
+   * @param  limit  Least measure a match may have.
+   * @return  Total measure of the matches made, manual ones excepted.
+   */
+  static public float matchOptimal(MeasureMatrix rankings, float limit) {
+    Debug.dbg.println("\n\n\n\t    --- Model Element Matches ---");
+    int strategy_idx = rankings.getMatchStrategyIndex();
+
+    // Clear previously made element matches.
+    for (MeasureRow row : rankings.values()) {
+      if (!row.getFromElement().isKeepMatch())  // Skip manually made matches.
+        row.getFromElement().setMatch(null);
+    }
+
+    float greedy_ttl = scoreGreedy(rankings, limit);
+
+    // Candidates are always of the same Ecore type, so each is solved alone.
+    Map<EcoreType, List<MeasureRow>> partitions =
+        new EnumMap<EcoreType, List<MeasureRow>>(EcoreType.class);
+
+    for (MeasureRow row : rankings.values()) {
+      EcoreExtra from_element = row.getFromElement();
+
+      if (from_element.isKeepMatch())
+        continue;
+
+      List<MeasureRow> rows = partitions.get(from_element.getEcoreType());
+      if (rows == null) {
+        rows = new ArrayList<MeasureRow>();
+        partitions.put(from_element.getEcoreType(), rows);
+      }
+
+      rows.add(row);
+    }
+
+    float ttl_score = 0;
+    for (List<MeasureRow> rows : partitions.values())
+      ttl_score += new Assignment(rows, strategy_idx, limit).solve();
+
+    for (MeasureRow row : rankings.values()) {
+      EcoreExtra from_element = row.getFromElement();
+
+      if (from_element.getMatch() != null) {
+        Debug.dbg.format("%24s %3s %s\n", from_element.getElement().getName(),
+            "<=>", from_element.getMatch().getElement().getName());
+      }
+    }
+
+    Debug.dbg.format("Assignment total: %.4f optimal, %.4f greedy\n",
+        ttl_score, greedy_ttl);
+    return ttl_score;
+  }
+
+
+  /**
+   * Gives the total measure of the matches that threshold matching would make,
+   * without making them. Manual matches are taken to have been kept.
+   *
+   * @param  rankings  Ranked candidates of the master side's elements.
+   * @param  limit  Least measure a match may have.
+   * @return  Total measure of greedy matches, manual ones excepted.
+   */
+  static public float scoreGreedy(MeasureMatrix rankings, float limit) {
+    int strategy_idx = rankings.getMatchStrategyIndex();
+    Set<EcoreExtra> taken =
+        Collections.newSetFromMap(new IdentityHashMap<EcoreExtra, Boolean>());
+    float rc = 0;
+
+    for (MeasureRow row : rankings.values()) {
+      if (row.getFromElement().isKeepMatch())
+        continue;
+
+      for (MeasureCell cell : row.values()) {
+        EcoreExtra to_element = cell.getToElement();
+        float measure = cell.getMeasure(strategy_idx);
+
+        if (to_element.getMatch() == null && !taken.contains(to_element)
+            && measure >= limit) {
+          taken.add(to_element);
+          rc += measure;
+          break;
+        }
+      }
+    }
+
+    return rc;
+  }
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Assignment problem over the candidates of elements of one Ecore type.
+   * Each element also has a private stand-in candidate of zero measure, so
+   * that leaving it unmatched is always possible. Costs are one less the
+   * measure, so that the least cost assignment has greatest total measure.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private class Assignment {
+    Assignment(List<MeasureRow> rows, int strategy_idx, float limit) {
+      row_ct_ = rows.size();
+      from_elements_ = new EcoreExtra[row_ct_];
+      edge_start_ = new int[row_ct_ + 1];
+
+      Map<EcoreExtra, Integer> col_ids =
+          new IdentityHashMap<EcoreExtra, Integer>();
+      int[] cols = new int[16];
+      float[] scores = new float[16];
+      int edge_ct = 0;
+
+      // Gather candidate edges of each row into compressed arrays.
+      for (int i = 0; i < row_ct_; ++i) {
+        MeasureRow row = rows.get(i);
+        from_elements_[i] = row.getFromElement();
+        edge_start_[i] = edge_ct;
+
+        for (MeasureCell cell : row.values()) {
+          EcoreExtra to_element = cell.getToElement();
+          float measure = cell.getMeasure(strategy_idx);
+
+          if (to_element.getMatch() != null  // Manually matched.
+              || measure < limit
+              || to_element.getEcoreType() != from_elements_[i].getEcoreType())
+            continue;
+
+          Integer col = col_ids.get(to_element);
+          if (col == null) {
+            col = to_elements_.size();
+            col_ids.put(to_element, col);
+            to_elements_.add(to_element);
+          }
+
+          if (edge_ct == cols.length) {
+            cols = Arrays.copyOf(cols, edge_ct * 2);
+            scores = Arrays.copyOf(scores, edge_ct * 2);
+          }
+
+          cols[edge_ct] = col;
+          scores[edge_ct] = measure;
+          ++edge_ct;
+        }
+      }
+
+      edge_start_[row_ct_] = edge_ct;
+      edge_col_ = cols;
+      edge_score_ = scores;
+    }
+
+
+    /**
+     * Solves the assignment, adding one element at a time along a shortest
+     * augmenting path, and matches elements as assigned.
+     *
+     * @return  Total measure of the matches made.
+     */
+    float solve() {
+      int col_ct = to_elements_.size();
+      int node_ct = col_ct + row_ct_;  // Stand-ins follow real candidates.
+
+      row_pot_ = new double[row_ct_];
+      col_pot_ = new double[node_ct];
+      row_col_ = new int[row_ct_];
+      col_row_ = new int[node_ct];
+      dist_ = new double[node_ct];
+      pred_ = new int[node_ct];
+      seen_ = new int[node_ct];
+      done_ = new int[node_ct];
+      int[] popped = new int[node_ct];
+
+      Arrays.fill(row_col_, -1);
+      Arrays.fill(col_row_, -1);
+
+      for (int src = 0; src < row_ct_; ++src) {
+        ++stamp_;
+        heap_ct_ = 0;
+        int popped_ct = 0;
+        int sink = -1;
+
+        // Dijkstra over reduced costs, until a free candidate is reached.
+        relaxRow(src, 0, col_ct);
+        while (heap_ct_ > 0) {
+          int col = pop();
+          if (done_[col] == stamp_)
+            continue;
+
+          done_[col] = stamp_;
+          popped[popped_ct++] = col;
+
+          if (col_row_[col] < 0) {
+            sink = col;
+            break;
+          }
+
+          relaxRow(col_row_[col], dist_[col], col_ct);
+        }
+
+        // Shift potentials, so reduced costs stay non-negative.
+        double sink_dist = dist_[sink];
+        row_pot_[src] += sink_dist;
+
+        for (int k = 0; k < popped_ct; ++k) {
+          int col = popped[k];
+          double delta = sink_dist - dist_[col];
+
+          col_pot_[col] -= delta;
+          if (col_row_[col] >= 0)
+            row_pot_[col_row_[col]] += delta;
+        }
+
+        // Flip matches along the augmenting path.
+        for (int col = sink; col >= 0;) {
+          int row = pred_[col];
+          int next = row_col_[row];
+
+          row_col_[row] = col;
+          col_row_[col] = row;
+          col = (row == src) ? -1 : next;
+        }
+      }
+
+      float rc = 0;
+      for (int i = 0; i < row_ct_; ++i) {
+        int col = row_col_[i];
+
+        if (col < col_ct) {
+          from_elements_[i].setMatch(to_elements_.get(col));
+          rc += edgeScore(i, col);
+        }
+      }
+
+      return rc;
+    }
+
+
+    /**
+     * Relaxes the edges of a row, reached at the given distance.
+     *
+     * @param  row  Row whose candidate edges are relaxed.
+     * @param  base  Distance at which the row is reached.
+     * @param  col_ct  Number of real candidates.
+     */
+    private void relaxRow(int row, double base, int col_ct) {
+      for (int e = edge_start_[row]; e < edge_start_[row + 1]; ++e)
+        relax(row, edge_col_[e], base, 1.0 - edge_score_[e]);
+
+      relax(row, col_ct + row, base, 1.0);  // Stand-in for no match.
+    }
+
+
+    private void relax(int row, int col, double base, double cost) {
+      if (done_[col] == stamp_)
+        return;
+
+      double dist = base + cost - row_pot_[row] - col_pot_[col];
+
+      if (seen_[col] != stamp_ || dist < dist_[col]) {
+        seen_[col] = stamp_;
+        dist_[col] = dist;
+        pred_[col] = row;
+        push(col, dist);
+      }
+    }
+
+
+    private float edgeScore(int row, int col) {
+      for (int e = edge_start_[row]; e < edge_start_[row + 1]; ++e) {
+        if (edge_col_[e] == col)
+          return edge_score_[e];
+      }
+
+      return 0;
+    }
+
+
+    /** Adds a candidate to the heap; stale entries are skipped on removal. */
+    private void push(int col, double dist) {
+      if (heap_ct_ == heap_col_.length) {
+        heap_col_ = Arrays.copyOf(heap_col_, heap_ct_ * 2);
+        heap_dist_ = Arrays.copyOf(heap_dist_, heap_ct_ * 2);
+      }
+
+      int pos = heap_ct_++;
+      while (pos > 0) {
+        int parent = (pos - 1) >>> 1;
+
+        if (heap_dist_[parent] <= dist)
+          break;
+
+        heap_col_[pos] = heap_col_[parent];
+        heap_dist_[pos] = heap_dist_[parent];
+        pos = parent;
+      }
+
+      heap_col_[pos] = col;
+      heap_dist_[pos] = dist;
+    }
+
+
+    /** Removes the candidate of least distance from the heap. */
+    private int pop() {
+      int rc = heap_col_[0];
+      int col = heap_col_[--heap_ct_];
+      double dist = heap_dist_[heap_ct_];
+      int pos = 0;
+
+      for (int child = 1; child < heap_ct_; child = 2 * pos + 1) {
+        if (child + 1 < heap_ct_ && heap_dist_[child + 1] < heap_dist_[child])
+          ++child;
+
+        if (heap_dist_[child] >= dist)
+          break;
+
+        heap_col_[pos] = heap_col_[child];
+        heap_dist_[pos] = heap_dist_[child];
+        pos = child;
+      }
+
+      heap_col_[pos] = col;
+      heap_dist_[pos] = dist;
+      return rc;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final int row_ct_;
+    private final EcoreExtra[] from_elements_;
+    private final List<EcoreExtra> to_elements_ = new ArrayList<EcoreExtra>();
+
+    /** Candidate edges of each row, from edge_start_[row] on. */
+    private final int[] edge_start_;
+    private final int[] edge_col_;
+    private final float[] edge_score_;
+
+    private double[] row_pot_;
+    private double[] col_pot_;
+    private int[] row_col_;
+    private int[] col_row_;
+
+    /** Search state, valid where stamped with the current search. */
+    private double[] dist_;
+    private int[] pred_;
+    private int[] seen_;
+    private int[] done_;
+    private int stamp_;
+
+    private int[] heap_col_ = new int[64];
+    private double[] heap_dist_ = new double[64];
+    private int heap_ct_;
+    // End instance data ----------------------------------------------------
+  }
+  // End nested types -------------------------------------------------------
+}
@@ -0,0 +1,350 @@
+/* --------------------------------------------------------------------------+
+   CandidateIndex.java - Partitioning of model elements into blocks of likely
+     match candidates.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Measuring similarity over the full cross product of two models is quadratic
+   in model size. Elements are instead bucketed by Ecore type, and then by a
+   cheap blocking key, so that only pairs sharing a block need be scored.
+   Token blocking instead keeps an inverted index from name character pairs to
+   elements, so that only names with at least one pair in common are paired.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
+import ca.dsrg.mirador.match.NameEvaluator.NameSignature;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EObject;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Index of the elements of one side of a match, partitioned by Ecore type and
+ * blocking key. Elements of differing Ecore type are never compared, so type
+ * partitioning alone prunes nothing that would otherwise be matched. The
+ * coarser blocking keys trade recall for speed, though an element having the
+ * same ID as the one being matched is always kept as a candidate. Token
+ * blocking loses no candidate the name strategy could score above zero.
+ *
+ * An index depends only on the elements of the candidate model, so may be
+ * kept and reused for as long as that model is unchanged.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class CandidateIndex {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Builds the candidate blocks for the elements of the given model.
+   *
+   * @param  to_model  Model whose elements are the match candidates.
+   * @param  blocking  Key used to partition elements of the same Ecore type.
+   */
+  public CandidateIndex(MiradorModel to_model, Blocking blocking) {
+    to_model_ = to_model;
+    blocking_ = (blocking != null) ? blocking : Blocking.TYPE;
+
+    for (Iterator<EcoreExtra> it = to_model.extraIterator(); it.hasNext();) {
+      EcoreExtra extra = it.next();
+      EcoreType etyp = extra.getEcoreType();
+
+      Map<String, List<EcoreExtra>> blocks = blocks_.get(etyp);
+      if (blocks == null) {
+        blocks = new LinkedHashMap<String, List<EcoreExtra>>();
+        blocks_.put(etyp, blocks);
+      }
+
+      String key = blockKey(extra);
+      List<EcoreExtra> block = blocks.get(key);
+      if (block == null) {
+        block = new ArrayList<EcoreExtra>();
+        blocks.put(key, block);
+      }
+
+      block.add(extra);
+      ++element_ct_;
+    }
+
+    if (blocking_ == Blocking.TOKEN) {
+      for (Map.Entry<EcoreType, Map<String, List<EcoreExtra>>> entry
+          : blocks_.entrySet()) {
+        List<EcoreExtra> extras = entry.getValue().get("");
+        tokens_.put(entry.getKey(), new TokenPostings(to_model, extras));
+      }
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the key used to partition elements of the same Ecore type.
+   *
+   * @return  Blocking key of the index.
+   * @category  getter
+   */
+  public Blocking getBlocking() {
+    return blocking_;
+  }
+
+
+  /**
+   * Gives the model whose elements are held by the index.
+   *
+   * @return  Model of match candidates.
+   * @category  getter
+   */
+  public MiradorModel getModel() {
+    return to_model_;
+  }
+
+
+  /**
+   * Gives the number of elements held by the index.
+   *
+   * @return  Count of indexed elements.
+   * @category  getter
+   */
+  public int getElementCount() {
+    return element_ct_;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Gives the indexed elements that share a block with the given element, in
+   * model order.
+   *
+   * @param  from_extra  Element for which match candidates are wanted.
+   * @return  Candidate elements, empty if there are none.
+   */
+  public List<EcoreExtra> candidates(EcoreExtra from_extra) {
+    Map<String, List<EcoreExtra>> blocks =
+        blocks_.get(from_extra.getEcoreType());
+
+    if (blocks == null)
+      return Collections.emptyList();
+
+    String key = blockKey(from_extra);
+    List<EcoreExtra> block = blocks.get(key);
+
+    if (blocking_ == Blocking.TYPE)
+      return block;
+
+    if (blocking_ == Blocking.TOKEN)
+      return tokens_.get(from_extra.getEcoreType()).candidates(from_extra);
+
+    // Element with the same ID is always a candidate, wherever it now resides.
+    EcoreExtra same_id = to_model_.getExtra(from_extra.getId());
+    if (same_id == null
+        || same_id.getEcoreType() != from_extra.getEcoreType()
+        || key.equals(blockKey(same_id)))
+      return (block != null) ? block : Collections.<EcoreExtra>emptyList();
+
+    List<EcoreExtra> rc = (block != null)
+        ? new ArrayList<EcoreExtra>(block) : new ArrayList<EcoreExtra>(1);
+    rc.add(same_id);
+    return rc;
+  }
+
+
+  /**
+   * Gives the blocking key of an element. Altered container IDs carry a
+   * trailing underscore, which is dropped so they block with their original.
+   *
+   * @param  extra  Element to obtain key for.
+   * @return  Blocking key of the element.
+   */
+  private String blockKey(EcoreExtra extra) {
+    String key = "";
+
+    switch (blocking_) {
+      case CONTAINER:
+        EObject container = (extra.getElement() != null)
+            ? extra.getElement().eContainer() : null;
+
+        if (container != null) {
+          String id = extra.getModel().getXmiModel().getID(container);
+
+          if (id != null)
+            key = id.endsWith("_") ? id.substring(0, id.length() - 1) : id;
+        }
+      break;
+
+      case PREFIX:
+        String name = extra.getName();
+
+        if (name != null) {
+          key = (name.length() > PREFIX_LENGTH)
+              ? name.substring(0, PREFIX_LENGTH) : name;
+          key = key.toLowerCase();
+        }
+      break;
+    }
+
+    return key;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private MiradorModel to_model_;
+  private Blocking blocking_;
+  private int element_ct_;
+
+  /** Candidate blocks, by Ecore type, and then by blocking key. */
+  private Map<EcoreType, Map<String, List<EcoreExtra>>> blocks_ =
+      new EnumMap<EcoreType, Map<String, List<EcoreExtra>>>(EcoreType.class);
+
+  /** Inverted name indices, by Ecore type, for token blocking. */
+  private Map<EcoreType, TokenPostings> tokens_ =
+      new EnumMap<EcoreType, TokenPostings>(EcoreType.class);
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  /** Number of leading name characters that make up a prefix key. */
+  static public final int PREFIX_LENGTH = 3;
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Tag values to indicate how elements of the same Ecore type are blocked.
+   * TYPE = Ecore type only, CONTAINER = also by ID of containing element,
+   * PREFIX = also by leading characters of element name, TOKEN = also by
+   * sharing any character pair of element name.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static public enum Blocking { TYPE, CONTAINER, PREFIX, TOKEN }
+
+
+  /**
+   * Inverted index from the name character pairs of elements of one Ecore
+   * type to the elements having them. Names too short to pair are indexed
+   * whole. Elements are held by their position in model order, so that the
+   * candidates of several postings are merged without duplicates or sorting.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private class TokenPostings {
+    TokenPostings(MiradorModel model, List<EcoreExtra> extras) {
+      model_ = model;
+      extras_ = extras;
+      Map<Integer, List<Integer>> pairs = new HashMap<Integer, List<Integer>>();
+      Map<String, List<Integer>> wholes = new HashMap<String, List<Integer>>();
+
+      for (int i = 0; i < extras.size(); ++i) {
+        EcoreExtra extra = extras.get(i);
+        NameSignature sig = NameEvaluator.signName(extra);
+        int[] sig_pairs = sig.getPairs();
+
+        positions_.put(extra, i);
+
+        if (sig.isWhole())
+          post(wholes, sig.getName(), i);
+
+        for (int j = 0; j < sig_pairs.length; ++j) {
+          if (j == 0 || sig_pairs[j] != sig_pairs[j - 1])
+            post(pairs, sig_pairs[j], i);
+        }
+      }
+
+      for (Map.Entry<Integer, List<Integer>> entry : pairs.entrySet())
+        pairs_.put(entry.getKey(), toArray(entry.getValue()));
+
+      for (Map.Entry<String, List<Integer>> entry : wholes.entrySet())
+        wholes_.put(entry.getKey(), toArray(entry.getValue()));
+    }
+
+
+    /**
+     * Gives the indexed elements whose names share a character pair with that
+     * of the given element, or that have the same ID, in model order.
+     *
+     * @param  from_extra  Element for which match candidates are wanted.
+     * @return  Candidate elements, empty if there are none.
+     */
+    List<EcoreExtra> candidates(EcoreExtra from_extra) {
+      NameSignature sig = NameEvaluator.signName(from_extra);
+      int[] sig_pairs = sig.getPairs();
+      BitSet hits = new BitSet(extras_.size());
+
+      if (sig.isWhole())
+        mark(hits, wholes_.get(sig.getName()));
+
+      for (int j = 0; j < sig_pairs.length; ++j) {
+        if (j == 0 || sig_pairs[j] != sig_pairs[j - 1])
+          mark(hits, pairs_.get(sig_pairs[j]));
+      }
+
+      // Element with the same ID is always a candidate, whatever its name.
+      EcoreExtra same_id = model_.getExtra(from_extra.getId());
+      Integer same_pos = (same_id != null) ? positions_.get(same_id) : null;
+      if (same_pos != null)
+        hits.set(same_pos);
+
+      List<EcoreExtra> rc = new ArrayList<EcoreExtra>(hits.cardinality());
+      for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1))
+        rc.add(extras_.get(i));
+
+      return rc;
+    }
+
+
+    static private <K> void post(Map<K, List<Integer>> postings, K key,
+        int pos) {
+      List<Integer> posting = postings.get(key);
+      if (posting == null) {
+        posting = new ArrayList<Integer>();
+        postings.put(key, posting);
+      }
+
+      posting.add(pos);
+    }
+
+
+    static private void mark(BitSet hits, int[] posting) {
+      if (posting != null) {
+        for (int pos : posting)
+          hits.set(pos);
+      }
+    }
+
+
+    static private int[] toArray(List<Integer> posting) {
+      int[] rc = new int[posting.size()];
+      for (int i = 0; i < rc.length; ++i)
+        rc[i] = posting.get(i);
+
+      return rc;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final MiradorModel model_;
+    private final List<EcoreExtra> extras_;
+    private final Map<EcoreExtra, Integer> positions_ =
+        new IdentityHashMap<EcoreExtra, Integer>();
+    private final Map<Integer, int[]> pairs_ = new HashMap<Integer, int[]>();
+    private final Map<String, int[]> wholes_ = new HashMap<String, int[]>();
+    // End instance data ----------------------------------------------------
+  }
+  // End nested types -------------------------------------------------------
+}
@@ -12,11 +12,27 @@
    Mirador supports several model comparison modules for schema matching.
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureCell;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureRow;
 import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.ETypedElement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 
 /**
- * Evaluator of model element dependencies similarity.
+ * Evaluator of model element dependencies similarity. Similarity of elements
+ * is propagated from that of the elements they depend on, and that depend on
+ * them, once all pairs have been measured by the other strategies.
  *
  * @since   v0.18 - Mar 6, 2010
  * @author  Stephen Barrett
@@ -40,11 +56,22 @@ public class DependencyEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Nothing is kept while evaluating, as measures are only propagated later.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
   /**
-   * Evaluates similarity of dependencies from one model element to another. As
-   * measures are not always symmetrical, a direction of evaluation is implied
-   * by the arguments. The measure is a normalized representation of similarity.
+   * Evaluates similarity of dependencies from one model element to another.
+   * Dependency similarity can only be known once all pairs are measured, so
+   * a pair is given no similarity here, and its measure set when propagated.
    *
    * @param  from_element  Model element <i>from</i> which to measure.
    * @param  to_element  Model element <i>to</i> which to measure.
@@ -52,8 +79,528 @@ public class DependencyEvaluator extends SimilarityEvaluator {
    */
   @Override public float evaluate(EcoreExtra from_element,
       EcoreExtra to_element) {
-    float similarity;
-    similarity = random_.nextFloat();  // TODO:3 Replace with real algorithm.
-    return similarity;
+    return 0.0f;
+  }
+
+
+  /**
+   * Propagates similarity between neighbouring pairs of the matrix, in the
+   * manner of similarity flooding. Each pair starts out with its best measure
+   * by the other strategies, and takes on a share of the similarity of the
+   * pairs its elements are linked to by like dependencies, i.e., containment,
+   * typing, supertypes, and opposites. Similarities are normalized after each
+   * iteration, which stops once no pair changes by more than a small bound.
+   *
+   * @param  measures  Matrix of measured pairs.
+   * @param  strategy_idx  Index of the evaluator's strategy in the matrix.
+   * @return  true = measures revised, false = measures left as evaluated
+   */
+  @Override public boolean propagate(MeasureMatrix measures,
+      int strategy_idx) {
+    if (measures.isEmpty())
+      return false;
+
+    MeasureRow first_row = measures.values().iterator().next();
+    MiradorModel from_model = first_row.getFromElement().getModel();
+    MiradorModel to_model = first_row.isEmpty() ? null
+        : first_row.values().iterator().next().getToElement().getModel();
+
+    if (from_model == null || to_model == null)
+      return false;
+
+    if (from_graph_ == null || from_graph_.model_ != from_model)
+      from_graph_ = new DependencyGraph(from_model);
+
+    if (to_graph_ == null || to_graph_.model_ != to_model)
+      to_graph_ = new DependencyGraph(to_model);
+
+    PairGraph pairs = new PairGraph(measures, strategy_idx);
+    float[] sims = pairs.flood();
+
+    for (int i = 0; i < sims.length; ++i)
+      pairs.cells_[i].put(strategy_idx, sims[i]);
+
+    Debug.dbg.format("Dependency pairs: %d, links: %d, iterations: %d\n",
+        sims.length, pairs.link_ct_, pairs.iteration_ct_);
+    return true;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  /** Dependencies of the models last propagated, kept while unchanged. */
+  private DependencyGraph from_graph_;
+  private DependencyGraph to_graph_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  /** Greatest change in any similarity at which flooding has converged. */
+  static public final float EPSILON = 1e-3f;
+  static public final int MAX_ITERATIONS = 50;
+
+  /** Largest group of like linked pairs to propagate across. */
+  static private final int MAX_FANOUT = 4096;
+
+  /** Links that lead to at most a few elements, by which pairs are linked. */
+  static private final Link[] FORWARD_LINKS =
+      { Link.CONTAINER, Link.TYPE, Link.SUPERTYPE, Link.OPPOSITE };
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Tag values to indicate how one model element depends on another. Each
+   * dependency is held in both directions, so each kind has its reverse.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private enum Link {
+    CONTAINER, CONTENT, TYPE, TYPED, SUPERTYPE, SUBTYPE, OPPOSITE;
+
+    /**
+     * Gives the kind of link held in the opposite direction.
+     *
+     * @return  Reverse link kind.
+     */
+    Link reverse() {
+      switch (this) {
+        case CONTAINER: return CONTENT;
+        case CONTENT:   return CONTAINER;
+        case TYPE:      return TYPED;
+        case TYPED:     return TYPE;
+        case SUPERTYPE: return SUBTYPE;
+        case SUBTYPE:   return SUPERTYPE;
+        default:        return this;
+      }
+    }
+  }
+
+
+  /**
+   * Sparse adjacency of the elements of one model by their dependencies. The
+   * links of each element are held contiguously, and grouped by kind.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private class DependencyGraph {
+    DependencyGraph(MiradorModel model) {
+      model_ = model;
+
+      List<EcoreExtra> extras = new ArrayList<EcoreExtra>();
+      for (Iterator<EcoreExtra> it = model.extraIterator(); it.hasNext();) {
+        EcoreExtra extra = it.next();
+
+        if (extra.getElement() != null) {
+          nodes_.put(extra, extras.size());
+          elements_.put(extra.getElement(), extras.size());
+          extras.add(extra);
+        }
+      }
+
+      // Collect links, keyed so that sorting groups them by element and kind.
+      long[] keys = new long[16];
+      int key_ct = 0;
+
+      for (int i = 0; i < extras.size(); ++i) {
+        EObject element = extras.get(i).getElement();
+        Integer parent = elements_.get(element.eContainer());
+
+        if (parent != null) {
+          keys = link(keys, key_ct++, i, Link.CONTAINER, parent);
+          keys = link(keys, key_ct++, parent, Link.CONTENT, i);
+        }
+
+        if (element instanceof ETypedElement) {
+          Integer type = elements_.get(((ETypedElement) element).getEType());
+
+          if (type != null) {
+            keys = link(keys, key_ct++, i, Link.TYPE, type);
+            keys = link(keys, key_ct++, type, Link.TYPED, i);
+          }
+        }
+
+        if (element instanceof EClass) {
+          for (EClass supertype : ((EClass) element).getESuperTypes()) {
+            Integer sup = elements_.get(supertype);
+
+            if (sup != null) {
+              keys = link(keys, key_ct++, i, Link.SUPERTYPE, sup);
+              keys = link(keys, key_ct++, sup, Link.SUBTYPE, i);
+            }
+          }
+        }
+
+        if (element instanceof EReference) {
+          Integer opposite = elements_.get(((EReference) element).getEOpposite());
+
+          if (opposite != null)
+            keys = link(keys, key_ct++, i, Link.OPPOSITE, opposite);
+        }
+      }
+
+      Arrays.sort(keys, 0, key_ct);
+
+      link_start_ = new int[extras.size() + 1];
+      link_node_ = new int[key_ct];
+      link_kind_ = new byte[key_ct];
+
+      for (int k = 0; k < key_ct; ++k) {
+        ++link_start_[(int) (keys[k] >>> 36) + 1];
+        link_kind_[k] = (byte) ((keys[k] >>> 32) & 0xF);
+        link_node_[k] = (int) keys[k];
+      }
+
+      for (int i = 0; i < extras.size(); ++i)
+        link_start_[i + 1] += link_start_[i];
+
+      // Mark where each kind of link of each node starts.
+      int kind_ct = Link.values().length;
+      kind_start_ = new int[extras.size() * kind_ct + 1];
+
+      for (int i = 0, k = 0; i < extras.size(); ++i) {
+        for (int kind = 0; kind < kind_ct; ++kind) {
+          while (k < link_start_[i + 1] && link_kind_[k] < kind)
+            ++k;
+
+          kind_start_[i * kind_ct + kind] = k;
+        }
+
+        k = link_start_[i + 1];
+      }
+
+      kind_start_[extras.size() * kind_ct] = key_ct;
+    }
+
+
+    /**
+     * Gives the first link of a node of the given kind or later, or the end
+     * of the node's links if none.
+     */
+    int firstLink(int node, int kind) {
+      int kind_ct = Link.values().length;
+      return (kind < kind_ct)
+          ? kind_start_[node * kind_ct + kind] : link_start_[node + 1];
+    }
+
+
+    /**
+     * Gives the number of links of a node of the given kind.
+     */
+    int degree(int node, int kind) {
+      return firstLink(node, kind + 1) - firstLink(node, kind);
+    }
+
+
+    /**
+     * Gives the node of an element, or -1 if it is not in the graph.
+     */
+    int nodeOf(EcoreExtra extra) {
+      Integer rc = nodes_.get(extra);
+      return (rc != null) ? rc : -1;
+    }
+
+
+    static private long[] link(long[] keys, int key_idx, int from_node,
+        Link kind, int to_node) {
+      if (key_idx == keys.length)
+        keys = Arrays.copyOf(keys, key_idx * 2);
+
+      keys[key_idx] = ((long) from_node << 36) | ((long) kind.ordinal() << 32)
+          | to_node;
+      return keys;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final MiradorModel model_;
+    private final Map<EcoreExtra, Integer> nodes_ =
+        new IdentityHashMap<EcoreExtra, Integer>();
+    private final Map<EObject, Integer> elements_ =
+        new IdentityHashMap<EObject, Integer>();
+
+    /** Links of node n are link_start_[n] up to link_start_[n + 1]. */
+    private int[] link_start_;
+    private int[] link_node_;
+    private byte[] link_kind_;
+
+    /** Links of node n of kind k start at kind_start_[n * kinds + k]. */
+    private int[] kind_start_;
+    // End instance data ----------------------------------------------------
+  }
+
+
+  /**
+   * Sparse graph over the measured pairs of a matrix, linking each pair to
+   * those pairs whose elements are linked to its own by like dependencies.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  private class PairGraph {
+    PairGraph(MeasureMatrix measures, int strategy_idx) {
+      List<MatchStrategy> strategies = measures.getStrategies();
+      int pair_ct = 0;
+
+      for (MeasureRow row : measures.values())
+        pair_ct += row.size();
+
+      cells_ = new MeasureCell[pair_ct];
+      seeds_ = new float[pair_ct];
+      pair_from_ = new int[pair_ct];
+      pair_to_ = new int[pair_ct];
+
+      int from_ct = from_graph_.link_start_.length - 1;
+      row_start_ = new int[from_ct];
+      row_end_ = new int[from_ct];
+
+      // Number pairs row by row, ordered within each row by to element.
+      int pair_idx = 0;
+      long[] row_keys = new long[16];
+
+      for (MeasureRow row : measures.values()) {
+        int from_node = from_graph_.nodeOf(row.getFromElement());
+        MeasureCell[] row_cells = row.values().toArray(new MeasureCell[0]);
+        int key_ct = 0;
+
+        if (row_keys.length < row_cells.length)
+          row_keys = new long[row_cells.length];
+
+        for (int j = 0; j < row_cells.length; ++j) {
+          long to_node = to_graph_.nodeOf(row_cells[j].getToElement()) + 1;
+          row_keys[key_ct++] = (to_node << 32) | j;
+        }
+
+        Arrays.sort(row_keys, 0, key_ct);
+
+        if (from_node >= 0)
+          row_start_[from_node] = pair_idx;
+
+        for (int k = 0; k < key_ct; ++k) {
+          MeasureCell cell = row_cells[(int) row_keys[k]];
+          float seed = 0;
+
+          for (int i = 1; i < strategies.size(); ++i) {
+            if (i != strategy_idx)
+              seed = Math.max(seed, cell.getMeasure(i));
+          }
+
+          cells_[pair_idx] = cell;
+          seeds_[pair_idx] = seed;
+          pair_from_[pair_idx] = from_node;
+          pair_to_[pair_idx] = (int) (row_keys[k] >>> 32) - 1;
+          ++pair_idx;
+        }
+
+        if (from_node >= 0)
+          row_end_[from_node] = pair_idx;
+      }
+
+      linkPairs();
+    }
+
+
+    /**
+     * Links each pair to the pairs of its elements' like dependencies. A pair
+     * takes an equal share from each combination of like linked elements.
+     * Links are found from the side of the dependency that is (nearly) always
+     * single, e.g., from contents to their container, and recorded in both
+     * directions, so that wide groups, such as the contents of a package, need
+     * never be paired up element by element.
+     */
+    private void linkPairs() {
+      int pair_ct = cells_.length;
+      DependencyGraph lhs = from_graph_;
+      DependencyGraph rhs = to_graph_;
+
+      link_to_ = new int[16];
+      link_from_ = new int[16];
+      link_share_ = new float[16];
+
+      for (int p = 0; p < pair_ct; ++p) {
+        int from_node = pair_from_[p];
+        int to_node = pair_to_[p];
+
+        if (from_node < 0 || to_node < 0)
+          continue;
+
+        for (Link kind : FORWARD_LINKS) {
+          int k = kind.ordinal();
+          int i_grp = lhs.firstLink(from_node, k);
+          int i_end = lhs.firstLink(from_node, k + 1);
+          int j_grp = rhs.firstLink(to_node, k);
+          int j_end = rhs.firstLink(to_node, k + 1);
+
+          if (i_grp == i_end || j_grp == j_end)
+            continue;
+
+          int fanout = (i_end - i_grp) * (j_end - j_grp);
+          Link reverse = kind.reverse();
+
+          // Both the group and each row are ordered by to node, so merge.
+          for (int a = i_grp; a < i_end; ++a) {
+            int lhs_node = lhs.link_node_[a];
+            int q = seekPair(lhs_node, rhs.link_node_[j_grp]);
+            int q_end = row_end_[lhs_node];
+            int b = j_grp;
+
+            while (q < q_end && b < j_end) {
+              if (pair_to_[q] < rhs.link_node_[b])
+                ++q;
+              else if (pair_to_[q] > rhs.link_node_[b])
+                ++b;
+              else {
+                if (fanout <= MAX_FANOUT)
+                  addLink(p, q, fanout);
+
+                if (reverse != kind) {
+                  int rev_fanout = lhs.degree(lhs_node, reverse.ordinal())
+                      * rhs.degree(rhs.link_node_[b], reverse.ordinal());
+
+                  if (rev_fanout <= MAX_FANOUT)
+                    addLink(q, p, rev_fanout);
+                }
+
+                ++q;
+                ++b;
+              }
+            }
+          }
+        }
+      }
+
+      // Gather links by the pair they lead to.
+      in_start_ = new int[pair_ct + 1];
+      in_pair_ = new int[link_ct_];
+      in_share_ = new float[link_ct_];
+
+      for (int e = 0; e < link_ct_; ++e)
+        ++in_start_[link_to_[e] + 1];
+
+      for (int p = 0; p < pair_ct; ++p)
+        in_start_[p + 1] += in_start_[p];
+
+      int[] fill = Arrays.copyOf(in_start_, pair_ct);
+      for (int e = 0; e < link_ct_; ++e) {
+        int pos = fill[link_to_[e]]++;
+        in_pair_[pos] = link_from_[e];
+        in_share_[pos] = link_share_[e];
+      }
+
+      link_to_ = null;
+      link_from_ = null;
+      link_share_ = null;
+    }
+
+
+    /**
+     * Records that a pair takes a share of the similarity of another.
+     */
+    private void addLink(int to_pair, int from_pair, int fanout) {
+      if (link_ct_ == link_to_.length) {
+        link_to_ = Arrays.copyOf(link_to_, link_ct_ * 2);
+        link_from_ = Arrays.copyOf(link_from_, link_ct_ * 2);
+        link_share_ = Arrays.copyOf(link_share_, link_ct_ * 2);
+      }
+
+      link_to_[link_ct_] = to_pair;
+      link_from_[link_ct_] = from_pair;
+      link_share_[link_ct_] = 1.0f / fanout;
+      ++link_ct_;
+    }
+
+
+    /**
+     * Gives the index of the first pair of an element whose to node is not
+     * less than that given, or the end of the element's pairs if none.
+     */
+    private int seekPair(int from_node, int to_node) {
+      int lo = row_start_[from_node];
+      int hi = row_end_[from_node];
+
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+
+        if (pair_to_[mid] < to_node)
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+
+      return lo;
+    }
+
+
+    /**
+     * Floods similarity across linked pairs until it settles.
+     *
+     * @return  Normalized similarity of each pair.
+     */
+    float[] flood() {
+      int pair_ct = cells_.length;
+      float[] sims = seeds_.clone();
+      float[] next = new float[pair_ct];
+
+      for (iteration_ct_ = 0; iteration_ct_ < MAX_ITERATIONS;) {
+        ++iteration_ct_;
+        float max_sim = 0;
+
+        for (int p = 0; p < pair_ct; ++p) {
+          float sim = seeds_[p] + sims[p];
+
+          for (int e = in_start_[p]; e < in_start_[p + 1]; ++e) {
+            int q = in_pair_[e];
+            sim += in_share_[e] * (seeds_[q] + sims[q]);
+          }
+
+          next[p] = sim;
+          max_sim = Math.max(max_sim, sim);
+        }
+
+        if (max_sim == 0)
+          break;
+
+        float delta = 0;
+        for (int p = 0; p < pair_ct; ++p) {
+          next[p] /= max_sim;
+          delta = Math.max(delta, Math.abs(next[p] - sims[p]));
+        }
+
+        float[] swap = sims;
+        sims = next;
+        next = swap;
+
+        if (delta < EPSILON)
+          break;
+      }
+
+      return sims;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final MeasureCell[] cells_;
+    private final float[] seeds_;
+    private final int[] pair_from_;
+    private final int[] pair_to_;
+
+    /** Pairs of from node n are row_start_[n] up to row_end_[n]. */
+    private final int[] row_start_;
+    private final int[] row_end_;
+
+    /** Pairs linked to pair p are in_start_[p] up to in_start_[p + 1]. */
+    private int[] in_start_;
+    private int[] in_pair_;
+    private float[] in_share_;
+
+    /** Links as found, before being gathered by the pair they lead to. */
+    private int[] link_to_;
+    private int[] link_from_;
+    private float[] link_share_;
+    private int link_ct_;
+    private int iteration_ct_;
+    // End instance data ----------------------------------------------------
   }
+  // End nested types -------------------------------------------------------
 }
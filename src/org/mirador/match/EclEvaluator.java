@@ -13,16 +13,21 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
 import ca.dsrg.mirador.model.EcoreExtra;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.xmi.XMIResource;
 import org.eclipse.epsilon.ecl.EclModule;
+import org.eclipse.epsilon.ecl.execute.context.EclContext;
 import org.eclipse.epsilon.ecl.trace.Match;
 import org.eclipse.epsilon.ecl.trace.MatchTrace;
 import org.eclipse.epsilon.emc.emf.InMemoryEmfModel;
-import org.eclipse.epsilon.eol.IEolExecutableModule;
 import org.eclipse.epsilon.eol.exceptions.EolRuntimeException;
 import java.io.File;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 
 /**
@@ -56,30 +61,47 @@ public class EclEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * The trace index is fixed once built, and only read while measuring.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Runs an ECL script over the left and right models, and indexes the
+   * resulting match trace by the matched elements themselves, by identity.
+   * The parsed script is kept between runs, and only parsed anew once its
+   * file has been modified.
+   *
+   * @param  xmodel_lf  Left model.
+   * @param  xmodel_rt  Right model.
+   * @param  ecl_file  ECL script, null = default script.
+   * @return  Match trace of the comparison.
+   */
   public MatchTrace compare(XMIResource xmodel_lf, XMIResource xmodel_rt,
       File ecl_file) {
-    IEolExecutableModule module = new EclModule();
-
     if (ecl_file == null)  // TODO:3 Change default file to a URI load.
       ecl_file = new File("usr/mirador-evaluator.ecl");
 
-    try {
-      module.parse(ecl_file);
-    }
-    catch (Exception ex) {
-      System.err.println("!!! Mirador - failure !!!\n");  // TODO:3 Replace catch stub.
-      ex.printStackTrace();
-    }
+    EclModule module = parseModule(ecl_file);
 
-    new ResourceSetImpl().getResources().add(xmodel_lf);
+    if (xmodel_lf.getResourceSet() == null)
+      new ResourceSetImpl().getResources().add(xmodel_lf);
     module.getContext().getModelRepository().addModel(
         new InMemoryEmfModel("Left", xmodel_lf, EcorePackage.eNS_URI));
 
-    new ResourceSetImpl().getResources().add(xmodel_rt);
+    if (xmodel_rt.getResourceSet() == null)
+      new ResourceSetImpl().getResources().add(xmodel_rt);
     module.getContext().getModelRepository().addModel(
          new InMemoryEmfModel("Right", xmodel_rt, EcorePackage.eNS_URI));
 
+    ecl_trace_ = null;
     try {
       ecl_trace_ = (MatchTrace) module.execute();
     }
@@ -88,14 +110,15 @@ public class EclEvaluator extends SimilarityEvaluator {
       ex.printStackTrace();
     }
 
+    indexTrace(xmodel_lf);
     return ecl_trace_;
   }
 
 
   /**
-   * Evaluates similarity from one model element to another. As
-   * measures are not always symmetrical, a direction of evaluation is implied
-   * by the arguments. The measure is a normalized representation of similarity.
+   * Evaluates similarity from one model element to another. The trace runs
+   * from left to right only, so an element of the right model is measured by
+   * the trace's measure of the left element to it.
    *
    * @param  from_element  Model element <i>from</i> which to measure.
    * @param  to_element  Model element <i>to</i> which to measure.
@@ -104,21 +127,144 @@ public class EclEvaluator extends SimilarityEvaluator {
   @Override public float evaluate(EcoreExtra from_element,
       EcoreExtra to_element) {
     float similarity = 0.0f;
+    TraceIndex index = trace_idx_;
+
+    if (index != null) {
+      EObject from = from_element.getElement();
+      EObject to = to_element.getElement();
+      Float measure = (from.eResource() == index.left_model_)
+          ? index.get(from, to) : index.get(to, from);
+
+      if (measure != null)
+        similarity = measure;
+    }
+
+    return similarity;
+  }
+
+
+  /**
+   * Converts the reduced match trace into an index of measures by left
+   * element, then right element.
+   */
+  private void indexTrace(XMIResource xmodel_lf) {
+    Map<Object, Map<Object, Float>> matches =
+        new IdentityHashMap<Object, Map<Object, Float>>();
 
     if (ecl_trace_ != null) {
-      Match match = ecl_trace_.getReduced()
-          .getMatch(from_element.getElement(), to_element.getElement());
+      for (Match match : ecl_trace_.getReduced().getMatches()) {
+        Object measure = match.getInfo().get("mirador");
+
+        if (measure instanceof Float) {
+          Map<Object, Float> row = matches.get(match.getLeft());
 
-      if (match != null) {
-        similarity = (Float) match.getInfo().get("mirador");
+          if (row == null) {
+            row = new IdentityHashMap<Object, Float>();
+            matches.put(match.getLeft(), row);
+          }
+
+          row.put(match.getRight(), (Float) measure);
+        }
       }
     }
 
-    return similarity;
+    trace_idx_ = new TraceIndex(xmodel_lf, matches);
+  }
+
+
+  /**
+   * Gives a parsed ECL module for a script file, ready to be run afresh. A
+   * parse is reused for as long as its file keeps the same modification time.
+   *
+   * @param  ecl_file  ECL script.
+   * @return  Parsed module, with a new context.
+   */
+  private EclModule parseModule(File ecl_file) {
+    String key = ecl_file.getAbsolutePath();
+    long modified = ecl_file.lastModified();
+    ParsedModule parsed = modules_.get(key);
+
+    if (parsed == null || parsed.modified_ != modified) {
+      EclModule module = new EclModule();
+
+      try {
+        module.parse(ecl_file);
+      }
+      catch (Exception ex) {
+        System.err.println("!!! Mirador - failure !!!\n");  // TODO:3 Replace catch stub.
+        ex.printStackTrace();
+      }
+
+      parsed = new ParsedModule(module, modified);
+      modules_.put(key, parsed);
+    }
+    else
+      parsed.module_.setContext(new EclContext());
+
+    return parsed.module_;
   }
 
 
   // Instance data ----------------------------------------------------------
   private MatchTrace ecl_trace_;
+
+  /** Measures of the match trace, by matched element identity. */
+  private volatile TraceIndex trace_idx_;
+
+  /** Parsed ECL modules, by absolute path of their script file. */
+  private final Map<String, ParsedModule> modules_ =
+      new HashMap<String, ParsedModule>();
   // End instance data ------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * ECL module as parsed from a script file last modified at a given time.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private final class ParsedModule {
+    ParsedModule(EclModule module, long modified) {
+      module_ = module;
+      modified_ = modified;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    final EclModule module_;
+    final long modified_;
+    // End instance data ----------------------------------------------------
+  }
+
+
+  /**
+   * Measures of a match trace by left element, then right element, along
+   * with the left model the trace was taken from.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private final class TraceIndex {
+    TraceIndex(Resource left_model, Map<Object, Map<Object, Float>> matches) {
+      left_model_ = left_model;
+      matches_ = matches;
+    }
+
+
+    /**
+     * Gives the measure of a left element to a right one, null if none.
+     */
+    Float get(Object left, Object right) {
+      Map<Object, Float> row = matches_.get(left);
+      return (row != null) ? row.get(right) : null;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    final Resource left_model_;
+    final Map<Object, Map<Object, Float>> matches_;
+    // End instance data ----------------------------------------------------
+  }
+  // End nested types -------------------------------------------------------
 }
@@ -13,16 +13,20 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
 import ca.dsrg.mirador.Debug;
-import ca.dsrg.mirador.match.MeasureMatrix.CellComparator;
+import ca.dsrg.mirador.match.CandidateIndex.Blocking;
 import ca.dsrg.mirador.match.MeasureMatrix.MeasureCell;
 import ca.dsrg.mirador.match.MeasureMatrix.MeasureRow;
 import ca.dsrg.mirador.match.MeasureMatrix.RowComparator;
 import ca.dsrg.mirador.model.EcoreExtra;
 import ca.dsrg.mirador.model.MiradorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -39,6 +43,70 @@ public class ElementMatcher {
   private ElementMatcher() {}
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the number of threads used to measure similarity.
+   *
+   * @return  Parallelism level, 1 = measure on calling thread only.
+   * @category  getter
+   */
+  static public int getParallelism() {
+    return parallelism_;
+  }
+
+
+  /**
+   * Assigns the number of threads used to measure similarity.
+   *
+   * @param  level  Parallelism level, 1 = measure on calling thread only.
+   * @category  setter
+   */
+  static public void setParallelism(int level) {
+    parallelism_ = Math.max(1, level);
+  }
+
+
+  /**
+   * Gives the cache of measures kept across sessions.
+   *
+   * @return  Similarity cache, null = none.
+   * @category  getter
+   */
+  static public SimilarityCache getSimilarityCache() {
+    return similarity_cache_;
+  }
+
+
+  /**
+   * Assigns the cache of measures kept across sessions. Cacheable evaluators
+   * are only run for pairs whose measures are not found in the cache, and the
+   * measures they take are added to it.
+   *
+   * @param  cache  Similarity cache, null = none.
+   * @category  setter
+   */
+  static public void setSimilarityCache(SimilarityCache cache) {
+    similarity_cache_ = cache;
+  }
+
+
+  /**
+   * Gives the fork/join pool, sized to the current parallelism level.
+   *
+   * @return  Pool to measure similarity with.
+   */
+  static synchronized private ForkJoinPool getPool() {
+    if (pool_ == null || pool_.getParallelism() != parallelism_) {
+      if (pool_ != null)
+        pool_.shutdown();
+
+      pool_ = new ForkJoinPool(parallelism_);
+    }
+
+    return pool_;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
 //  /**                                                                     DOCDO: Provide method overview.
 //   *
@@ -96,7 +164,7 @@ public class ElementMatcher {
 
         // Match elements if "to element" is available.
         if (to_element.getMatch() == null
-            && cell.getMeasures().get(strategy_idx) >= limit) {
+            && cell.getMeasure(strategy_idx) >= limit) {
           // TODO:2 Matching by strategy requires ranking by the same strategy!
           from_element.setMatch(to_element);
           break;
@@ -118,52 +186,352 @@ public class ElementMatcher {
    */
   static public void measureSimilarities(MiradorModel from_ecore_model,
       MiradorModel to_ecore_model) {
+    measureSimilarities(from_ecore_model, to_ecore_model, Blocking.TYPE);
+  }
+
+
+  /**
+   * Measures similarity of each element of one model to its candidate matches
+   * in another. Only pairs sharing a block of the candidate index are scored,
+   * the rest are pruned without ever being evaluated.
+   *
+   * @param  from_ecore_model  Model whose elements are measured <i>from</i>.
+   * @param  to_ecore_model  Model whose elements are measured <i>to</i>.
+   * @param  blocking  Key used to block candidates of the same Ecore type.
+   */
+  static public void measureSimilarities(MiradorModel from_ecore_model,
+      MiradorModel to_ecore_model, Blocking blocking) {
+    measureSimilarities(from_ecore_model, to_ecore_model,
+        new CandidateIndex(to_ecore_model, blocking));
+  }
+
+
+  /**
+   * Measures similarity of each element of one model to its candidate matches
+   * in another, as given by an index of the other model's elements. The index
+   * may be kept between measures for as long as its model is unchanged.
+   *
+   * @param  from_ecore_model  Model whose elements are measured <i>from</i>.
+   * @param  to_ecore_model  Model whose elements are measured <i>to</i>.
+   * @param  index  Candidate index of the elements of the <i>to</i> model.
+   */
+  static public void measureSimilarities(MiradorModel from_ecore_model,
+      MiradorModel to_ecore_model, CandidateIndex index) {
     MeasureMatrix measures = from_ecore_model.getMatchMatrix();
+    List<EcoreExtra> from_extras = new ArrayList<EcoreExtra>();
+    List<List<EcoreExtra>> candidates = new ArrayList<List<EcoreExtra>>();
+    long pair_ct = 0;
+    long score_ct = 0;
 
+    // Compare only like elements to like, and only those in a shared block.
     for (Iterator<EcoreExtra> from_it = from_ecore_model.extraIterator();
         from_it.hasNext();) {
       EcoreExtra from_extra = from_it.next();
+      List<EcoreExtra> to_extras = index.candidates(from_extra);
 
-      for (Iterator<EcoreExtra> to_it = to_ecore_model.extraIterator();
-          to_it.hasNext();) {
-        EcoreExtra to_extra = to_it.next();
+      from_extras.add(from_extra);
+      candidates.add(to_extras);
+      pair_ct += index.getElementCount();
+      score_ct += to_extras.size();
+    }
 
-        // Compare only like elements to like.
-        if (from_extra.getEcoreType() == to_extra.getEcoreType()) {
-          measures.put(from_extra, to_extra);
-          MeasureCell cell = measures.get(from_extra.getId(), to_extra.getId());
+    // Look up measures of cacheable evaluators before running them.
+    SimilarityCache cache = similarity_cache_;
+    long[] cache_keys = new long[measures.getStrategies().size()];
+    int cached_ct = 0;
+    int added_ct = 0;
 
-          float similarity;
-          float ttl_score = 0;
-          float max_score = 0;
+    if (cache != null) {
+      cache.hashContents(from_ecore_model, to_ecore_model);
+      added_ct = cache.getAddedCount();
 
-          List<MatchStrategy> strategies = measures.getStrategies();
-          for (int i = 1; i < strategies.size(); ++i) {
-            similarity =
-                strategies.get(i).getEvaluator().evaluate(from_extra, to_extra);
+      for (int i = 1; i < cache_keys.length; ++i) {
+        SimilarityEvaluator evaluator =
+            measures.getStrategies().get(i).getEvaluator();
 
-            // Match on ID is special -- elements are from base model. (Except when usurped by developer...)
-            if (i == 1 && similarity == 1.0) { // TODO:3 Should not assume #1 strategy is by ID.
-              ttl_score = 1.0f;
-              max_score = 1.0f;
-            }
+        if (evaluator.isCacheable()) {
+          cache_keys[i] = SimilarityCache.evaluatorKey(evaluator);
+          ++cached_ct;
+        }
+      }
+    }
 
-            if (!(ttl_score == 1.0 && max_score == 1.0)) { // Skip if matched by ID.
-              float weight = strategies.get(i).getWeight();
-              if (weight > 0) {
-                ttl_score += similarity * similarity * weight;
-                max_score += weight;
-              }
-            }
+    if (parallelism_ > 1 && from_extras.size() > 1)
+      measureParallel(measures, from_extras, candidates, cache, cache_keys);
+    else {
+      for (int i = 0; i < from_extras.size(); ++i) {
+        for (EcoreExtra to_extra : candidates.get(i)) {
+          measureSimilarity(measures, from_extras.get(i), to_extra, cache,
+              cache_keys);
+        }
+      }
+    }
+
+    if (cache != null && cached_ct > 0) {
+      added_ct = cache.getAddedCount() - added_ct;
+      Debug.dbg.format("Similarity cache: %d hits, %d added\n",
+          score_ct * cached_ct - added_ct, added_ct);
+    }
+
+    // Let evaluators derive measures from those of neighbouring pairs.
+    List<MatchStrategy> strategies = measures.getStrategies();
+    boolean is_propagated = false;
 
-            cell.put(i, similarity);
+    for (int i = 1; i < strategies.size(); ++i) {
+      SimilarityEvaluator evaluator = strategies.get(i).getEvaluator();
+      is_propagated |= evaluator.propagate(measures, i);
+    }
+
+    if (is_propagated)
+      rescoreSimilarities(measures);
+
+    measures.setPairCounts(score_ct, pair_ct - score_ct);
+    Debug.dbg.format("Similarity pairs: %d scored, %d pruned (%s blocking)\n",
+        score_ct, pair_ct - score_ct, index.getBlocking());
+  }
+
+
+  /**
+   * Measures similarity of the elements of two models in both directions,
+   * evaluating each pair only once wherever the evaluators allow. The measures
+   * <i>to</i> the first model are a transposed view of those <i>from</i> it,
+   * with only the measures of asymmetric evaluators being taken anew.
+   *
+   * @param  from_ecore_model  Model whose elements are measured <i>from</i>.
+   * @param  to_ecore_model  Model whose elements are measured <i>to</i>.
+   * @param  blocking  Key used to block candidates of the same Ecore type.
+   */
+  static public void measureSymmetric(MiradorModel from_ecore_model,
+      MiradorModel to_ecore_model, Blocking blocking) {
+    measureSymmetric(from_ecore_model, to_ecore_model,
+        new CandidateIndex(to_ecore_model, blocking));
+  }
+
+
+  /**
+   * Measures similarity of the elements of two models in both directions, with
+   * candidates given by an index of the second model's elements.
+   *
+   * @param  from_ecore_model  Model whose elements are measured <i>from</i>.
+   * @param  to_ecore_model  Model whose elements are measured <i>to</i>.
+   * @param  index  Candidate index of the elements of the <i>to</i> model.
+   */
+  static public void measureSymmetric(MiradorModel from_ecore_model,
+      MiradorModel to_ecore_model, CandidateIndex index) {
+    measureSimilarities(from_ecore_model, to_ecore_model, index);
+
+    MeasureMatrix measures =
+        from_ecore_model.getMatchMatrix().transpose(to_ecore_model);
+    to_ecore_model.setMatchMatrix(measures);
+
+    // Find those strategies whose measures depend on direction.
+    List<MatchStrategy> strategies = measures.getStrategies();
+    List<Integer> asymmetric = new ArrayList<Integer>();
+
+    for (int i = 1; i < strategies.size(); ++i) {
+      if (!strategies.get(i).getEvaluator().isSymmetric())
+        asymmetric.add(i);
+    }
+
+    if (asymmetric.isEmpty())
+      return;
+
+    // Re-evaluate only the direction dependent measures, in reverse.
+    for (MeasureRow row : measures.values()) {
+      for (MeasureCell cell : row.values()) {
+        cell.unshareMeasures();
+
+        for (int i : asymmetric) {
+          cell.put(i, strategies.get(i).getEvaluator()
+              .evaluate(cell.getFromElement(), cell.getToElement()));
+        }
+
+        scoreSimilarity(cell, strategies);
+      }
+    }
+  }
+
+
+  /**
+   * Measures similarity of elements to their candidates across the threads of
+   * the fork/join pool. Thread-safe evaluators are run by the pool, one slice
+   * of rows per task. The matrix is then filled in on the calling thread in the
+   * same order as a sequential measure, with any evaluators that are not
+   * thread-safe run there, so results are identical to the sequential path.
+   *
+   * @param  measures  Matrix to record measures in.
+   * @param  from_extras  Elements to measure <i>from</i>, in row order.
+   * @param  candidates  Elements to measure <i>to</i>, for each row.
+   * @param  cache  Cache of measures, null = none.
+   * @param  cache_keys  Cache key of each strategy's evaluator, 0 = uncached.
+   */
+  static private void measureParallel(MeasureMatrix measures,
+      List<EcoreExtra> from_extras, List<List<EcoreExtra>> candidates,
+      SimilarityCache cache, long[] cache_keys) {
+    List<MatchStrategy> strategies = measures.getStrategies();
+    int strategy_ct = strategies.size();
+
+    // Hand only thread-safe evaluators to the pool.
+    SimilarityEvaluator[] evaluators = new SimilarityEvaluator[strategy_ct];
+    for (int i = 1; i < strategy_ct; ++i) {
+      SimilarityEvaluator evaluator = strategies.get(i).getEvaluator();
+      if (evaluator.isThreadSafe())
+        evaluators[i] = evaluator;
+    }
+
+    int row_ct = from_extras.size();
+    float[][] evaluated = new float[row_ct][];
+    int grain = Math.max(1, row_ct / (parallelism_ * TASKS_PER_THREAD));
+
+    getPool().invoke(new MeasureTask(evaluators, from_extras, candidates,
+        cache, cache_keys, evaluated, 0, row_ct, grain));
+
+    for (int i = 0; i < row_ct; ++i) {
+      EcoreExtra from_extra = from_extras.get(i);
+      List<EcoreExtra> to_extras = candidates.get(i);
+
+      for (int j = 0; j < to_extras.size(); ++j) {
+        EcoreExtra to_extra = to_extras.get(j);
+        measures.put(from_extra, to_extra);
+        MeasureCell cell = measures.get(from_extra.getId(), to_extra.getId());
+
+        long pair_hash =
+            (cache != null) ? cache.pairHash(from_extra, to_extra) : 0;
+
+        for (int k = 1; k < strategy_ct; ++k) {
+          float measure;
+
+          if (evaluators[k] != null) {
+            measure = evaluated[i][j * strategy_ct + k];
+
+            // Pool threads only read the cache, so add their misses here.
+            if (cache_keys[k] != 0
+                && Float.isNaN(cache.get(cache_keys[k], pair_hash)))
+              cache.put(cache_keys[k], pair_hash, measure);
           }
+          else
+            measure = evaluate(strategies.get(k).getEvaluator(), from_extra,
+                to_extra, cache, cache_keys[k], pair_hash);
+
+          cell.put(k, measure);
+        }
+
+        scoreSimilarity(cell, strategies);
+      }
 
-          cell.getMeasures()  // Set overall score.
-              .set(0, (max_score != 0) ? ttl_score / max_score : 0);
+      evaluated[i] = null;  // Row is done with.
+    }
+  }
+
+
+  /**
+   * Scores a single pair of elements against every match strategy, and records
+   * the individual and overall measures in the given matrix.
+   *
+   * @param  measures  Matrix to record measures in.
+   * @param  from_extra  Model element <i>from</i> which to measure.
+   * @param  to_extra  Model element <i>to</i> which to measure.
+   * @param  cache  Cache of measures, null = none.
+   * @param  cache_keys  Cache key of each strategy's evaluator, 0 = uncached.
+   */
+  static private void measureSimilarity(MeasureMatrix measures,
+      EcoreExtra from_extra, EcoreExtra to_extra, SimilarityCache cache,
+      long[] cache_keys) {
+    measures.put(from_extra, to_extra);
+    MeasureCell cell = measures.get(from_extra.getId(), to_extra.getId());
+
+    List<MatchStrategy> strategies = measures.getStrategies();
+    long pair_hash =
+        (cache != null) ? cache.pairHash(from_extra, to_extra) : 0;
+
+    for (int i = 1; i < strategies.size(); ++i) {
+      cell.put(i, evaluate(strategies.get(i).getEvaluator(), from_extra,
+          to_extra, cache, cache_keys[i], pair_hash));
+    }
+
+    scoreSimilarity(cell, strategies);
+  }
+
+
+  /**
+   * Evaluates a pair of elements, by way of the cache if the evaluator is
+   * cached, adding the measure to the cache when not found.
+   *
+   * @param  evaluator  Evaluator to measure with.
+   * @param  from_extra  Model element <i>from</i> which to measure.
+   * @param  to_extra  Model element <i>to</i> which to measure.
+   * @param  cache  Cache of measures, null = none.
+   * @param  cache_key  Cache key of the evaluator, 0 = uncached.
+   * @param  pair_hash  Cache hash of the pair.
+   * @return  Measure of the evaluator.
+   */
+  static private float evaluate(SimilarityEvaluator evaluator,
+      EcoreExtra from_extra, EcoreExtra to_extra, SimilarityCache cache,
+      long cache_key, long pair_hash) {
+    if (cache_key == 0)
+      return evaluator.evaluate(from_extra, to_extra);
+
+    float rc = cache.get(cache_key, pair_hash);
+
+    if (Float.isNaN(rc)) {
+      rc = evaluator.evaluate(from_extra, to_extra);
+      cache.put(cache_key, pair_hash, rc);
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Sets the overall score of a cell from its individual strategy measures,
+   * as weighted by the strategies.
+   *
+   * @param  cell  Cell to score.
+   * @param  strategies  Strategies the cell was measured with.
+   */
+  static private void scoreSimilarity(MeasureCell cell,
+      List<MatchStrategy> strategies) {
+    float ttl_score = 0;
+    float max_score = 0;
+
+    // Match on ID is special -- elements are from base model. (Except when usurped by developer...)
+    if (strategies.size() > 1 && cell.getMeasure(1) == 1.0) { // TODO:3 Should not assume #1 strategy is by ID.
+      ttl_score = 1.0f;
+      max_score = 1.0f;
+    }
+    else {
+      for (int i = 1; i < strategies.size(); ++i) {
+        float similarity = cell.getMeasure(i);
+        float weight = strategies.get(i).getWeight();
+
+        if (weight > 0) {
+          ttl_score += similarity * similarity * weight;
+          max_score += weight;
         }
       }
     }
+
+    cell.put(0, (max_score != 0) ? ttl_score / max_score : 0);  // Set overall score.
+  }
+
+
+  /**
+   * Scores every cell of a matrix anew from its cached measures, after the
+   * strategy weights have changed. No evaluator is run, and the result is as
+   * if the matrix had been measured with the new weights. Matrices sharing the
+   * measures, such as the transpose, are scored along with it.
+   *
+   * @param  measures  Matrix whose overall scores are to be updated.
+   */
+  static public void rescoreSimilarities(MeasureMatrix measures) {
+    List<MatchStrategy> strategies = measures.getStrategies();
+    float[] weights = new float[strategies.size()];
+
+    for (int i = 1; i < strategies.size(); ++i)
+      weights[i] = strategies.get(i).getWeight();
+
+    // Match on ID is special, as when scoring a single cell.
+    measures.getStore().score(weights, (strategies.size() > 1) ? 1 : 0);
   }
 
 
@@ -174,29 +542,360 @@ public class ElementMatcher {
    */
   static public void rankSimilarlities(MiradorModel ecore_model,
       int strategy_idx) {
+    rankSimilarlities(ecore_model, strategy_idx, 0);
+  }
+
+
+  /**
+   * Ranks the candidate matches of each element of a model, best first, and
+   * the elements by the overall score of their best candidate. Only the top
+   * candidates of each element are kept, as selected with a bounded heap, so
+   * that ranking need not sort every measured pair. Candidates of equal
+   * measure keep their measurement order. Candidates left out are out of
+   * reach of matchThreshold().
+   *
+   * @param  ecore_model  Model whose match matrix is to be ranked.
+   * @param  strategy_idx  Index of strategy to rank candidates by.
+   * @param  top_k  Number of candidates to keep per element, 0 = all.
+   */
+  static public void rankSimilarlities(MiradorModel ecore_model,
+      int strategy_idx, int top_k) {
+    rankRows(ecore_model, strategy_idx, top_k, null);
+  }
+
+
+  /**
+   * Ranks a model anew once its match matrix has been rescored, keeping the
+   * ranked candidates of each element whose order and top candidates the new
+   * scores leave standing. Only the elements whose scores have moved across
+   * the boundary of their kept candidates, or reordered them, are ranked
+   * again. The elements themselves are ordered anew. The model must have been
+   * ranked by <i>rankSimilarlities</i>, with the same strategy and candidate
+   * count, since its match matrix was last measured.
+   *
+   * @param  ecore_model  Model whose match matrix has been rescored.
+   * @param  strategy_idx  Index of strategy to rank candidates by.
+   * @param  top_k  Number of candidates to keep per element, 0 = all.
+   */
+  static public void rerankSimilarities(MiradorModel ecore_model,
+      int strategy_idx, int top_k) {
+    rankRows(ecore_model, strategy_idx, top_k, ecore_model.getRankMatrix());
+  }
+
+
+  /**
+   * Ranks the candidate matches of each element of a model into its rank
+   * matrix, taking the ranked row of an earlier ranking where still standing.
+   *
+   * @param  ecore_model  Model whose match matrix is to be ranked.
+   * @param  strategy_idx  Index of strategy to rank candidates by.
+   * @param  top_k  Number of candidates to keep per element, 0 = all.
+   * @param  previous  Earlier ranking of the model, null = none.
+   */
+  static private void rankRows(MiradorModel ecore_model, int strategy_idx,
+      int top_k, MeasureMatrix previous) {
     MeasureMatrix measures = ecore_model.getMatchMatrix();
+    int reranked_ct = 0;
 
     // Sort the measure matrix by overall score, high to low.
     SortedSet<MeasureRow> rows =
         new TreeSet<MeasureRow>(new RowComparator());
 
+    MeasureCell[] cells = new MeasureCell[0];
+    float[] scores = new float[0];
+    int[] heap = new int[0];
+    int[] ranked = new int[0];
+
     for (MeasureRow row : measures.values()) {
-      SortedSet<MeasureCell> cells =
-          new TreeSet<MeasureCell>(new CellComparator(strategy_idx));
+      int cell_ct = row.size();
+      int keep_ct = (top_k > 0) ? Math.min(top_k, cell_ct) : cell_ct;
 
-      for (MeasureCell cell : row.values())
-        cells.add(cell);
+      if (previous != null) {
+        MeasureRow ranked_row = previous.get(row.getFromElement().getId());
+
+        if (ranked_row != null
+            && isStillRanked(row, ranked_row, strategy_idx, keep_ct)) {
+          rows.add(ranked_row);
+          continue;
+        }
+
+        ++reranked_ct;
+      }
+
+      if (cells.length < cell_ct) {
+        cells = new MeasureCell[cell_ct];
+        scores = new float[cell_ct];
+      }
+
+      if (heap.length < keep_ct) {
+        heap = new int[keep_ct];
+        ranked = new int[keep_ct];
+      }
+
+      // Keep indices of best candidates in a heap, worst kept at the root.
+      int heap_ct = 0;
+      int i = 0;
+
+      for (MeasureCell cell : row.values()) {
+        cells[i] = cell;
+        scores[i] = cell.getMeasure(strategy_idx);
+
+        if (heap_ct < keep_ct) {
+          heap[heap_ct] = i;
+          siftUp(heap, heap_ct++, scores);
+        }
+        else if (Float.compare(scores[i], scores[heap[0]]) > 0) {
+          heap[0] = i;  // Later candidate displaces only a lesser measure.
+          siftDown(heap, heap_ct, scores);
+        }
+
+        ++i;
+      }
+
+      // Drain heap, worst first, to fill the ranked row from its end.
+      int ranked_ct = heap_ct;
+      for (int j = heap_ct - 1; j >= 0; --j) {
+        ranked[j] = heap[0];
+        heap[0] = heap[--heap_ct];
+        siftDown(heap, heap_ct, scores);
+      }
 
       MeasureRow new_row = measures.new MeasureRow(row.getFromElement());
-      for (MeasureCell cell : cells)
-        new_row.put(cell);
+      for (int j = 0; j < ranked_ct; ++j)
+        new_row.put(cells[ranked[j]]);
 
-      rows.add(new_row);
+      Arrays.fill(cells, 0, cell_ct, null);
+
+      if (!new_row.isEmpty())
+        rows.add(new_row);
     }
 
 
     MeasureMatrix rankings = ecore_model.getRankMatrix();
+    rankings.clear();
     for (MeasureRow row : rows)
       rankings.put(row.getFromElement().getId(), row);
+
+    if (previous != null)
+      Debug.dbg.format("Re-ranked %d of %d elements\n", reranked_ct,
+          measures.size());
+  }
+
+
+  /**
+   * Tells if a ranked row still holds the top candidates of an element, in
+   * order, after its measures have been rescored. The ranked measures must
+   * fall strictly, and no other candidate may reach the least of them. Ties
+   * are taken as moved, as their order rests on measurement order.
+   *
+   * @param  row  Row of all candidates of the element.
+   * @param  ranked_row  Ranked candidates kept for the element.
+   * @param  strategy_idx  Index of strategy to rank candidates by.
+   * @param  keep_ct  Number of candidates to keep for the element.
+   * @return  true = ranking stands, false = element must be ranked again
+   */
+  static private boolean isStillRanked(MeasureRow row, MeasureRow ranked_row,
+      int strategy_idx, int keep_ct) {
+    if (ranked_row.size() != keep_ct)
+      return false;
+
+    float floor = Float.POSITIVE_INFINITY;
+    boolean is_first = true;
+
+    for (MeasureCell cell : ranked_row.values()) {
+      float score = cell.getMeasure(strategy_idx);
+
+      if (!is_first && Float.compare(score, floor) >= 0)
+        return false;
+
+      floor = score;
+      is_first = false;
+    }
+
+    // Only the ranked candidates may reach the floor, as they fall strictly.
+    int reach_ct = 0;
+
+    for (MeasureCell cell : row.values()) {
+      if (Float.compare(cell.getMeasure(strategy_idx), floor) >= 0
+          && ++reach_ct > keep_ct)
+        return false;
+    }
+
+    return reach_ct == keep_ct;
+  }
+
+
+  /**
+   * Tells if one candidate ranks below another, by lesser measure, or by
+   * later measurement when measures are equal.
+   *
+   * @param  lhs  Index of candidate to test.
+   * @param  rhs  Index of candidate to test against.
+   * @param  scores  Candidate measures, by index.
+   * @return  true = lhs ranks below rhs
+   */
+  static private boolean ranksBelow(int lhs, int rhs, float[] scores) {
+    int rc = Float.compare(scores[lhs], scores[rhs]);
+    return (rc != 0) ? rc < 0 : lhs > rhs;
+  }
+
+
+  /**
+   * Restores heap order after a candidate is added at the given position.
+   *
+   * @param  heap  Candidate indices, lowest ranked at the root.
+   * @param  pos  Position of the added candidate.
+   * @param  scores  Candidate measures, by index.
+   */
+  static private void siftUp(int[] heap, int pos, float[] scores) {
+    int item = heap[pos];
+
+    while (pos > 0) {
+      int parent = (pos - 1) >>> 1;
+
+      if (!ranksBelow(item, heap[parent], scores))
+        break;
+
+      heap[pos] = heap[parent];
+      pos = parent;
+    }
+
+    heap[pos] = item;
+  }
+
+
+  /**
+   * Restores heap order after the candidate at the root is replaced.
+   *
+   * @param  heap  Candidate indices, lowest ranked at the root.
+   * @param  heap_ct  Number of candidates in the heap.
+   * @param  scores  Candidate measures, by index.
+   */
+  static private void siftDown(int[] heap, int heap_ct, float[] scores) {
+    if (heap_ct == 0)
+      return;
+
+    int item = heap[0];
+    int pos = 0;
+
+    for (int child = 1; child < heap_ct; child = 2 * pos + 1) {
+      if (child + 1 < heap_ct
+          && ranksBelow(heap[child + 1], heap[child], scores))
+        ++child;
+
+      if (!ranksBelow(heap[child], item, scores))
+        break;
+
+      heap[pos] = heap[child];
+      pos = child;
+    }
+
+    heap[pos] = item;
+  }
+
+
+  // Class data -------------------------------------------------------------
+  /**
+   * Number of candidates kept per element when ranking, unless chosen: all of
+   * them. Keeping fewer changes matching, since an element whose kept
+   * candidates are all matched to others is left unmatched, where a free
+   * candidate ranked lower would otherwise have been matched to it.
+   */
+  static public final int DEFAULT_TOP_K = 0;
+
+  /** Number of threads used to measure similarity. Set from the UI thread. */
+  static private volatile int parallelism_ = 1;
+  static private ForkJoinPool pool_;
+
+  /** Cache of measures kept across sessions, null = none. */
+  static private SimilarityCache similarity_cache_;
+
+  /** Tasks made per thread, to even out rows of uneven candidate counts. */
+  static private final int TASKS_PER_THREAD = 8;
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Fork/join task that evaluates a slice of matrix rows. The measures of each
+   * row are left in a buffer of their own, strategy minor, for the calling
+   * thread to collect. Only the evaluators given are run, the rest being left
+   * to the calling thread. Measures found in the cache are taken as is.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private class MeasureTask extends RecursiveAction {
+    MeasureTask(SimilarityEvaluator[] evaluators, List<EcoreExtra> from_extras,
+        List<List<EcoreExtra>> candidates, SimilarityCache cache,
+        long[] cache_keys, float[][] evaluated, int lo, int hi, int grain) {
+      evaluators_ = evaluators;
+      from_extras_ = from_extras;
+      candidates_ = candidates;
+      cache_ = cache;
+      cache_keys_ = cache_keys;
+      evaluated_ = evaluated;
+      lo_ = lo;
+      hi_ = hi;
+      grain_ = grain;
+    }
+
+
+    @Override protected void compute() {
+      if (hi_ - lo_ > grain_) { // Split slice in two.
+        int mid = (lo_ + hi_) >>> 1;
+        invokeAll(
+            new MeasureTask(evaluators_, from_extras_, candidates_, cache_,
+                cache_keys_, evaluated_, lo_, mid, grain_),
+            new MeasureTask(evaluators_, from_extras_, candidates_, cache_,
+                cache_keys_, evaluated_, mid, hi_, grain_));
+        return;
+      }
+
+      int strategy_ct = evaluators_.length;
+
+      for (int i = lo_; i < hi_; ++i) {
+        EcoreExtra from_extra = from_extras_.get(i);
+        List<EcoreExtra> to_extras = candidates_.get(i);
+        float[] row = new float[to_extras.size() * strategy_ct];
+
+        for (int j = 0; j < to_extras.size(); ++j) {
+          EcoreExtra to_extra = to_extras.get(j);
+          long pair_hash =
+              (cache_ != null) ? cache_.pairHash(from_extra, to_extra) : 0;
+
+          for (int k = 1; k < strategy_ct; ++k) {
+            if (evaluators_[k] != null) {
+              float measure = (cache_keys_[k] != 0)
+                  ? cache_.get(cache_keys_[k], pair_hash) : Float.NaN;
+
+              row[j * strategy_ct + k] = Float.isNaN(measure)
+                  ? evaluators_[k].evaluate(from_extra, to_extra) : measure;
+            }
+          }
+        }
+
+        evaluated_[i] = row;
+      }
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final SimilarityEvaluator[] evaluators_;
+    private final List<EcoreExtra> from_extras_;
+    private final List<List<EcoreExtra>> candidates_;
+    private final SimilarityCache cache_;
+    private final long[] cache_keys_;
+    private final float[][] evaluated_;
+    private final int lo_;
+    private final int hi_;
+    private final int grain_;
+    // End instance data ----------------------------------------------------
+
+
+    // Class data -----------------------------------------------------------
+    static private final long serialVersionUID = 1L;
+    // End class data -------------------------------------------------------
   }
+  // End nested types -------------------------------------------------------
 }
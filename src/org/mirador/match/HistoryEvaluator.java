@@ -12,11 +12,29 @@
    Mirador supports several model comparison modules for schema matching.
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.change.fujaba.FujabaChangeRecord;
+import ca.dsrg.mirador.change.fujaba.FujabaChangeRecord.CoobraKind;
+import ca.dsrg.mirador.change.fujaba.FujabaChangeRepository;
+import ca.dsrg.mirador.change.fujaba.FujabaRecord;
+import ca.dsrg.mirador.change.fujaba.FujabaRecord.CoobraType;
+import ca.dsrg.mirador.change.fujaba.FujabaTransaction;
 import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 
 /**
- * Evaluator of model element historical similarity.
+ * Evaluator of model element historical similarity. The change logs of the
+ * models are summarized once per element, so that each pair is measured by
+ * comparing two small summaries rather than rescanning the logs.
  *
  * @since   v0.21 - Mar 27, 2010
  * @author  Stephen Barrett
@@ -40,20 +58,280 @@ public class HistoryEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Summaries are fixed once taken, and compared alike in either direction.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Summarizes the history of the elements of the models to be matched,
+   * replacing any summaries taken before. Each change log is read once. The
+   * left and right models share the history of the base model, to which
+   * their own changes are added. Must be called before measuring, on the
+   * calling thread, as summaries are read concurrently thereafter.
+   *
+   * @param  change_repo  Change logs of the models being merged.
+   * @param  left_model  Left model of the merge.
+   * @param  right_model  Right model of the merge.
+   */
+  public void summarize(FujabaChangeRepository change_repo,
+      MiradorModel left_model, MiradorModel right_model) {
+    Map<String, Integer> field_idxs = new HashMap<String, Integer>();
+    Map<String, History> base = new HashMap<String, History>();
+    Map<String, History> left = new HashMap<String, History>();
+    Map<String, History> right = new HashMap<String, History>();
+
+    summarizeLog(change_repo.getTransactionsBase(), field_idxs,
+        Collections.<String, History>emptyMap(), base);
+    summarizeLog(change_repo.getTransactionsLeft(), field_idxs, base, left);
+    summarizeLog(change_repo.getTransactionsRight(), field_idxs, base, right);
+
+    Map<EcoreExtra, History> histories =
+        new IdentityHashMap<EcoreExtra, History>();
+    attachHistories(left_model, left, base, histories);
+    attachHistories(right_model, right, base, histories);
+
+    histories_ = histories;
+  }
+
+
   /**
    * Evaluates historical similarity from one model element to another. As
    * measures are not always symmetrical, a direction of evaluation is implied
    * by the arguments. The measure is a normalized representation of similarity.
    *
+   * Elements without a recorded history are not similar by this measure.
+   *
    * @param  from_element  Model element <i>from</i> which to measure.
    * @param  to_element  Model element <i>to</i> which to measure.
    * @return  Normalized similarity: 0.0 = no similarity, 1.0 = identical
    */
   @Override public float evaluate(EcoreExtra from_element,
       EcoreExtra to_element) {
-    float similarity;
-    similarity = random_.nextFloat();  // TODO:3 Replace with real algorithm.
-    return similarity;
+    History lhs = histories_.get(from_element);
+    History rhs = histories_.get(to_element);
+
+    return (lhs != null && rhs != null) ? lhs.compare(rhs) : 0;
+  }
+
+
+  /**
+   * Links the elements of a model to the summaries of their histories, those
+   * of the model's own log preferred to those of the base log.
+   */
+  static private void attachHistories(MiradorModel model,
+      Map<String, History> own, Map<String, History> base,
+      Map<EcoreExtra, History> histories) {
+    if (model == null)
+      return;
+
+    for (Iterator<EcoreExtra> it = model.extraIterator(); it.hasNext();) {
+      EcoreExtra extra = it.next();
+      String id = extra.getId();
+
+      if (id != null) {
+        History history = own.get(id);
+        if (history == null)
+          history = base.get(id);
+
+        if (history != null)
+          histories.put(extra, history);
+      }
+    }
+  }
+
+
+  /**
+   * Adds the changes of one log to the summaries of the elements they
+   * affect. An element first changed in this log starts from a copy of its
+   * inherited summary, so inherited summaries are left as they were.
+   *
+   * @param  txs  Transactions of the log, in log order.
+   * @param  field_idxs  Index of each field name seen so far.
+   * @param  inherited  Summaries of the model this log continues from.
+   * @param  histories  Summaries to add to, by element ID.
+   */
+  static private void summarizeLog(List<FujabaTransaction> txs,
+      Map<String, Integer> field_idxs, Map<String, History> inherited,
+      Map<String, History> histories) {
+    for (FujabaTransaction tx : txs) {
+      for (ListIterator<FujabaRecord> it = tx.changeIterator();
+          it.hasNext();) {
+        FujabaRecord record = it.next();
+        if (record.getRecordType() != CoobraType.CHANGE)
+          continue;
+
+        FujabaChangeRecord change = (FujabaChangeRecord) record;
+        String id = change.getElementId();
+        if (id == null)
+          continue;
+
+        History history = histories.get(id);
+        if (history == null) {
+          History from = inherited.get(id);
+          history = (from != null) ? new History(from) : new History();
+          histories.put(id, history);
+        }
+
+        if (change.getChangeKind() == CoobraKind.CREATE_OBJECT)
+          history.created_tx_ = change.getTransactionId();
+        else if (change.getChangeKind() == CoobraKind.ALTER_FIELD
+            && change.getFieldName() != null) {
+          String field_name = change.getFieldName();
+
+          if (field_name.equals("name"))
+            history.rename(change.getOldValue(), change.getNewValue());
+
+          Integer field_idx = field_idxs.get(field_name);
+          if (field_idx == null) {
+            field_idx = field_idxs.size();
+            field_idxs.put(field_name, field_idx);
+          }
+
+          history.countChange(field_idx);
+        }
+      }
+    }
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  /** History summaries of the elements of the models being matched. */
+  private volatile Map<EcoreExtra, History> histories_ =
+      Collections.<EcoreExtra, History>emptyMap();
+  // End instance data ------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Summary of the recorded history of a model element: the transaction that
+   * created it, the chain of names it has held, and the number of changes
+   * made to each of its fields. Fields are numbered in the order first seen
+   * across all logs, so counts line up between summaries.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private final class History {
+    History() {
+      names_ = new ArrayList<String>(2);
+      change_cts_ = new int[0];
+    }
+
+
+    History(History other) {
+      created_tx_ = other.created_tx_;
+      names_ = new ArrayList<String>(other.names_);
+      change_cts_ = other.change_cts_.clone();
+    }
+
+
+    /**
+     * Extends the rename chain with a change of name. A name taken back up
+     * again is not repeated.
+     */
+    void rename(String old_name, String new_name) {
+      if (names_.isEmpty() && isValue(old_name))
+        names_.add(old_name);
+
+      if (isValue(new_name) && !names_.contains(new_name))
+        names_.add(new_name);
+    }
+
+
+    /**
+     * Counts a change to a field.
+     */
+    void countChange(int field_idx) {
+      if (field_idx >= change_cts_.length)
+        change_cts_ = Arrays.copyOf(change_cts_, field_idx + 1);
+
+      ++change_cts_[field_idx];
+    }
+
+
+    /**
+     * Compares two summaries as the mean of the history they have in common:
+     * a shared creating transaction (in full only under a shared original
+     * name), shared names (the original name above all), and alike counts of
+     * field changes. Only what both summaries record is compared.
+     */
+    float compare(History other) {
+      float ttl = 0;
+      int ct = 0;
+
+      if (created_tx_ != null && other.created_tx_ != null) {
+        if (created_tx_.equals(other.created_tx_))
+          ttl += (!names_.isEmpty() && !other.names_.isEmpty()
+              && names_.get(0).equals(other.names_.get(0))) ? 1 : 0.5f;
+        ++ct;
+      }
+
+      if (!names_.isEmpty() && !other.names_.isEmpty()) {
+        ttl += compareNames(other);
+        ++ct;
+      }
+
+      int ln = Math.max(change_cts_.length, other.change_cts_.length);
+      int min_sum = 0;
+      int max_sum = 0;
+
+      for (int i = 0; i < ln; ++i) {
+        int lhs = (i < change_cts_.length) ? change_cts_[i] : 0;
+        int rhs = (i < other.change_cts_.length) ? other.change_cts_[i] : 0;
+        min_sum += Math.min(lhs, rhs);
+        max_sum += Math.max(lhs, rhs);
+      }
+
+      if (max_sum > 0 && min_sum > 0) {
+        ttl += (float) min_sum / max_sum;
+        ++ct;
+      }
+
+      return (ct > 0) ? ttl / ct : 0;
+    }
+
+
+    /**
+     * Compares rename chains: 1.0 for a common original name, otherwise the
+     * share of names held by either that were held by both.
+     */
+    private float compareNames(History other) {
+      if (names_.get(0).equals(other.names_.get(0)))
+        return 1;
+
+      int common = 0;
+      for (String name : names_) {
+        if (other.names_.contains(name))
+          ++common;
+      }
+
+      return (float) common / (names_.size() + other.names_.size() - common);
+    }
+
+
+    static private boolean isValue(String value) {
+      return value != null && !value.isEmpty() && !value.equals("-");
+    }
+
+
+    // Instance data --------------------------------------------------------
+    /** ID of creating transaction, null = created before the logs began. */
+    String created_tx_;
+
+    /** Distinct names held, oldest first. */
+    private final List<String> names_;
+
+    /** Number of changes made to each field, by field index. */
+    private int[] change_cts_;
+    // End instance data ----------------------------------------------------
   }
+  // End nested types -------------------------------------------------------
 }
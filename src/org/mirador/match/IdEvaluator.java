@@ -40,6 +40,17 @@ public class IdEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * IDs are compared without any state being kept, so evaluation may run concurrently.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
   /**
    * Evaluates similarity of IDs from one model element to another. As measures
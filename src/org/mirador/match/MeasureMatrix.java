@@ -13,12 +13,24 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
 import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.match.MeasureStore.Storage;
 import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -34,7 +46,19 @@ public class MeasureMatrix
    * @param  strategies  Purpose of the argument.
    */
   public MeasureMatrix(List<MatchStrategy> strategies) {
+    this(strategies, Storage.HEAP);
+  }
+
+
+  /**
+   * Constructs an empty matrix, whose measures are kept in the given storage.
+   *
+   * @param  strategies  Strategies measured by the matrix.
+   * @param  storage  Where measures are to be kept.
+   */
+  public MeasureMatrix(List<MatchStrategy> strategies, Storage storage) {
     strategies_ = strategies;
+    store_ = MeasureStore.create(storage, strategies.size());
   }
 
 
@@ -60,6 +84,17 @@ public class MeasureMatrix
   }
 
 
+  /**
+   * Gives the store of the matrix's measures, shared with its transpose.
+   *
+   * @return  Measure store of the matrix.
+   * @category  getter
+   */
+  MeasureStore getStore() {
+    return store_;
+  }
+
+
   /**                                                                     DOCDO: Provide method overview.
    *
    * @return  What is returned by the method.
@@ -75,6 +110,43 @@ public class MeasureMatrix
   }
 
 
+  /**
+   * Gives the number of element pairs pruned, i.e., never scored, when the
+   * matrix was measured.
+   *
+   * @return  Count of pruned element pairs.
+   * @category  getter
+   */
+  public long getPrunedCount() {
+    return pruned_ct_;
+  }
+
+
+  /**
+   * Gives the number of element pairs scored when the matrix was measured.
+   *
+   * @return  Count of scored element pairs.
+   * @category  getter
+   */
+  public long getScoredCount() {
+    return scored_ct_;
+  }
+
+
+  /**
+   * Records how many element pairs were scored and pruned when the matrix was
+   * measured.
+   *
+   * @param  scored_ct  Count of scored element pairs.
+   * @param  pruned_ct  Count of pruned element pairs.
+   * @category  setter
+   */
+  public void setPairCounts(long scored_ct, long pruned_ct) {
+    scored_ct_ = scored_ct;
+    pruned_ct_ = pruned_ct;
+  }
+
+
   /**                                                                     DOCDO: Provide method overview.
    *
    * @param  from_element  Element "from" which measurements are made -- row dimension.
@@ -118,6 +190,74 @@ public class MeasureMatrix
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Gives the column number of an element measured to, numbering it if new.
+   */
+  private int columnOf(EcoreExtra to_element) {
+    Integer rc = column_ids_.get(to_element.getId());
+
+    if (rc == null) {
+      rc = columns_.size();
+      columns_.add(to_element);
+      column_ids_.put(to_element.getId(), rc);
+    }
+
+    return rc;
+  }
+
+
+  static private int hash(int col) {
+    return col * 0x9E3779B9 >>> 7;
+  }
+
+
+  /**
+   * Gives the transpose of the matrix, i.e., measures taken from its column
+   * elements to its row elements. Cells of the transpose share their store
+   * slots with the cells of this matrix, so no measure is copied, and rows are
+   * kept in the order the elements of the given model are iterated.
+   *
+   * @param  row_model  Model of the transpose's row elements, or null.
+   * @return  Transposed view of the matrix.
+   */
+  public MeasureMatrix transpose(MiradorModel row_model) {
+    MeasureMatrix rc = new MeasureMatrix(strategies_);
+    rc.store_ = store_;
+    rc.strategy_idx_ = strategy_idx_;
+    rc.scored_ct_ = scored_ct_;
+    rc.pruned_ct_ = pruned_ct_;
+
+    // Seat rows in model order, so ranking ties resolve as if measured anew.
+    if (row_model != null) {
+      for (Iterator<EcoreExtra> it = row_model.extraIterator(); it.hasNext();)
+        rc.put(rc.new MeasureRow(it.next()));
+    }
+
+    for (MeasureRow row : values()) {
+      for (MeasureCell cell : row.values()) {
+        MeasureRow rc_row = rc.get(cell.to_element_.getId());
+
+        if (rc_row == null) {
+          rc_row = rc.new MeasureRow(cell.to_element_);
+          rc.put(rc_row);
+        }
+
+        rc_row.put(rc.new MeasureCell(cell.to_element_, cell.from_element_,
+            cell.slot_));
+      }
+    }
+
+    // Drop rows of elements for which there are no candidates.
+    for (Iterator<MeasureRow> it = rc.values().iterator(); it.hasNext();) {
+      if (it.next().isEmpty())
+        it.remove();
+    }
+
+    return rc;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ state accessors
   /**                                                                     DOCDO: Provide method overview.
    *
@@ -134,13 +274,33 @@ public class MeasureMatrix
   // Instance data ----------------------------------------------------------
   private List<MatchStrategy> strategies_ = new ArrayList<MatchStrategy>();
 
+  /** Primitive storage of cell measures. Shared with any transpose. */
+  private MeasureStore store_;
+
+  /** Elements measured to, numbered by column in order of first use. */
+  private final List<EcoreExtra> columns_ = new ArrayList<EcoreExtra>();
+  private final Map<String, Integer> column_ids_ =
+      new HashMap<String, Integer>();
+
   /** Which strategy is being used for matching threshold. */
   private int strategy_idx_;
+
+  /** Element pairs scored and pruned when measuring the matrix. */
+  private long scored_ct_;
+  private long pruned_ct_;
   // End instance data ------------------------------------------------------
 
 
+  // Class data -------------------------------------------------------------
+  static private final int[] EMPTY = new int[0];
+  // End class data ---------------------------------------------------------
+
+
   // Nested types -----------------------------------------------------------
-  /**                                                                     DOCDO: Provide class overview.
+  /**
+   * View of a single matrix cell. Rows hold no cell objects, only the column
+   * and store slot of each cell, so a cell taken from a row is made for the
+   * occasion and may be dropped once read.
    *
    * @since   v0.17 - Mar 5, 2010
    * @author  Stephen Barrett
@@ -153,11 +313,35 @@ public class MeasureMatrix
      * @param  to_element  Element measurement is take <i>to</i>.
      */
     public MeasureCell(EcoreExtra from_element, EcoreExtra to_element) {
+      this(from_element, to_element, store_.allocate());
+    }
+
+
+    /**
+     * Constructs a cell whose measures are kept in the given store slot.
+     *
+     * @param  from_element  Element measurement is take <i>from</i>.
+     * @param  to_element  Element measurement is take <i>to</i>.
+     * @param  slot  Store slot of the cell's measures.
+     */
+    private MeasureCell(EcoreExtra from_element, EcoreExtra to_element,
+        int slot) {
       from_element_ = from_element;
       to_element_ = to_element;
+      slot_ = slot;
+    }
+
 
-      for (int i = 0; i < strategies_.size(); ++i)
-        measures_.add(0.0f);
+    /**
+     * Constructs a view of the cell at the given position of a row.
+     *
+     * @param  row  Row holding the cell.
+     * @param  pos  Position of the cell in the row.
+     */
+    private MeasureCell(MeasureRow row, int pos) {
+      this(row.from_element_, columns_.get(row.cols_[pos]), row.slots_[pos]);
+      row_ = row;
+      pos_ = pos;
     }
 
 
@@ -188,7 +372,49 @@ public class MeasureMatrix
      * @category  getter
      */
     public List<Float> getMeasures() {
-      return measures_;
+      return new AbstractList<Float>() {
+        @Override public Float get(int index) {
+          return getMeasure(index);
+        }
+
+        @Override public Float set(int index, Float similarity) {
+          Float rc = getMeasure(index);
+          put(index, similarity);
+          return rc;
+        }
+
+        @Override public int size() {
+          return store_.getStrategyCount();
+        }
+      };
+    }
+
+
+    /**
+     * Gives a single measure of the cell, without boxing it.
+     *
+     * @param  index  Index of strategy whose measure is wanted.
+     * @return  Measure of the strategy.
+     * @category  getter
+     */
+    public float getMeasure(int index) {
+      return store_.get(index, slot_);
+    }
+
+
+    /**
+     * Gives the cell its own copy of its measures, so that they may be altered
+     * without affecting any cell they are shared with. The row the cell was
+     * last placed in, or taken from, is given the copy too.
+     *
+     * @category  setter
+     */
+    public void unshareMeasures() {
+      int old_slot = slot_;
+      slot_ = store_.copy(slot_);
+
+      if (row_ != null && pos_ < row_.size_ && row_.slots_[pos_] == old_slot)
+        row_.slots_[pos_] = slot_;
     }
 
 
@@ -196,7 +422,7 @@ public class MeasureMatrix
      *
      */
     public void put(int index, float similarity) {
-      measures_.add(index, similarity);
+      store_.set(index, slot_, similarity);
     }
 
 
@@ -219,7 +445,7 @@ public class MeasureMatrix
 
         for (int i = 0; i < strategies_.size(); ++i)
           Debug.dbg.format("%s = %.3f   ", strategies_.get(i).getLabel(),
-              measures_.get(i));
+              getMeasure(i));
 
         Debug.dbg.println();
       }
@@ -229,17 +455,28 @@ public class MeasureMatrix
     // Instance data --------------------------------------------------------
     private EcoreExtra from_element_;
     private EcoreExtra to_element_;
-    private List<Float> measures_ = new ArrayList<Float>();
+
+    /** Slot of the cell's measures in the matrix store. */
+    private int slot_;
+
+    /** Row and position the cell was last placed in, or taken from. */
+    private MeasureRow row_;
+    private int pos_;
     // End instance data ----------------------------------------------------
   }
 
 
-  /**                                                                     DOCDO: Provide class overview.
+  /**
+   * Row of the matrix, i.e., the cells measured from one element, by ID of
+   * the element measured to, in the order they were put. Each cell costs the
+   * row two ints: the matrix column of its element and its store slot.
+   * Cells are looked up by binary search while put in column order, and by
+   * a hash table of positions, made when first needed, otherwise.
    *
    * @since   v0.17 - Mar 5, 2010
    * @author  Stephen Barrett
    */
-  public class MeasureRow extends LinkedHashMap<String, MeasureCell> {
+  public class MeasureRow extends AbstractMap<String, MeasureCell> {
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
     /**                                                                   DOCDO: Provide constructor overview.
      *
@@ -261,21 +498,24 @@ public class MeasureMatrix
     }
 
 
+    @Override public MeasureCell get(Object to_id) {
+      int pos = (to_id instanceof String) ? find((String) to_id) : -1;
+      return (pos >= 0) ? new MeasureCell(this, pos) : null;
+    }
+
+
     /**                                                                   DOCDO: Provide method overview.
      *
      * @param  to_element  Column element that measurement is take <i>to</i>.
      * @return  What is returned by the method.
      */
     public MeasureCell put(EcoreExtra to_element) {
-      String to_id = to_element.getId();
-      MeasureCell cell;
+      int pos = find(to_element.getId());
 
-      if (!containsKey(to_id))
-        cell = new MeasureCell(from_element_, to_element);
-      else
-        cell = get(to_id);
+      if (pos >= 0)
+        return new MeasureCell(this, pos);
 
-      return put(cell);
+      return put(new MeasureCell(from_element_, to_element));
     }
 
 
@@ -290,6 +530,180 @@ public class MeasureMatrix
     }
 
 
+    @Override public MeasureCell put(String to_id, MeasureCell cell) {
+      int col = columnOf(cell.to_element_);
+      int pos = find(col);
+      MeasureCell rc = null;
+
+      if (pos >= 0) {
+        rc = new MeasureCell(this, pos);
+        slots_[pos] = cell.slot_;
+      }
+      else
+        pos = append(col, cell.slot_);
+
+      cell.row_ = this;
+      cell.pos_ = pos;
+      return rc;
+    }
+
+
+    @Override public MeasureCell remove(Object to_id) {
+      int pos = (to_id instanceof String) ? find((String) to_id) : -1;
+
+      if (pos < 0)
+        return null;
+
+      MeasureCell rc = new MeasureCell(this, pos);
+      removeAt(pos);
+      return rc;
+    }
+
+
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
+    @Override public boolean containsKey(Object to_id) {
+      return (to_id instanceof String) && find((String) to_id) >= 0;
+    }
+
+
+    @Override public int size() {
+      return size_;
+    }
+
+
+    @Override public void clear() {
+      size_ = 0;
+      is_ordered_ = true;
+      table_ = null;
+    }
+
+
+    @Override public Collection<MeasureCell> values() {
+      return new AbstractCollection<MeasureCell>() {
+        @Override public Iterator<MeasureCell> iterator() {
+          return new PositionIterator<MeasureCell>() {
+            @Override MeasureCell at(int pos) {
+              return new MeasureCell(MeasureRow.this, pos);
+            }
+          };
+        }
+
+        @Override public int size() {
+          return size_;
+        }
+      };
+    }
+
+
+    @Override public Set<Entry<String, MeasureCell>> entrySet() {
+      return new AbstractSet<Entry<String, MeasureCell>>() {
+        @Override public Iterator<Entry<String, MeasureCell>> iterator() {
+          return new PositionIterator<Entry<String, MeasureCell>>() {
+            @Override Entry<String, MeasureCell> at(int pos) {
+              MeasureCell cell = new MeasureCell(MeasureRow.this, pos);
+              return new SimpleImmutableEntry<String, MeasureCell>(
+                  cell.to_element_.getId(), cell);
+            }
+          };
+        }
+
+        @Override public int size() {
+          return size_;
+        }
+      };
+    }
+
+
+    //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+    private int find(String to_id) {
+      Integer col = column_ids_.get(to_id);
+      return (col != null) ? find(col) : -1;
+    }
+
+
+    /**
+     * Gives the position of the cell of a matrix column, -1 if none.
+     */
+    private int find(int col) {
+      if (size_ == 0)
+        return -1;
+
+      if (cols_[size_ - 1] == col)  // Cell just put, as when measuring.
+        return size_ - 1;
+
+      if (is_ordered_) {
+        int pos = Arrays.binarySearch(cols_, 0, size_, col);
+        return (pos >= 0) ? pos : -1;
+      }
+
+      if (table_ == null)
+        buildTable();
+
+      int mask = table_.length - 1;
+      for (int i = hash(col) & mask; table_[i] != 0; i = (i + 1) & mask) {
+        if (cols_[table_[i] - 1] == col)
+          return table_[i] - 1;
+      }
+
+      return -1;
+    }
+
+
+    private int append(int col, int slot) {
+      if (size_ == cols_.length) {
+        int capacity = Math.max(4, size_ + (size_ >> 1));
+        cols_ = Arrays.copyOf(cols_, capacity);
+        slots_ = Arrays.copyOf(slots_, capacity);
+      }
+
+      if (size_ > 0 && col < cols_[size_ - 1])
+        is_ordered_ = false;
+
+      cols_[size_] = col;
+      slots_[size_] = slot;
+      int pos = size_++;
+
+      if (table_ != null) {
+        if (2 * size_ > table_.length)
+          buildTable();
+        else
+          insert(pos);
+      }
+
+      return pos;
+    }
+
+
+    private void removeAt(int pos) {
+      System.arraycopy(cols_, pos + 1, cols_, pos, size_ - pos - 1);
+      System.arraycopy(slots_, pos + 1, slots_, pos, size_ - pos - 1);
+      --size_;
+      table_ = null;  // Positions have shifted.
+    }
+
+
+    private void buildTable() {
+      int capacity = 8;
+      while (capacity < 2 * size_)
+        capacity <<= 1;
+
+      table_ = new int[capacity];
+      for (int pos = 0; pos < size_; ++pos)
+        insert(pos);
+    }
+
+
+    private void insert(int pos) {
+      int mask = table_.length - 1;
+      int i = hash(cols_[pos]) & mask;
+
+      while (table_[i] != 0)
+        i = (i + 1) & mask;
+
+      table_[i] = pos + 1;
+    }
+
+
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ state accessors
     /**                                                                   DOCDO: Provide method overview.
      *
@@ -313,7 +727,53 @@ public class MeasureMatrix
 
     // Instance data --------------------------------------------------------
     private EcoreExtra from_element_;
+
+    /** Matrix column and store slot of each cell, in the order put. */
+    private int[] cols_ = EMPTY;
+    private int[] slots_ = EMPTY;
+    private int size_;
+
+    /** Whether columns have been put in increasing order. */
+    private boolean is_ordered_ = true;
+
+    /** Cell positions plus one, hashed by column; null until needed. */
+    private int[] table_;
     // End instance data ----------------------------------------------------
+
+
+    // Nested types ---------------------------------------------------------
+    /**
+     * Iterator over the positions of the row, able to remove the cell last
+     * given.
+     */
+    private abstract class PositionIterator<T> implements Iterator<T> {
+      abstract T at(int pos);
+
+
+      @Override public boolean hasNext() {
+        return next_ < size_;
+      }
+
+
+      @Override public T next() {
+        if (next_ >= size_)
+          throw new NoSuchElementException();
+
+        return at(next_++);
+      }
+
+
+      @Override public void remove() {
+        if (next_ == 0)
+          throw new IllegalStateException();
+
+        removeAt(--next_);
+      }
+
+
+      private int next_;
+    }
+    // End nested types -----------------------------------------------------
   }
 
 
@@ -334,8 +794,8 @@ public class MeasureMatrix
       int rc;
 
       // Swap order of comparison to get high to low sorting.
-      rc = rhs.measures_.get(strategy_idx_).
-          compareTo(lhs.measures_.get(strategy_idx_));
+      rc = Float.compare(rhs.getMeasure(strategy_idx_),
+          lhs.getMeasure(strategy_idx_));
 
       // Measure equality is not duplication! Prefer insertion ordering.
       return (rc != 0) ? rc : 1;
@@ -365,8 +825,8 @@ public class MeasureMatrix
 
       int rc;
       // Swap order of comparison to get high to low sorting.
-      rc = rhs_it.next().measures_.get(0)
-          .compareTo(lhs_it.next().measures_.get(0));
+      rc = Float.compare(rhs_it.next().getMeasure(0),
+          lhs_it.next().getMeasure(0));
 
       // Measure equality is not duplication! Prefer insertion ordering.
       return (rc != 0) ? rc : 1;
@@ -0,0 +1,359 @@
+/* --------------------------------------------------------------------------+
+   MeasureStore.java - Compact primitive storage for the similarity measures
+     of a measure matrix.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Boxing every measure of every cell costs several times the four bytes the
+   measure needs. Measures are instead kept in flat float arrays, one run per
+   strategy, addressed by an integer cell slot. Storage grows a chunk at a
+   time so no large copies are made as a matrix fills, and the largest models
+   may keep their chunks off of the Java heap altogether.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.match;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Slot addressed storage of the per-strategy measures of matrix cells. Each
+ * cell is allocated a slot, whose measures are all zero until set.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+abstract public class MeasureStore {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Constructs an empty store.
+   *
+   * @param  strategy_ct  Number of measures kept for each slot.
+   */
+  protected MeasureStore(int strategy_ct) {
+    strategy_ct_ = strategy_ct;
+  }
+
+
+  /**
+   * Constructs an empty store of the given kind.
+   *
+   * @param  storage  Where measures are to be kept.
+   * @param  strategy_ct  Number of measures kept for each slot.
+   * @return  New measure store.
+   */
+  static public MeasureStore create(Storage storage, int strategy_ct) {
+    return (storage == Storage.DIRECT)
+        ? new DirectStore(strategy_ct) : new HeapStore(strategy_ct);
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the measure of a strategy for the cell in the given slot.
+   *
+   * @param  strategy_idx  Index of strategy whose measure is wanted.
+   * @param  slot  Slot of the cell.
+   * @return  Measure of the strategy.
+   */
+  abstract public float get(int strategy_idx, int slot);
+
+
+  /**
+   * Assigns the measure of a strategy for the cell in the given slot.
+   *
+   * @param  strategy_idx  Index of strategy whose measure is set.
+   * @param  slot  Slot of the cell.
+   * @param  measure  Measure of the strategy.
+   */
+  abstract public void set(int strategy_idx, int slot, float measure);
+
+
+  /**
+   * Gives the number of measures kept for each slot.
+   *
+   * @return  Number of strategies.
+   * @category  getter
+   */
+  public int getStrategyCount() {
+    return strategy_ct_;
+  }
+
+
+  /**
+   * Gives the number of slots allocated.
+   *
+   * @return  Number of allocated slots.
+   * @category  getter
+   */
+  public int size() {
+    return size_;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Allocates the slot for a new cell, with all of its measures zero.
+   *
+   * @return  Slot of the new cell.
+   */
+  public int allocate() {
+    if (size_ == chunk_ct_ << CHUNK_BITS) {
+      addChunk(chunk_ct_);
+      ++chunk_ct_;
+    }
+
+    return size_++;
+  }
+
+
+  /**
+   * Allocates the slot for a new cell, with measures copied from another.
+   *
+   * @param  slot  Slot of cell to copy measures from.
+   * @return  Slot of the new cell.
+   */
+  public int copy(int slot) {
+    int rc = allocate();
+
+    for (int i = 0; i < strategy_ct_; ++i)
+      set(i, rc, get(i, slot));
+
+    return rc;
+  }
+
+
+  /**
+   * Scores every slot anew as the weighted sum of squares of its measures,
+   * over the sum of weights, and sets it as the slot's first measure. Only
+   * strategies of positive weight count. Slots are scored a chunk at a time,
+   * one strategy run after another, so the sums are taken over contiguous
+   * arrays. The result is the same as scoring each slot in strategy order.
+   *
+   * @param  weights  Weight of each strategy; that of the first is unused.
+   * @param  exact_idx  Strategy whose measure of 1.0 forces a score of 1.0,
+   * 0 = none.
+   */
+  public void score(float[] weights, int exact_idx) {
+    float[] ttl_scores = new float[CHUNK_SIZE];
+    float[] run = new float[CHUNK_SIZE];
+    float max_score = 0;
+
+    for (int i = 1; i < strategy_ct_; ++i) {
+      if (weights[i] > 0)
+        max_score += weights[i];
+    }
+
+    for (int chunk_idx = 0; chunk_idx < chunk_ct_; ++chunk_idx) {
+      int run_ln = Math.min(CHUNK_SIZE, size_ - (chunk_idx << CHUNK_BITS));
+      Arrays.fill(ttl_scores, 0, run_ln, 0);
+
+      for (int i = 1; i < strategy_ct_; ++i) {
+        float weight = weights[i];
+
+        if (weight > 0) {
+          getRun(chunk_idx, i, run, run_ln);
+
+          for (int j = 0; j < run_ln; ++j)
+            ttl_scores[j] += run[j] * run[j] * weight;
+        }
+      }
+
+      for (int j = 0; j < run_ln; ++j)
+        ttl_scores[j] = (max_score != 0) ? ttl_scores[j] / max_score : 0;
+
+      if (exact_idx > 0) {
+        getRun(chunk_idx, exact_idx, run, run_ln);
+
+        for (int j = 0; j < run_ln; ++j) {
+          if (run[j] == 1.0f)
+            ttl_scores[j] = 1.0f;
+        }
+      }
+
+      putRun(chunk_idx, 0, ttl_scores, run_ln);
+    }
+  }
+
+
+  /**
+   * Copies out the measures of a strategy for the leading slots of a chunk.
+   *
+   * @param  chunk_idx  Index of chunk to copy from.
+   * @param  strategy_idx  Index of strategy whose measures are copied.
+   * @param  run  Array to copy measures into.
+   * @param  run_ln  Number of slots to copy.
+   */
+  abstract protected void getRun(int chunk_idx, int strategy_idx, float[] run,
+      int run_ln);
+
+
+  /**
+   * Copies in the measures of a strategy for the leading slots of a chunk.
+   *
+   * @param  chunk_idx  Index of chunk to copy to.
+   * @param  strategy_idx  Index of strategy whose measures are copied.
+   * @param  run  Array to copy measures from.
+   * @param  run_ln  Number of slots to copy.
+   */
+  abstract protected void putRun(int chunk_idx, int strategy_idx, float[] run,
+      int run_ln);
+
+
+  /**
+   * Makes room for another chunk of slots.
+   *
+   * @param  chunk_idx  Index of chunk to add.
+   */
+  abstract protected void addChunk(int chunk_idx);
+
+
+  // Instance data ----------------------------------------------------------
+  protected final int strategy_ct_;
+  private int chunk_ct_;
+  private int size_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  /** Slots per chunk, as a power of two. */
+  static protected final int CHUNK_BITS = 14;
+  static protected final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  static protected final int CHUNK_MASK = CHUNK_SIZE - 1;
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Tag values to indicate where measures are kept. HEAP = Java float arrays,
+   * DIRECT = native byte buffers, outside of the garbage collected heap.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static public enum Storage { HEAP, DIRECT }
+
+
+  /**
+   * Measure store backed by float arrays. Each chunk holds the measures of
+   * one strategy after those of the other, i.e., in strategy major order.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static public class HeapStore extends MeasureStore {
+    public HeapStore(int strategy_ct) {
+      super(strategy_ct);
+    }
+
+
+    @Override public float get(int strategy_idx, int slot) {
+      return chunks_[slot >>> CHUNK_BITS]
+          [(strategy_idx << CHUNK_BITS) + (slot & CHUNK_MASK)];
+    }
+
+
+    @Override public void set(int strategy_idx, int slot, float measure) {
+      chunks_[slot >>> CHUNK_BITS]
+          [(strategy_idx << CHUNK_BITS) + (slot & CHUNK_MASK)] = measure;
+    }
+
+
+    @Override protected void addChunk(int chunk_idx) {
+      if (chunk_idx == chunks_.length) {
+        float[][] chunks = new float[Math.max(4, chunks_.length * 2)][];
+        System.arraycopy(chunks_, 0, chunks, 0, chunks_.length);
+        chunks_ = chunks;
+      }
+
+      chunks_[chunk_idx] = new float[strategy_ct_ << CHUNK_BITS];
+    }
+
+
+    @Override protected void getRun(int chunk_idx, int strategy_idx,
+        float[] run, int run_ln) {
+      System.arraycopy(chunks_[chunk_idx], strategy_idx << CHUNK_BITS,
+          run, 0, run_ln);
+    }
+
+
+    @Override protected void putRun(int chunk_idx, int strategy_idx,
+        float[] run, int run_ln) {
+      System.arraycopy(run, 0, chunks_[chunk_idx], strategy_idx << CHUNK_BITS,
+          run_ln);
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private float[][] chunks_ = new float[0][];
+    // End instance data ----------------------------------------------------
+  }
+
+
+  /**
+   * Measure store backed by direct byte buffers. Chunks are laid out as with
+   * the heap store, but live in native memory.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static public class DirectStore extends MeasureStore {
+    public DirectStore(int strategy_ct) {
+      super(strategy_ct);
+    }
+
+
+    @Override public float get(int strategy_idx, int slot) {
+      return chunks_[slot >>> CHUNK_BITS]
+          .get((strategy_idx << CHUNK_BITS) + (slot & CHUNK_MASK));
+    }
+
+
+    @Override public void set(int strategy_idx, int slot, float measure) {
+      chunks_[slot >>> CHUNK_BITS]
+          .put((strategy_idx << CHUNK_BITS) + (slot & CHUNK_MASK), measure);
+    }
+
+
+    @Override protected void addChunk(int chunk_idx) {
+      if (chunk_idx == chunks_.length) {
+        FloatBuffer[] chunks =
+            new FloatBuffer[Math.max(4, chunks_.length * 2)];
+        System.arraycopy(chunks_, 0, chunks, 0, chunks_.length);
+        chunks_ = chunks;
+      }
+
+      chunks_[chunk_idx] = ByteBuffer
+          .allocateDirect((strategy_ct_ << CHUNK_BITS) * 4)
+          .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+
+    @Override protected void getRun(int chunk_idx, int strategy_idx,
+        float[] run, int run_ln) {
+      FloatBuffer chunk = chunks_[chunk_idx].duplicate();
+      chunk.position(strategy_idx << CHUNK_BITS);
+      chunk.get(run, 0, run_ln);
+    }
+
+
+    @Override protected void putRun(int chunk_idx, int strategy_idx,
+        float[] run, int run_ln) {
+      FloatBuffer chunk = chunks_[chunk_idx].duplicate();
+      chunk.position(strategy_idx << CHUNK_BITS);
+      chunk.put(run, 0, run_ln);
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private FloatBuffer[] chunks_ = new FloatBuffer[0];
+    // End instance data ----------------------------------------------------
+  }
+  // End nested types -------------------------------------------------------
+}
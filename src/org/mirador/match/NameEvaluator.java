@@ -13,9 +13,7 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
 import ca.dsrg.mirador.model.EcoreExtra;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 
 
 /**
@@ -43,6 +41,40 @@ public class NameEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Name signatures kept with elements are immutable, so evaluation may run
+   * concurrently.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
+  /**
+   * Names are all there is to the measure, so it may be cached.
+   *
+   * @return  true = cacheable
+   */
+  @Override public boolean isCacheable() {
+    return true;
+  }
+
+
+  /**
+   * Version 2 measures by the packed letter pair signatures kept with
+   * elements.
+   *
+   * @return  Version of the measure.
+   * @category  getter
+   */
+  @Override public int getCacheVersion() {
+    return 2;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
   /**
    * Evaluates lexical similarity of names from one model element to another. As
@@ -51,7 +83,9 @@ public class NameEvaluator extends SimilarityEvaluator {
    *
    * Similarity is based on letter pairs within the words that make up a name.
    * For model element names, which are typically expressed in camel case, the
-   * words are separated by capital letters, or "humps".
+   * words are separated by capital letters, or "humps". The pairs of each name
+   * are worked out once, and kept with the element, so that evaluation itself
+   * is a merge of two sorted arrays.
    *
    * @param  from_element  Model element <i>from</i> which to measure.
    * @param  to_element  Model element <i>to</i> which to measure.
@@ -60,29 +94,33 @@ public class NameEvaluator extends SimilarityEvaluator {
    */
   @Override public float evaluate(EcoreExtra from_element,
       EcoreExtra to_element) { // TODO:3 Replace with Simmetrics.
-    // Obtain adjacent character pairs for element name to measure from.
-    List<String> fm_pairs = pairNameCharacters(from_element.getName());
-    if (fm_pairs.isEmpty() && from_element.getName() != null)
-      fm_pairs.add(from_element.getName());
-
-    // Obtain adjacent character pairs for element name to measure to.
-    List<String> to_pairs = pairNameCharacters(to_element.getName());
-    if (to_pairs.isEmpty() && to_element.getName() != null)
-      to_pairs.add(to_element.getName());
-
+    NameSignature fm_sig = signName(from_element);
+    NameSignature to_sig = signName(to_element);
 
-    int pair_ct = fm_pairs.size() + to_pairs.size();  // Total pairs in name.
+    int[] fm_pairs = fm_sig.pairs_;
+    int[] to_pairs = to_sig.pairs_;
+    int pair_ct = fm_sig.getPairCount() + to_sig.getPairCount();
     int match_ct = 0;  // Number of name pairs that match.
 
-    // Tally pairs in the "to" list that match those in the "from" list.
-    for (String fm_pair : fm_pairs) {
-      for (Iterator<String> to_it = to_pairs.iterator(); to_it.hasNext();) {
-        String to_pair = to_it.next();
-
-        if (fm_pair.equals(to_pair)) { // Pairs are identical.
-          ++match_ct;      // Increment count of matched pairs, and
-          to_it.remove();  //   remove the "to" pair from further consideration.
-          break;
+    if (fm_sig.isWhole() || to_sig.isWhole()) {
+      // Names without pairs are taken whole, and only ever match each other.
+      if (fm_sig.isWhole() && to_sig.isWhole()
+          && fm_sig.name_.equals(to_sig.name_))
+        match_ct = 1;
+    }
+    else { // Tally pairs common to both sorted lists.
+      int i = 0;
+      int j = 0;
+
+      while (i < fm_pairs.length && j < to_pairs.length) {
+        if (fm_pairs[i] < to_pairs[j])
+          ++i;
+        else if (fm_pairs[i] > to_pairs[j])
+          ++j;
+        else { // Pairs are identical, so each is consumed.
+          ++match_ct;
+          ++i;
+          ++j;
         }
       }
     }
@@ -93,112 +131,171 @@ public class NameEvaluator extends SimilarityEvaluator {
 
 
   /**
-   * Collects all pairs of adjacent characters found in an element name.
+   * Gives the character pair signature of an element's name, working it out
+   * only if the name has changed since last asked.
    *
-   * @param  name  Element name to obtain character pairs for.
-   * @return  List of all word character pairs in the name.
+   * @param  extra  Element to obtain name signature of.
+   * @return  Signature of the current element name.
    */
-  private List<String> pairNameCharacters(String name) {
-    List<String> name_pairs = new ArrayList<String>();
-    List<String> words = tokenizeName(name);  // Break out camel cased "words".
-
-    // Extract all adjacent character pairs from each word of element name.
-    for (String word : words) {
-      List<String> word_pairs = pairWordCharacters(word);
-
-      // Add word character pairs to name's collection of all pairs.
-      for (String pair : word_pairs)
-        name_pairs.add(pair);
-    }
-
-    return name_pairs;
-  }
-
-
-  /**
-   * Collects all pairs of adjacent characters found in a word.
-   *
-   * @param  word  Word of element name to obtain character pairs for.
-   * @return  List of all character pairs in the word.
-   */
-  private List<String> pairWordCharacters(String word) {
-    List<String> word_pairs = new ArrayList<String>();
-
-    // Extract all adjacent character pairs from word.
-    for (int i = 0; i < word.length() - 1; ++i) {
-      word_pairs.add(word.substring(i, i + 2));  // Save word character pair.
+  static NameSignature signName(EcoreExtra extra) {
+    String name = extra.getName();
+    Object kept = extra.getNameSignature();
+    NameSignature rc =
+        (kept instanceof NameSignature) ? (NameSignature) kept : null;
+
+    if (rc == null || rc.name_ != name) {
+      rc = new NameSignature(name, pairNameCharacters(name));
+      extra.setNameSignature(rc);
     }
 
-    return word_pairs;
+    return rc;
   }
 
 
   /**
-   * Break camel cased element name into "words" as delimited by the "humps"
-   * of the name.
+   * Collects all pairs of adjacent characters found within the camel cased
+   * "words" of an element name. Each pair is packed into an int, with the
+   * first character in the high half, and the pairs sorted.
    *
-   * @param  name  Element name to tokenize.
-   * @return  List of words in the name.
+   * @param  name  Element name to obtain character pairs for.
+   * @return  Sorted packed character pairs, empty if there are none.
    */
-  private List<String> tokenizeName(String name) {
-    List<String> words = new ArrayList<String>();
-    StringBuilder name_buf = new StringBuilder(name);
-    StringBuilder word_buf = null;
-    char ch;
+  static private int[] pairNameCharacters(String name) {
+    if (name == null)
+      return NO_PAIRS;
+
+    int name_ln = name.length();
+    int[] pairs = new int[Math.max(0, name_ln - 1)];
+    int pair_ct = 0;
+    int start = -1;  // Start of current word, -1 = between words.
     boolean old_case = false;  // false = lower case, true = upper case.
     boolean new_case = false;  // false = lower case, true = upper case.
+    int i = 0;
 
-    // Eat away at name to build up words character by character.
-    while (name_buf.length() > 0) {
-      ch = name_buf.charAt(0);  // Get character at front of name.
+    // Scan name to mark out words by changes in character case.
+    while (i < name_ln) {
+      char ch = name.charAt(i);
       new_case = ('A' <= ch && ch <= 'Z');
 
       // Test word boundaries.
-      if (word_buf == null) { // At start of new word.
-        word_buf = new StringBuilder();  // Make area for collecting characters.
+      if (start < 0) { // At start of new word.
+        start = i;
       }
-      else if (new_case != old_case){
+      else if (new_case != old_case) {
         if (new_case == true) { // Change to upper case.
-          words.add(word_buf.toString());  // Add finished word to list.
-          word_buf = null;  // Invalidate word buffer.
-          continue;  // Start fetching next word.
+          pair_ct = pairWordCharacters(name, start, i, pairs, pair_ct);
+          start = -1;
+          continue;  // Start next word with this character.
         }
-        else if (word_buf.length() > 1){ // Change to lower case.
-          char last_ch = word_buf.charAt(word_buf.length() - 1);
-          words.add((word_buf.deleteCharAt(word_buf.length() - 1)).toString());
-          word_buf = new StringBuilder();
-          word_buf.append(last_ch);
-          continue;  // Start fetching next word.
+        else if (i - start > 1) { // Change to lower case.
+          pair_ct = pairWordCharacters(name, start, i - 1, pairs, pair_ct);
+          start = i - 1;
+          continue;  // Start next word with last capital.
         }
       }
 
-      name_buf.deleteCharAt(0);  // Remove character from front of name,
-      word_buf.append(ch);       //   and store it in current word buffer.
+      ++i;
       old_case = new_case;
     }
 
-    //char end_ch = word_buf.charAt(word_buf.length() - 1);
-
-//    while (name_buf.length() > 0) {
-//      ch = name_buf.charAt(0);  // Get character at front of name.
-//
-//      // Test word boundaries.
-//      if (word_buf == null) { // At start of new word.
-//        word_buf = new StringBuilder();  // Make area for collecting characters.
-//      }
-//      else if ('A' <= ch && ch <= 'Z') { // Just past end of last word.
-//        words.add(word_buf.toString());  // Add finished word to list.
-//        word_buf = null;  // Invalidate word buffer,
-//        continue;         //   and start fetching next word.
-//      }
-//
-//      name_buf.deleteCharAt(0);  // Remove character from front of name,
-//      word_buf.append(ch);       //   and store it in current word buffer.
-//    }
-
-    if (word_buf != null)  // One last word buffer.
-      words.add(word_buf.toString());  // Append to word list.
-
-    return words;
+    if (start >= 0)  // One last word.
+      pair_ct = pairWordCharacters(name, start, name_ln, pairs, pair_ct);
+
+    if (pair_ct == 0)
+      return NO_PAIRS;
+
+    int[] rc = (pair_ct == pairs.length) ? pairs : Arrays.copyOf(pairs, pair_ct);
+    Arrays.sort(rc);
+    return rc;
+  }
+
+
+  /**
+   * Packs all pairs of adjacent characters found in a word of a name.
+   *
+   * @param  name  Element name holding the word.
+   * @param  start  Index of first character of the word.
+   * @param  end  Index just past last character of the word.
+   * @param  pairs  Packed pairs to append to.
+   * @param  pair_ct  Number of pairs already held.
+   * @return  Number of pairs held after those of the word.
+   */
+  static private int pairWordCharacters(String name, int start, int end,
+      int[] pairs, int pair_ct) {
+    for (int i = start; i < end - 1; ++i)
+      pairs[pair_ct++] = (name.charAt(i) << 16) | name.charAt(i + 1);
+
+    return pair_ct;
+  }
+
+
+  // Class data -------------------------------------------------------------
+  static private final int[] NO_PAIRS = new int[0];
+  // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Character pairs of an element name, as worked out for a given name. Once
+   * made, a signature does not change, so may be shared between threads.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static public final class NameSignature {
+    private NameSignature(String name, int[] pairs) {
+      name_ = name;
+      pairs_ = pairs;
+    }
+
+
+    /**
+     * Gives the name the signature was worked out for.
+     *
+     * @return  Element name, possibly null.
+     * @category  getter
+     */
+    String getName() {
+      return name_;
+    }
+
+
+    /**
+     * Gives the packed character pairs of the name, sorted.
+     *
+     * @return  Name pairs, empty if none.
+     * @category  getter
+     */
+    int[] getPairs() {
+      return pairs_;
+    }
+
+
+    /**
+     * Gives the number of pairs the name counts for. A name with no pairs
+     * counts as a single whole, unless there is no name at all.
+     *
+     * @return  Number of pairs in the name.
+     */
+    int getPairCount() {
+      return isWhole() ? 1 : pairs_.length;
+    }
+
+
+    /**
+     * Tells if the name is too short to pair, and so is taken whole.
+     *
+     * @return  true = name taken whole
+     */
+    boolean isWhole() {
+      return pairs_.length == 0 && name_ != null;
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final String name_;
+    private final int[] pairs_;
+    // End instance data ----------------------------------------------------
   }
+  // End nested types -------------------------------------------------------
 }
@@ -0,0 +1,602 @@
+/* --------------------------------------------------------------------------+
+   SimilarityCache.java - On-disk store of similarity measures, kept across
+     merge sessions.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Repeated merges of the same branches meet mostly the same element pairs.
+   Measures of cacheable evaluators are kept in a binary hash table, keyed by
+   a hash of the content of both elements and of the evaluator, with the
+   version of its measure, so a pair whose elements are unchanged is never
+   evaluated twice. The table is laid out as it is searched, and so is mapped
+   into memory as is, not read.
+
+   The table is bounded in size. Once full, measures of earlier sessions are
+   dropped first; those of the session being saved are dropped only when
+   they alone overfill it, the excess going unsaved. A save is written
+   aside and swapped in. Where a file still mapped cannot be replaced (on
+   Windows), it is written over in place instead: the table never shrinks,
+   so the file never need be cut short under the mapping.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EGenericType;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.ETypedElement;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Persistent cache of similarity measures, by content of the measured pair.
+ * Lookups may be made concurrently; measures are added, and the cache saved,
+ * on the calling thread only.
+ *
+ * The file holds a header of magic number, slot count, and entry count,
+ * followed by the keys of all slots, then their measures. Slots are searched
+ * by linear probing, a key of zero marking an empty slot.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class SimilarityCache {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Opens the cache kept in a file, mapping in any measures saved before. A
+   * missing file is created when first saved. A file that is not a cache is
+   * left untouched, and nothing is saved to it.
+   *
+   * @param  cache_file  File the cache is kept in.
+   */
+  public SimilarityCache(File cache_file) {
+    this(cache_file, MAX_ENTRIES);
+  }
+
+
+  /**
+   * Opens the cache kept in a file, holding at most a given number of
+   * measures.
+   *
+   * @param  cache_file  File the cache is kept in.
+   * @param  max_entry_ct  Greatest number of measures saved.
+   */
+  public SimilarityCache(File cache_file, int max_entry_ct) {
+    cache_file_ = cache_file;
+    max_entry_ct_ = max_entry_ct;
+    is_writable_ = true;
+
+    if (cache_file.exists()) {
+      try {
+        RandomAccessFile fin = new RandomAccessFile(cache_file, "r");
+
+        try {
+          FileChannel channel = fin.getChannel();
+          MappedByteBuffer buffer =
+              channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          is_writable_ = mapTable(buffer);
+        }
+        finally {
+          fin.close();  // The mapping outlives the channel.
+        }
+      }
+      catch (IOException ex) {
+        System.err.println("!!! Mirador - failure !!!\n");  // TODO:3 Replace catch stub.
+        ex.printStackTrace();
+        is_writable_ = false;
+      }
+    }
+
+    Debug.dbg.format("Similarity cache: %d measures loaded from %s\n",
+        saved_ct_, cache_file);
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the cached measure of an evaluator for a pair of elements.
+   *
+   * @param  evaluator_key  Key of the evaluator, from <i>evaluatorKey</i>.
+   * @param  pair_hash  Hash of the pair, from <i>pairHash</i>.
+   * @return  Cached measure, NaN = none cached.
+   */
+  public float get(long evaluator_key, long pair_hash) {
+    float rc = Float.NaN;
+
+    if (pair_hash != 0) {
+      long key = entryKey(evaluator_key, pair_hash);
+      rc = probe(saved_keys_, saved_measures_, key);
+
+      if (Float.isNaN(rc) && added_keys_ != null)
+        rc = probe(added_keys_, added_measures_, key);
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Adds the measure of an evaluator for a pair of elements, to be saved with
+   * the cache.
+   *
+   * @param  evaluator_key  Key of the evaluator, from <i>evaluatorKey</i>.
+   * @param  pair_hash  Hash of the pair, from <i>pairHash</i>.
+   * @param  measure  Measure of the evaluator.
+   */
+  public void put(long evaluator_key, long pair_hash, float measure) {
+    if (pair_hash == 0)
+      return;
+
+    long key = entryKey(evaluator_key, pair_hash);
+
+    if (added_keys_ == null || (added_ct_ + 1) * 2 > added_keys_.length)
+      growAdded();
+
+    if (insert(added_keys_, added_measures_, key, measure))
+      ++added_ct_;
+  }
+
+
+  /**
+   * Gives the number of measures added since the cache was opened or saved.
+   *
+   * @return  Number of unsaved measures.
+   * @category  getter
+   */
+  public int getAddedCount() {
+    return added_ct_;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Gives the key of an evaluator, by its class and the version of its
+   * measure.
+   *
+   * @param  evaluator  Evaluator whose measures are cached.
+   * @return  Key of the evaluator.
+   */
+  static public long evaluatorKey(SimilarityEvaluator evaluator) {
+    long hash = hashString(FNV_OFFSET, evaluator.getClass().getName());
+    return hashString(hash, String.valueOf(evaluator.getCacheVersion()));
+  }
+
+
+  /**
+   * Hashes the content of the elements of the models to be measured,
+   * replacing any hashes taken before. Must be called before measuring, on
+   * the calling thread, as hashes are read concurrently thereafter.
+   *
+   * @param  from_model  Model whose elements are measured <i>from</i>.
+   * @param  to_model  Model whose elements are measured <i>to</i>.
+   */
+  public void hashContents(MiradorModel from_model, MiradorModel to_model) {
+    Map<EcoreExtra, Long> hashes = new IdentityHashMap<EcoreExtra, Long>();
+
+    for (MiradorModel model : new MiradorModel[] { from_model, to_model }) {
+      for (Iterator<EcoreExtra> it = model.extraIterator(); it.hasNext();) {
+        EcoreExtra extra = it.next();
+        hashes.put(extra, hashContent(extra));
+      }
+    }
+
+    hashes_ = hashes;
+  }
+
+
+  /**
+   * Gives the hash of the content of a pair of elements, by which measures of
+   * the pair are cached. Elements must have been hashed beforehand.
+   *
+   * @param  from_element  Model element <i>from</i> which measured.
+   * @param  to_element  Model element <i>to</i> which measured.
+   * @return  Hash of the pair, 0 = elements not hashed.
+   */
+  public long pairHash(EcoreExtra from_element, EcoreExtra to_element) {
+    Long from_hash = hashes_.get(from_element);
+    Long to_hash = hashes_.get(to_element);
+
+    if (from_hash == null || to_hash == null)
+      return 0;
+
+    // Mixed unevenly, so the hash depends on the direction of the pair.
+    long rc = mix(from_hash ^ mix(to_hash));
+    return (rc != 0) ? rc : 1;
+  }
+
+
+  /**
+   * Saves the cache, merging the measures added with those saved before, and
+   * keeps the saved table for further lookups. Should the merge hold more
+   * measures than the cache may, those saved before are dropped first, then
+   * any added beyond the bound.
+   */
+  public void save() {
+    if (!is_writable_ || added_ct_ == 0)
+      return;
+
+    int entry_ct = Math.min(saved_ct_ + added_ct_, max_entry_ct_);
+    int slot_ct = Math.max(tableSize(entry_ct), saved_keys_.limit());
+    long[] keys = new long[slot_ct];
+    float[] measures = new float[slot_ct];
+    entry_ct = 0;
+
+    for (int i = 0; i < added_keys_.length && entry_ct < max_entry_ct_; ++i) {
+      long key = added_keys_[i];
+
+      if (key != 0 && insert(keys, measures, key, added_measures_[i]))
+        ++entry_ct;
+    }
+
+    for (int i = 0; i < saved_keys_.limit() && entry_ct < max_entry_ct_; ++i) {
+      long key = saved_keys_.get(i);
+
+      if (key != 0 && Float.isNaN(probe(keys, measures, key))
+          && insert(keys, measures, key, saved_measures_.get(i)))
+        ++entry_ct;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + slot_ct * 12);
+    buffer.putInt(MAGIC).putInt(slot_ct).putInt(entry_ct).putInt(0);
+    buffer.asLongBuffer().put(keys);
+    buffer.position(HEADER_SIZE + slot_ct * 8);
+    buffer.asFloatBuffer().put(measures);
+    buffer.position(0);
+
+    // Let go of the old mapping; its content is all in the new table.
+    mapTable(ByteBuffer.allocate(0));
+
+    // Write aside, then swap in, so a failed save leaves the old cache.
+    File temp_file = new File(cache_file_.getPath() + ".tmp");
+
+    try {
+      temp_file.delete();
+      writeTable(temp_file, buffer);
+
+      try {
+        Files.move(temp_file.toPath(), cache_file_.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+      catch (IOException ex) {
+        // Still mapped, so not to be replaced: overwrite, no shorter.
+        writeTable(cache_file_, buffer);
+        temp_file.delete();
+      }
+    }
+    catch (IOException ex) {
+      System.err.println("!!! Mirador - failure !!!\n");  // TODO:3 Replace catch stub.
+      ex.printStackTrace();
+      mapTable(buffer);  // Measures added are kept, to be saved again.
+      return;
+    }
+
+    mapTable(buffer);
+    added_keys_ = null;
+    added_measures_ = null;
+    added_ct_ = 0;
+
+    Debug.dbg.format("Similarity cache: %d measures saved to %s\n",
+        saved_ct_, cache_file_);
+  }
+
+
+  /**
+   * Writes a table over the start of a file, leaving the buffer as it was.
+   * The file is not cut short, as it may be mapped; the table is as long as
+   * any written before.
+   */
+  static private void writeTable(File file, ByteBuffer buffer)
+      throws IOException {
+    RandomAccessFile fout = new RandomAccessFile(file, "rw");
+    ByteBuffer content = buffer.duplicate();
+
+    try {
+      FileChannel channel = fout.getChannel();
+
+      while (content.hasRemaining())
+        channel.write(content, content.position());
+    }
+    finally {
+      fout.close();
+    }
+  }
+
+
+  /**
+   * Views a table laid out as in the cache file.
+   *
+   * @param  buffer  Table content, positioned at the header.
+   * @return  true = table valid, false = not a cache table
+   */
+  private boolean mapTable(ByteBuffer buffer) {
+    saved_keys_ = LongBuffer.allocate(0);
+    saved_measures_ = FloatBuffer.allocate(0);
+    saved_ct_ = 0;
+
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+      return false;
+
+    int slot_ct = buffer.getInt(4);
+    int entry_ct = buffer.getInt(8);
+
+    if (slot_ct <= 0 || (slot_ct & (slot_ct - 1)) != 0
+        || buffer.remaining() != HEADER_SIZE + (long) slot_ct * 12)
+      return false;
+
+    buffer.position(HEADER_SIZE);
+    saved_keys_ = buffer.slice().asLongBuffer();
+    saved_keys_.limit(slot_ct);
+    buffer.position(HEADER_SIZE + slot_ct * 8);
+    saved_measures_ = buffer.slice().asFloatBuffer();
+    saved_ct_ = entry_ct;
+
+    return true;
+  }
+
+
+  /**
+   * Doubles the table of added measures, or starts it.
+   */
+  private void growAdded() {
+    long[] keys =
+        new long[(added_keys_ == null) ? 1024 : added_keys_.length * 2];
+    float[] measures = new float[keys.length];
+
+    if (added_keys_ != null) {
+      for (int i = 0; i < added_keys_.length; ++i) {
+        if (added_keys_[i] != 0)
+          insert(keys, measures, added_keys_[i], added_measures_[i]);
+      }
+    }
+
+    added_keys_ = keys;
+    added_measures_ = measures;
+  }
+
+
+  /**
+   * Gives the key of the entry for an evaluator's measure of a pair.
+   */
+  static private long entryKey(long evaluator_key, long pair_hash) {
+    long key = mix(evaluator_key ^ pair_hash);
+    return (key != 0) ? key : 1;
+  }
+
+
+  /**
+   * Hashes what makes up an element: its ID, name, Ecore type, container, and
+   * the values of its features. Contained elements count by their ID, kind,
+   * and type; other elements by their ID, or by name if outside the model.
+   */
+  static private long hashContent(EcoreExtra extra) {
+    ENamedElement element = extra.getElement();
+    XMIResource xmi_model = (extra.getModel() != null)
+        ? extra.getModel().getXmiModel() : null;
+    long hash = FNV_OFFSET;
+
+    hash = hashString(hash, extra.getId());
+    hash = hashString(hash, String.valueOf(extra.getEcoreType()));
+
+    if (element == null)
+      return hash;
+
+    hash = hashString(hash, element.getName());
+    hash = hashString(hash, idOf(xmi_model, element.eContainer()));
+
+    for (EStructuralFeature feature
+        : element.eClass().getEAllStructuralFeatures()) {
+      if (feature.isDerived() || feature.isTransient()
+          || !element.eIsSet(feature))
+        continue;
+
+      boolean is_containment = feature instanceof EReference
+          && ((EReference) feature).isContainment();
+      Object value = element.eGet(feature);
+      hash = hashString(hash, feature.getName());
+
+      if (value instanceof List<?>) {
+        for (Object item : (List<?>) value)
+          hash = hashValue(hash, xmi_model, item, is_containment);
+      }
+      else
+        hash = hashValue(hash, xmi_model, value, is_containment);
+    }
+
+    return hash;
+  }
+
+
+  static private long hashValue(long hash, XMIResource xmi_model,
+      Object value, boolean is_containment) {
+    if (!(value instanceof EObject))
+      return hashString(hash, String.valueOf(value));
+
+    EObject obj = (EObject) value;
+    hash = hashString(hash, idOf(xmi_model, obj));
+
+    if (is_containment) {
+      hash = hashString(hash, obj.eClass().getName());
+
+      if (obj instanceof ETypedElement)
+        hash = hashString(hash,
+            idOf(xmi_model, ((ETypedElement) obj).getEType()));
+    }
+
+    return hash;
+  }
+
+
+  /**
+   * Gives the ID of an element, or its name if it has no ID.
+   */
+  static private String idOf(XMIResource xmi_model, EObject obj) {
+    if (obj == null)
+      return null;
+
+    String rc = (xmi_model != null) ? xmi_model.getID(obj) : null;
+
+    if (rc == null) {
+      if (obj instanceof ENamedElement)
+        rc = ((ENamedElement) obj).getName();
+      else if (obj instanceof EGenericType)
+        rc = idOf(xmi_model, ((EGenericType) obj).getEClassifier());
+      else
+        rc = obj.eClass().getName();
+    }
+
+    return rc;
+  }
+
+
+  static private long hashString(long hash, String text) {
+    if (text == null)
+      return (hash ^ 0xFF) * FNV_PRIME;
+
+    for (int i = 0; i < text.length(); ++i)
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+
+    return (hash ^ 0xFE) * FNV_PRIME;  // Mark end, so "ab"+"c" != "a"+"bc".
+  }
+
+
+  static private long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+
+  /**
+   * Finds the measure of a key in a table, NaN if absent.
+   */
+  static private float probe(LongBuffer keys, FloatBuffer measures, long key) {
+    int mask = keys.limit() - 1;
+
+    if (mask < 0)
+      return Float.NaN;
+
+    for (int i = slotOf(key, mask);; i = (i + 1) & mask) {
+      long slot_key = keys.get(i);
+
+      if (slot_key == key)
+        return measures.get(i);
+      else if (slot_key == 0)
+        return Float.NaN;
+    }
+  }
+
+
+  /**
+   * Finds the measure of a key in a table of added measures, NaN if absent.
+   */
+  static private float probe(long[] keys, float[] measures, long key) {
+    int mask = keys.length - 1;
+
+    for (int i = slotOf(key, mask);; i = (i + 1) & mask) {
+      if (keys[i] == key)
+        return measures[i];
+      else if (keys[i] == 0)
+        return Float.NaN;
+    }
+  }
+
+
+  /**
+   * Sets the measure of a key in a table with room to spare.
+   *
+   * @return  true = new key, false = measure replaced
+   */
+  static private boolean insert(long[] keys, float[] measures, long key,
+      float measure) {
+    int mask = keys.length - 1;
+
+    for (int i = slotOf(key, mask);; i = (i + 1) & mask) {
+      if (keys[i] == 0 || keys[i] == key) {
+        boolean is_new = keys[i] == 0;
+        keys[i] = key;
+        measures[i] = measure;
+        return is_new;
+      }
+    }
+  }
+
+
+  static private int slotOf(long key, int mask) {
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+
+
+  /**
+   * Gives the number of slots to hold entries at most half full.
+   */
+  static private int tableSize(int entry_ct) {
+    int rc = 1024;
+
+    while (rc < entry_ct * 2)
+      rc <<= 1;
+
+    return rc;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private final File cache_file_;
+  private final int max_entry_ct_;
+
+  /** false = file is not a cache, and must not be written. */
+  private boolean is_writable_;
+
+  /** Table as saved, mapped from the cache file. */
+  private volatile LongBuffer saved_keys_ = LongBuffer.allocate(0);
+  private volatile FloatBuffer saved_measures_ = FloatBuffer.allocate(0);
+  private int saved_ct_;
+
+  /** Table of measures added since last saved, null = none. */
+  private long[] added_keys_;
+  private float[] added_measures_;
+  private int added_ct_;
+
+  /** Content hashes of the elements of the models being measured. */
+  private volatile Map<EcoreExtra, Long> hashes_ =
+      Collections.<EcoreExtra, Long>emptyMap();
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  /** Marks a cache file: "MSC1". */
+  static private final int MAGIC = 0x4D534331;
+  static private final int HEADER_SIZE = 16;
+
+  /** Greatest number of measures kept: a file of at most 48 MB. */
+  static public final int MAX_ENTRIES = 1 << 21;
+
+  static private final long FNV_OFFSET = 0xcbf29ce484222325L;
+  static private final long FNV_PRIME = 0x100000001b3L;
+  // End class data ---------------------------------------------------------
+}
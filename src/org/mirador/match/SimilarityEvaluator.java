@@ -17,7 +17,14 @@ import java.util.Random;
 
 
 /**
- * Abstract evaluator of model element similarity.
+ * Abstract evaluator of model element similarity.<p>
+ *
+ * Thread safety: any set up an evaluator needs (e.g., comparing whole models)
+ * is done on the calling thread before measuring starts. Thereafter, an
+ * evaluator reporting itself as thread-safe may have <i>evaluate</i> called
+ * concurrently from several threads, and must give the same result for a pair
+ * of elements whatever thread, or order, it is called in. Evaluators that are
+ * not thread-safe are only ever called from one thread, in row order.
  *
  * @since   v0.16 - Mar 4, 2010
  * @author  Stephen Barrett
@@ -59,6 +66,59 @@ abstract public class SimilarityEvaluator {
   }
 
 
+  /**
+   * Gives the version of the measure kept in a similarity cache. Cacheable
+   * evaluators must raise it whenever the way they measure changes, so that
+   * measures cached before are no longer found.
+   *
+   * @return  Version of the measure.
+   * @category  getter
+   */
+  public int getCacheVersion() {
+    return 1;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Tells if the measure is symmetrical, i.e., if evaluating from one element
+   * to another always gives the same similarity as evaluating in the opposite
+   * direction. Symmetrical measures are taken only once per pair of elements,
+   * and reused for the reverse direction. Evaluators whose measures depend on
+   * direction must override this to opt out.
+   *
+   * @return  true = direction independent, false = direction dependent
+   */
+  public boolean isSymmetric() {
+    return true;
+  }
+
+
+  /**
+   * Tells if <i>evaluate</i> may be called concurrently, as per the thread
+   * safety contract of the class. Evaluators that keep no mutable state while
+   * evaluating should override this to opt in.
+   *
+   * @return  true = thread-safe, false = single threaded only
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
+
+  /**
+   * Tells if measures may be kept across sessions in a similarity cache. Only
+   * evaluators whose measures depend on nothing but the content of the two
+   * elements, and not on other elements or outside sources, should override
+   * this to opt in.
+   *
+   * @return  true = cacheable, false = evaluated every session
+   */
+  public boolean isCacheable() {
+    return false;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
   /**
    * Evaluates similarity from one model element to another. As measures are not
@@ -74,6 +134,21 @@ abstract public class SimilarityEvaluator {
   }
 
 
+  /**
+   * Revises the measures of the strategy once all pairs of a matrix have been
+   * evaluated, for evaluators whose measures derive from those of other pairs
+   * or strategies. Called on the calling thread, after measuring. The overall
+   * scores of the matrix are taken anew if any measure is revised.
+   *
+   * @param  measures  Matrix of measured pairs.
+   * @param  strategy_idx  Index of the evaluator's strategy in the matrix.
+   * @return  true = measures revised, false = measures left as evaluated
+   */
+  public boolean propagate(MeasureMatrix measures, int strategy_idx) {
+    return false;
+  }
+
+
   // Instance data ----------------------------------------------------------
   protected final Random random_ = new Random();  // TODO:3 Replace with real algorithm.
   protected float inital_weight_;
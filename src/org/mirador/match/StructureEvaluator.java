@@ -12,11 +12,27 @@
    Mirador supports several model comparison modules for schema matching.
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.match;
+import ca.dsrg.mirador.difference.EcoreTyper;
 import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EOperation;
+import org.eclipse.emf.ecore.EParameter;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.ETypedElement;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 
 /**
- * Evaluator of model element structural similarity.
+ * Evaluator of model element structural similarity. Elements are compared by
+ * fingerprints taken once per model, so measuring stays cheap enough to be
+ * run across the full cross product of elements.
  *
  * @since   v0.18 - Mar 6, 2010
  * @author  Stephen Barrett
@@ -40,20 +56,236 @@ public class StructureEvaluator extends SimilarityEvaluator {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Fingerprints are fixed once taken, and compared alike in either direction.
+   *
+   * @return  true = thread-safe
+   */
+  @Override public boolean isThreadSafe() {
+    return true;
+  }
+
+
+  /**
+   * Fingerprints draw only on the children, supertypes, and types of an
+   * element, all of which are part of its content, so measures may be cached.
+   *
+   * @return  true = cacheable
+   */
+  @Override public boolean isCacheable() {
+    return true;
+  }
+
+
+  /**
+   * Version 1 measures by the fingerprint of children, supertypes, and types.
+   *
+   * @return  Version of the measure.
+   * @category  getter
+   */
+  @Override public int getCacheVersion() {
+    return 1;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Takes the structural fingerprints of the elements of the models to be
+   * matched, replacing any taken before. Must be called before measuring, on
+   * the calling thread, as fingerprints are read concurrently thereafter.
+   *
+   * @param  from_model  Model whose elements are measured <i>from</i>.
+   * @param  to_model  Model whose elements are measured <i>to</i>.
+   */
+  public void fingerprint(MiradorModel from_model, MiradorModel to_model) {
+    Map<EcoreExtra, Fingerprint> prints =
+        new IdentityHashMap<EcoreExtra, Fingerprint>();
+
+    for (MiradorModel model : new MiradorModel[] { from_model, to_model }) {
+      for (Iterator<EcoreExtra> it = model.extraIterator(); it.hasNext();) {
+        EcoreExtra extra = it.next();
+        prints.put(extra, new Fingerprint(extra));
+      }
+    }
+
+    prints_ = prints;
+  }
+
+
   /**
    * Evaluates structural similarity from one model element to another. As
    * measures are not always symmetrical, a direction of evaluation is implied
    * by the arguments. The measure is a normalized representation of similarity.
    *
+   * Structure is compared by way of fingerprints of the elements, so each
+   * pair takes the same small, fixed effort whatever the size of the elements.
+   *
    * @param  from_element  Model element <i>from</i> which to measure.
    * @param  to_element  Model element <i>to</i> which to measure.
    * @return  Normalized similarity: 0.0 = no similarity, 1.0 = identical
    */
   @Override public float evaluate(EcoreExtra from_element,
       EcoreExtra to_element) {
-    float similarity;
-    similarity = random_.nextFloat();  // TODO:3 Replace with real algorithm.
-    return similarity;
+    return getFingerprint(from_element).compare(getFingerprint(to_element));
+  }
+
+
+  /**
+   * Gives the fingerprint of an element, taking one if the element was not
+   * fingerprinted beforehand.
+   *
+   * @param  extra  Element to obtain fingerprint of.
+   * @return  Structural fingerprint of the element.
+   */
+  private Fingerprint getFingerprint(EcoreExtra extra) {
+    Fingerprint rc = prints_.get(extra);
+    return (rc != null) ? rc : new Fingerprint(extra);
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  /** Fingerprints of the elements of the models being matched. */
+  private volatile Map<EcoreExtra, Fingerprint> prints_ =
+      Collections.<EcoreExtra, Fingerprint>emptyMap();
+  // End instance data ------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Compact structural summary of a model element: the number of its direct
+   * children of each Ecore type, the supertypes it extends, the types it
+   * refers to, and its arity. Supertypes and types are kept as 64 bit sets of
+   * hashed IDs, so may rarely collide, and counts saturate at 255.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  static private final class Fingerprint {
+    Fingerprint(EcoreExtra extra) {
+      ENamedElement element = extra.getElement();
+      XMIResource xmi_model = (extra.getModel() != null)
+          ? extra.getModel().getXmiModel() : null;
+      long counts = 0;
+      long supers = 0;
+      long types = 0;
+      int arity = 0;
+
+      if (element != null) {
+        for (EObject child : element.eContents()) {
+          int shift = EcoreTyper.typeEObject(child).ordinal() * 8;
+
+          if (((counts >>> shift) & 0xFF) < 0xFF)
+            counts += 1L << shift;
+        }
+
+        if (element instanceof EClass) {
+          EClass eclass = (EClass) element;
+
+          for (EClass supertype : eclass.getESuperTypes())
+            supers |= hashBit(xmi_model, supertype);
+
+          for (EReference ref : eclass.getEReferences())
+            types |= hashBit(xmi_model, ref.getEType());
+
+          arity = eclass.getEOperations().size();
+        }
+        else if (element instanceof EOperation) {
+          EOperation operation = (EOperation) element;
+          types |= hashBit(xmi_model, operation.getEType());
+
+          for (EParameter param : operation.getEParameters())
+            types |= hashBit(xmi_model, param.getEType());
+
+          arity = operation.getEParameters().size();
+        }
+        else if (element instanceof ETypedElement) {
+          ETypedElement typed = (ETypedElement) element;
+          types |= hashBit(xmi_model, typed.getEType());
+          arity = typed.isMany() ? 2 : (typed.isRequired() ? 1 : 0);
+        }
+      }
+
+      counts_ = counts;
+      supers_ = supers;
+      types_ = types;
+      arity_ = arity;
+    }
+
+
+    /**
+     * Compares fingerprints as the mean of the overlap of child counts, of
+     * supertypes, and of referred types, and the closeness of arity.
+     *
+     * @param  rhs  Fingerprint to compare with.
+     * @return  Normalized similarity: 0.0 = no similarity, 1.0 = identical
+     */
+    float compare(Fingerprint rhs) {
+      int min_ct = 0;
+      int max_ct = 0;
+
+      for (int shift = 0; shift < 64; shift += 8) {
+        int lhs_ct = (int) ((counts_ >>> shift) & 0xFF);
+        int rhs_ct = (int) ((rhs.counts_ >>> shift) & 0xFF);
+        min_ct += Math.min(lhs_ct, rhs_ct);
+        max_ct += Math.max(lhs_ct, rhs_ct);
+      }
+
+      int max_arity = Math.max(arity_, rhs.arity_);
+
+      float rc = (max_ct > 0) ? (float) min_ct / max_ct : 1.0f;
+      rc += overlap(supers_, rhs.supers_);
+      rc += overlap(types_, rhs.types_);
+      rc += (max_arity > 0)
+          ? 1.0f - (float) Math.abs(arity_ - rhs.arity_) / max_arity : 1.0f;
+
+      return rc / 4;
+    }
+
+
+    /**
+     * Gives the Jaccard overlap of two bit sets, 1.0 if both are empty.
+     */
+    static private float overlap(long lhs, long rhs) {
+      long any = lhs | rhs;
+      return (any != 0)
+          ? (float) Long.bitCount(lhs & rhs) / Long.bitCount(any) : 1.0f;
+    }
+
+
+    /**
+     * Gives the bit standing for a model element, by hash of its ID. Elements
+     * from outside the model (e.g., Ecore data types) stand by their name.
+     * Altered elements carry a trailing underscore, which is dropped so they
+     * stand as their original.
+     */
+    static private long hashBit(XMIResource xmi_model, EObject obj) {
+      if (obj == null)
+        return 0;
+
+      String key = (xmi_model != null) ? xmi_model.getID(obj) : null;
+
+      if (key == null)
+        key = (obj instanceof ENamedElement)
+            ? ((ENamedElement) obj).getName() : obj.eClass().getName();
+      else if (key.endsWith("_"))
+        key = key.substring(0, key.length() - 1);
+
+      if (key == null)
+        return 0;
+
+      int hash = key.hashCode() * 0x9E3779B9;
+      return 1L << (hash >>> 26);
+    }
+
+
+    // Instance data --------------------------------------------------------
+    /** Count of children, by Ecore type, a byte each. */
+    private final long counts_;
+    private final long supers_;
+    private final long types_;
+    private final int arity_;
+    // End instance data ----------------------------------------------------
   }
+  // End nested types -------------------------------------------------------
 }
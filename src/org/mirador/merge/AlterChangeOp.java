@@ -13,7 +13,10 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.merge;
 import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.difference.EcoreComparator;
 import ca.dsrg.mirador.model.EcoreExtra;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EStructuralFeature;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -41,19 +44,76 @@ public class AlterChangeOp extends AtomicChangeOp {
    */
   public AlterChangeOp(EcoreExtra target, EcoreExtra update, MergeSide side) {
     super(target, update, side);
+
+    if (update != null) {
+      changed_features_ = new EcoreComparator().changedFeatures(
+          update.getElement(), target.getElement());
+
+      if (target.isMoved())
+        changed_features_ |=
+            EcoreComparator.movedFeatures(update.getElement().eClass());
+    }
   }
 
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the features changed by the alteration, as a bit mask of feature
+   * IDs of the updated element. A move counts as a change of the reference
+   * to the container. The mask is taken once, as the operation is made.
+   *
+   * @return  Bit mask of changed feature IDs, 0 = none.
+   * @category  getter
+   */
+  public long getChangedFeatures() {
+    return changed_features_;
+  }
 
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
 
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Tests if this and another alteration change any same feature. Elements
+   * of the same Ecore type share feature IDs, so their masks are simply
+   * intersected; otherwise each changed feature is looked up in the other
+   * element's type.
+   *
+   * @param  other  Alteration to test against.
+   * @return  true = a same feature is changed, false = none is
+   */
+  public boolean isSameFeatureChanged(AlterChangeOp other) {
+    long changed0 = changed_features_;
+    long changed1 = other.changed_features_;
+
+    if (changed0 == 0 || changed1 == 0)
+      return false;
+
+    EClass cls0 = getUpdated().eClass();
+    EClass cls1 = other.getUpdated().eClass();
+
+    if (cls0 == cls1)
+      return (changed0 & changed1) != 0;
+
+    for (int id = 0; changed0 != 0; ++id, changed0 >>>= 1) {
+      if ((changed0 & 1) == 0)
+        continue;
+
+      EStructuralFeature feature = cls0.getEStructuralFeature(id);
+      int other_id = cls1.getFeatureID(feature);
+
+      if (other_id >= 0 && (changed1 & (1L << other_id)) != 0)
+        return true;
+    }
+
+    return false;
+  }
 
 
   // Instance data ----------------------------------------------------------
+  /** Bit mask of the IDs of the features changed, 0 = none. */
+  private long changed_features_;
   // End instance data ------------------------------------------------------
 
 
@@ -18,11 +18,10 @@ import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
 import ca.dsrg.mirador.difference.MiradorTyper.MiradorType;
 import ca.dsrg.mirador.model.EcoreExtra;
 import org.eclipse.emf.ecore.ENamedElement;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.Iterator;
-import java.util.ListIterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -156,53 +155,118 @@ abstract public class AtomicChangeOp extends ChangeOp {
   }
 
 
+  /**
+   * Gives the number of this change in its relation store.
+   *
+   * @return  Change number, -1 if in no store.
+   * @category  getter
+   */
+  public int getIndex() {
+    return index_;
+  }
+
+
+  /**
+   * Gives the store holding this change's relations.
+   *
+   * @return  Relation store, null if in none.
+   * @category  getter
+   */
+  public RelationStore getRelationStore() {
+    return store_;
+  }
+
+
+  /**
+   * Makes a store the holder of this change's relations.
+   *
+   * @param  store  Relation store.
+   * @param  index  Number of this change in the store.
+   * @category  setter
+   */
+  void setRelationStore(RelationStore store, int index) {
+    store_ = store;
+    index_ = index;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
-  /**                                                                     DOCDO: Provide method overview.
+  /**
+   * Relates this change to another of the same relation store, in place of
+   * any relation it held.
    *
-   * @param  op  Purpose of the argument.
+   * @param  op  Related change.
+   * @param  relation  Relation of this change to <i>op</i>.
    */
   public void addRelation(AtomicChangeOp op, Relation relation) {
-    relations_.put(op, relation);
+    if (store_ == null || op.store_ != store_)
+      throw new MiradorException("Related changes are not of one store.");
+
+    store_.setRelation(index_, op.index_, relation);
   }
 
 
   public Relation getRelation(ChangeOp op) {
-    return relations_.get(op);
+    if (!isSameStore(op))
+      return null;
+
+    return store_.getRelation(index_, ((AtomicChangeOp) op).index_);
   }
 
 
   /**
-   * Replaces the given change operation relation value in this change's map
-   * of such relations. Replacement of the map's entry value is done the hard
-   * way in order to maintain the map's original entry ordering.
+   * Replaces the relation of this change to the given change operation, if
+   * it holds one.
    *
-   * @param  op  Key of map entry whose value is to be replaced.
+   * @param  op  Change whose relation is to be replaced.
    * @param  relation  Replacement value for <i>op's</i> relation attribute.
    */
   public void replaceRelation(AtomicChangeOp op, Relation relation) {
-    Set<Map.Entry<AtomicChangeOp, Relation>> op_set = relations_.entrySet();
-
-    for (Map.Entry<AtomicChangeOp, Relation> entry : op_set) {
-      if (entry.getKey() == op) {
-        entry.setValue(relation);
-        break;
-      }
-    }
+    if (getRelation(op) != null)
+      store_.setRelation(index_, op.index_, relation);
   }
 
 
   public Iterator<Relation> relationIterator() {
-    return relations_.values().iterator();
+    return getRelations().values().iterator();
   }
 
 
-  /**                                                                     DOCDO: Provide method overview.
+  /**
+   * Gives the relations of this change, by related change in store order.
+   * The map is a copy; changes to it are not kept.
    *
-   * @return  The field's current value.
+   * @return  Relation to each related change.
    * @category  getter
    */
   public Map<AtomicChangeOp, Relation> getRelations() {
-    return relations_;
+    Map<AtomicChangeOp, Relation> rc =
+        new LinkedHashMap<AtomicChangeOp, Relation>();
+
+    if (store_ == null)
+      return rc;
+
+    BitSet related = new BitSet();
+    for (Relation relation : Relation.values())
+      related.or(store_.getRelated(index_, relation));
+
+    for (int i = related.nextSetBit(0); i >= 0; i = related.nextSetBit(i + 1))
+      rc.put(store_.getChange(i), store_.getRelation(index_, i));
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the store numbers of the changes this change is related to by the
+   * given relation. The set is the store's own and is not to be modified.
+   *
+   * @param  relation  Relation sought.
+   * @return  Numbers of the related changes.
+   * @category  getter
+   */
+  public BitSet getRelated(Relation relation) {
+    return (store_ != null) ? store_.getRelated(index_, relation) : new BitSet();
   }
 
 
@@ -213,21 +277,14 @@ abstract public class AtomicChangeOp extends ChangeOp {
 
 
   @Override public boolean isBefore(AtomicChangeOp to_test) {
-    Relation relation = relations_.get(to_test);
-    return (relation != null && relation == Relation.BEFORE);
+    return isSameStore(to_test)
+        && store_.getRelated(index_, Relation.BEFORE).get(to_test.index_);
   }
 
 
   @Override public boolean isBefore(CompositeChangeOp to_test) {
-    boolean rc = false;
-
-    for (ListIterator<AtomicChangeOp> it = to_test.changeIterator();
-        it.hasNext();) {
-      rc = isBefore(it.next());
-      if (rc) break;
-    }
-
-    return rc;
+    return store_ != null && to_test.getRelationStore() == store_
+        && store_.isRelated(index_, Relation.BEFORE, to_test.getMembers());
   }
 
 
@@ -242,6 +299,12 @@ abstract public class AtomicChangeOp extends ChangeOp {
   }
 
 
+  private boolean isSameStore(ChangeOp op) {
+    return store_ != null && op instanceof AtomicChangeOp
+        && ((AtomicChangeOp) op).store_ == store_;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ state accessors
   @Override public String toString() {
     return targeted_.toString() + " (" + targeted_.getId() + ','
@@ -282,8 +345,9 @@ abstract public class AtomicChangeOp extends ChangeOp {
   private EcoreExtra targeted_;
   private EcoreExtra updated_;
 
-  private Map<AtomicChangeOp, Relation> relations_ =
-      new HashMap<AtomicChangeOp, Relation>();
+  /** Store of this change's relations, and its number there. */
+  private RelationStore store_;
+  private int index_ = -1;
   // End instance data ------------------------------------------------------
 
 
@@ -0,0 +1,164 @@
+/* --------------------------------------------------------------------------+
+   ChangeOpIndex.java - Index of change operations by the model elements
+     through which the before predicate may relate them to others.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   The before predicate's relating conditions each compare, by identity, an
+   element of the leading change with one of the following change: its
+   target, the target's containers, its match, its update, or, for a
+   reference, its type. Indexing the following changes by those elements
+   turns the search for related pairs into a handful of lookups.
+   -------------------------------------------------------------------------*/
+package ca.dsrg.mirador.merge;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Index of a list of change operations, as the following changes of the
+ * before predicate, by the elements through which a leading change may be
+ * related to them. A change is given the positions of every change of the
+ * list that it may be related to; those left out meet none of the
+ * conditions named in RELATING_CONDITIONS.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class ChangeOpIndex {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Indexes a list of change operations.
+   *
+   * @param  ops  Changes to index, as following changes.
+   */
+  public ChangeOpIndex(List<AtomicChangeOp> ops) {
+    ops_ = ops;
+
+    for (int j = 0; j < ops.size(); ++j) {
+      AtomicChangeOp op = ops.get(j);
+      EObject target = op.getTargeted();
+
+      put(by_target_, target, j);
+      put(by_match_, op.getMatch(), j);
+      put(by_update_, op.getUpdated(), j);
+
+      if (target instanceof EReference)
+        put(by_ref_type_, ((EReference) target).getEType(), j);
+
+      for (EObject up = target.eContainer(); up != null; up = up.eContainer())
+        put(by_ancestor_, up, j);
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Gives the positions of the indexed changes that a leading change may be
+   * related to.
+   *
+   * @param  op  Leading change.
+   * @return  Positions of the possibly related changes.
+   */
+  public BitSet candidatesFor(AtomicChangeOp op) {
+    BitSet rc = new BitSet(ops_.size());
+    EObject target = op.getTargeted();
+    EObject match = op.getMatch();
+
+    // op1_contains_op2, same side and cross side.
+    get(rc, by_ancestor_, target);
+    get(rc, by_ancestor_, match);
+
+    // op2_contains_op1, same side and cross side.
+    for (EObject up = target.eContainer(); up != null; up = up.eContainer()) {
+      get(rc, by_target_, up);
+      get(rc, by_match_, up);
+    }
+
+    // op1_is_ref_to_op2, same side and cross side.
+    if (target instanceof EReference) {
+      EObject ref_type = ((EReference) target).getEType();
+      get(rc, by_target_, ref_type);
+      get(rc, by_match_, ref_type);
+    }
+
+    // op2_is_ref_to_op1, same side and cross side.
+    get(rc, by_ref_type_, target);
+    get(rc, by_ref_type_, match);
+
+    // elements_match, op1_updates_match, and op2_updates_match.
+    get(rc, by_match_, target);
+    get(rc, by_match_, op.getUpdated());
+    get(rc, by_update_, match);
+
+    return rc;
+  }
+
+
+  static private void put(Map<EObject, List<Integer>> index, EObject key,
+      int pos) {
+    if (key == null)
+      return;
+
+    List<Integer> positions = index.get(key);
+
+    if (positions == null) {
+      positions = new ArrayList<Integer>(2);
+      index.put(key, positions);
+    }
+
+    positions.add(pos);
+  }
+
+
+  static private void get(BitSet rc, Map<EObject, List<Integer>> index,
+      EObject key) {
+    if (key == null)
+      return;
+
+    List<Integer> positions = index.get(key);
+
+    if (positions != null) {
+      for (int pos : positions)
+        rc.set(pos);
+    }
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private final List<AtomicChangeOp> ops_;
+
+  /** Positions of the indexed changes, by element of each change. */
+  private final Map<EObject, List<Integer>> by_ancestor_ =
+      new IdentityHashMap<EObject, List<Integer>>();
+  private final Map<EObject, List<Integer>> by_match_ =
+      new IdentityHashMap<EObject, List<Integer>>();
+  private final Map<EObject, List<Integer>> by_ref_type_ =
+      new IdentityHashMap<EObject, List<Integer>>();
+  private final Map<EObject, List<Integer>> by_target_ =
+      new IdentityHashMap<EObject, List<Integer>>();
+  private final Map<EObject, List<Integer>> by_update_ =
+      new IdentityHashMap<EObject, List<Integer>>();
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  /** Conditions through which the index finds changes related. */
+  static public final List<String> RELATING_CONDITIONS =
+      Collections.unmodifiableList(Arrays.asList("elements_match",
+      "op1_contains_op2", "op1_is_ref_to_op2", "op1_updates_match",
+      "op2_contains_op1", "op2_is_ref_to_op1", "op2_updates_match"));
+  // End class data ---------------------------------------------------------
+}
@@ -13,7 +13,6 @@
    --------------------------------------------------------------------------*/
 package ca.dsrg.mirador.merge;
 import ca.dsrg.mirador.Debug;
-import ca.dsrg.mirador.MiradorException;
 import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
 import ca.dsrg.mirador.decision.DecisionTable;
 import ca.dsrg.mirador.decision.Tristate;
@@ -25,13 +24,16 @@ import ca.dsrg.mirador.model.MiradorModel;
 import ca.dsrg.mirador.model.ModelRepository;
 import org.eclipse.emf.ecore.ENamedElement;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 /**                                                                       DOCDO: Provide class overview.
@@ -75,6 +77,70 @@ public class ChangeOpPlane {
   }
 
 
+  /**
+   * Gives the number of threads used to evaluate decision tables.
+   *
+   * @return  Parallelism level, 1 = evaluate on calling thread only.
+   * @category  getter
+   */
+  static public int getParallelism() {
+    return parallelism_;
+  }
+
+
+  /**
+   * Assigns the number of threads used to evaluate decision tables. Tables
+   * whose actions alter the models, or debug tracing, keep evaluation on the
+   * calling thread regardless.
+   *
+   * @param  level  Parallelism level, 1 = evaluate on calling thread only.
+   * @category  setter
+   */
+  static public void setParallelism(int level) {
+    parallelism_ = Math.max(1, level);
+  }
+
+
+  /**
+   * Gives the fork/join pool, sized to the current parallelism level.
+   *
+   * @return  Pool to evaluate decision tables with.
+   */
+  static synchronized private ForkJoinPool getPool() {
+    if (pool_ == null || pool_.getParallelism() != parallelism_) {
+      if (pool_ != null)
+        pool_.shutdown();
+
+      pool_ = new ForkJoinPool(parallelism_);
+    }
+
+    return pool_;
+  }
+
+
+  /**
+   * Gives the number of change pairs the before predicate was tested on.
+   *
+   * @return  Number of change pairs tested for precedence.
+   * @category  getter
+   */
+  public int getTestedPairCount() {
+    return tested_ct_;
+  }
+
+
+  /**
+   * Gives the number of change pairs passed over as unrelated, without
+   * testing the before predicate on them.
+   *
+   * @return  Number of change pairs passed over.
+   * @category  getter
+   */
+  public int getPrunedPairCount() {
+    return pruned_ct_;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
   /**
    * Predicate to test the relative ordering of two change operations. Returns
@@ -177,56 +243,46 @@ public class ChangeOpPlane {
 
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ initializers
+  /**
+   * Makes an atomic change operation of each change found while differencing.
+   * The changes were collected as the difference models were built, so only
+   * they, not the difference models entire, are gone over here.
+   */
   private void extractAtomicChangeOps() {
-    changes_lf_ = new ArrayList<AtomicChangeOp>();
-    changes_rt_ = new ArrayList<AtomicChangeOp>();
-    MiradorModel dmodel_lf = model_repo_.getDiffModelLeft();
+    changes_lf_ = extractAtomicChangeOps(model_repo_.getDiffChangesLeft(),
+        model_repo_.getDiffModelLeft(), MergeSide.LEFT);
+    changes_rt_ = extractAtomicChangeOps(model_repo_.getDiffChangesRight(),
+        model_repo_.getDiffModelRight(), MergeSide.RIGHT);
+
+    // Number the left changes, then the right, for holding their relations.
+    List<AtomicChangeOp> ops = new ArrayList<AtomicChangeOp>(changes_lf_);
+    ops.addAll(changes_rt_);
+    relation_store_ = new RelationStore(ops);
+  }
+
 
-    for (Iterator<EcoreExtra> it = dmodel_lf.extraIterator();
-        it.hasNext();) {
-      EcoreExtra tar_lf = it.next();
+  static private List<AtomicChangeOp> extractAtomicChangeOps(
+      List<EcoreExtra> changes, MiradorModel dmodel, MergeSide side) {
+    List<AtomicChangeOp> rc = new ArrayList<AtomicChangeOp>(changes.size());
 
-      switch (tar_lf.getMiradorType()) {
+    for (EcoreExtra tar : changes) {
+      switch (tar.getMiradorType()) {
         case ADD:
-          changes_lf_.add(new AddChangeOp(tar_lf, MergeSide.LEFT));
+          rc.add(new AddChangeOp(tar, side));
         break;
 
         case DELETE:
-          changes_lf_.add(new DeleteChangeOp(tar_lf, MergeSide.LEFT));
+          rc.add(new DeleteChangeOp(tar, side));
         break;
 
         case ALTER:  // TODO:3 One change operation for each property changed. Too much work?
-          ENamedElement up_lf =
-              ((AlteredEElement) tar_lf.getElement()).getUpdated();
-          changes_lf_.add(new AlterChangeOp(tar_lf, dmodel_lf.getExtra(up_lf),
-              MergeSide.LEFT));
+          ENamedElement up = ((AlteredEElement) tar.getElement()).getUpdated();
+          rc.add(new AlterChangeOp(tar, dmodel.getExtra(up), side));
         break;
       }
     }
 
-
-    MiradorModel dmodel_rt = model_repo_.getDiffModelRight();
-    for (Iterator<EcoreExtra> it = dmodel_rt.extraIterator();
-        it.hasNext();) {
-      EcoreExtra tar_rt = it.next();
-
-      switch (tar_rt.getMiradorType()) {
-        case ADD:
-          changes_rt_.add(new AddChangeOp(tar_rt, MergeSide.RIGHT));
-        break;
-
-        case DELETE:
-          changes_rt_.add(new DeleteChangeOp(tar_rt, MergeSide.RIGHT));
-        break;
-
-        case ALTER:
-          ENamedElement up_rt =
-              ((AlteredEElement) tar_rt.getElement()).getUpdated();
-          changes_rt_.add(new AlterChangeOp(tar_rt, dmodel_rt.getExtra(up_rt),
-              MergeSide.RIGHT));
-        break;
-      }
-    }
+    return rc;
   }
 
 
@@ -270,224 +326,167 @@ public class ChangeOpPlane {
 
   // Test all change operation pairs for order and conflict.
   private void markPrecedence() {
-    // Test left-left change operations for ordering (i.e., quadrant II).
-    Debug.dbg.println("\n\n\n\t    --- SAME SIDE ORDER (left1, left2) ---");
-    for (int i = 0; i < changes_lf_.size(); ++i) { // a of a.isBefore(b).
-      AtomicChangeOp out_op = changes_lf_.get(i);
-
-      for (int j = 0; j < changes_lf_.size(); ++j) { // b of a.isBefore(b).
-        if (j == i)
-          continue;
-
-        Debug.dbg.print(out_op);
-        AtomicChangeOp in_op = changes_lf_.get(j);
-
-        if (isBefore(out_op, in_op)) {
-          out_op.addRelation(in_op, Relation.BEFORE);
-          Debug.dbg.print("<] ");
-        }
-        else
-          Debug.dbg.print("~] ");
-
-        Debug.dbg.println(in_op);
-      }
+    ChangeOpIndex index_lf = null;
+    ChangeOpIndex index_rt = null;
+    tested_ct_ = 0;
+    pruned_ct_ = 0;
+
+    // Pass over unrelated pairs only if the table can't find them ordered.
+    if (getBeforeTable().isRestrictedTo(ChangeOpIndex.RELATING_CONDITIONS)) {
+      index_lf = new ChangeOpIndex(changes_lf_);
+      index_rt = new ChangeOpIndex(changes_rt_);
     }
 
+    // Test pairs concurrently only if the table leaves the models untouched.
+    boolean is_parallel = parallelism_ > 1 && !Debug.dbg.isDebug()
+        && getBeforeTable().isReadOnly();
+
+    // Test left-left change operations for ordering (i.e., quadrant II).
+    Debug.dbg.println("\n\n\n\t    --- SAME SIDE ORDER (left1, left2) ---");
+    markPrecedence(changes_lf_, changes_lf_, index_lf, false, is_parallel);
 
     // Test right-right change operations for ordering (i.e., quadrant IV).
     Debug.dbg.println("\n\n\n\t    --- SAME SIDE ORDER (right1, right2) ---");
-    for (int i = 0; i < changes_rt_.size(); ++i) { // a of a.isBefore(b).
-      AtomicChangeOp out_op = changes_rt_.get(i);
+    markPrecedence(changes_rt_, changes_rt_, index_rt, false, is_parallel);
 
-      for (int j = 0; j < changes_rt_.size(); ++j) { // b of a.isBefore(b).
-        if (j == i)
-          continue;
+    // Test left-right change operations for ordering (i.e., quadrant I).
+    Debug.dbg.println("\n\n\n\t    --- CROSS SIDE ORDER (left, right) ---");
+    markPrecedence(changes_lf_, changes_rt_, index_rt, false, is_parallel);
 
-        Debug.dbg.print(out_op);
-        AtomicChangeOp in_op = changes_rt_.get(j);
+    // Test right-left change operations for ordering (i.e., quadrant III).
+    Debug.dbg.println("\n\n\n\t    --- CROSS SIDE ORDER (right, left) ---");
+    markPrecedence(changes_rt_, changes_lf_, index_lf, true, is_parallel);
 
-        if (isBefore(out_op, in_op)) {
-          out_op.addRelation(in_op, Relation.BEFORE);
-          Debug.dbg.print("<] ");
-        }
-        else
-          Debug.dbg.print("~] ");
+    Debug.dbg.format("Precedence: %d change pairs tested, %d passed over\n",
+        tested_ct_, pruned_ct_);
+    dumpOpRelations(changes_lf_, changes_rt_);
+  }
 
-        Debug.dbg.println(in_op);
-      }
+
+  /**
+   * Tests each leading change against the following changes it may be
+   * related to, marking those it must come before. Pairs may be tested
+   * concurrently, but what is found is recorded afterward in pair order, so
+   * the relations come out the same either way.
+   *
+   * @param  out_ops  Leading changes, a of a.isBefore(b).
+   * @param  in_ops  Following changes, b of a.isBefore(b).
+   * @param  index  Index of the following changes, null = test all pairs.
+   * @param  is_final  Whether a pair ordered both ways is in conflict.
+   * @param  is_parallel  Whether pairs may be tested concurrently.
+   */
+  private void markPrecedence(List<AtomicChangeOp> out_ops,
+      List<AtomicChangeOp> in_ops, ChangeOpIndex index, boolean is_final,
+      boolean is_parallel) {
+    int out_ct = out_ops.size();
+    int pair_ct = (out_ops == in_ops) ? in_ops.size() - 1 : in_ops.size();
+    BitSet[] befores = new BitSet[out_ct];
+    int[] tested_cts = new int[out_ct];
+
+    if (is_parallel && out_ct > 1) {
+      int grain = Math.max(1, out_ct / (parallelism_ * TASKS_PER_THREAD));
+      getPool().invoke(new PrecedenceTask(out_ops, in_ops, index, is_final,
+          befores, tested_cts, 0, out_ct, grain));
     }
+    else
+      findPrecedence(out_ops, in_ops, index, is_final, befores, tested_cts,
+          0, out_ct);
 
+    for (int i = 0; i < out_ct; ++i) {
+      AtomicChangeOp out_op = out_ops.get(i);
+      BitSet before = befores[i];
 
-    // Test left-right change operations for ordering (i.e., quadrant I).
-    Debug.dbg.println("\n\n\n\t    --- CROSS SIDE ORDER (left, right) ---");
-    for (int i = 0; i < changes_lf_.size(); ++i) { // a of a.isBefore(b).
-      AtomicChangeOp out_op = changes_lf_.get(i);
+      tested_ct_ += tested_cts[i];
+      pruned_ct_ += pair_ct - tested_cts[i];
 
-      for (int j = 0; j < changes_rt_.size(); ++j) { // b of a.isBefore(b)
-        Debug.dbg.print(out_op);
-        AtomicChangeOp in_op = changes_rt_.get(j);
+      for (int j = before.nextSetBit(0); j >= 0; j = before.nextSetBit(j + 1)) {
+        AtomicChangeOp in_op = in_ops.get(j);
 
-        if (isBefore(out_op, in_op)) {
-          out_op.addRelation(in_op, Relation.BEFORE);
-          Debug.dbg.print("<] ");
+        // Check for conflict; indicated by true isBefore() on both sides.
+        if (is_final && in_op.getRelation(out_op) == Relation.BEFORE) {
+          out_op.addRelation(in_op, Relation.CONFLICT);
+          in_op.replaceRelation(out_op, Relation.CONFLICT);
         }
         else
-          Debug.dbg.print("~] ");
-
-        Debug.dbg.println(in_op);
+          out_op.addRelation(in_op, Relation.BEFORE);
       }
     }
+  }
 
 
-    // Test right-left change operations for ordering (i.e., quadrant III).
-    Debug.dbg.println("\n\n\n\t    --- CROSS SIDE ORDER (right, left) ---");
-    for (int i = 0; i < changes_rt_.size(); ++i) { // a of a.isBefore(b).
-      AtomicChangeOp out_op = changes_rt_.get(i);
+  /**
+   * Tests a slice of leading changes against the following changes they may
+   * be related to. The positions of the following changes each leading
+   * change must come before are left in a buffer of its own, for the calling
+   * thread to record. Only the models are read, so slices may be tested
+   * concurrently.
+   */
+  private void findPrecedence(List<AtomicChangeOp> out_ops,
+      List<AtomicChangeOp> in_ops, ChangeOpIndex index, boolean is_final,
+      BitSet[] befores, int[] tested_cts, int lo, int hi) {
+    BitSet all = null;
+
+    if (index == null) {
+      all = new BitSet(in_ops.size());
+      all.set(0, in_ops.size());
+    }
+
+    for (int i = lo; i < hi; ++i) {
+      AtomicChangeOp out_op = out_ops.get(i);
+      BitSet candidates = (index != null) ? index.candidatesFor(out_op) : all;
+      BitSet before = new BitSet();
+      int tested_ct = 0;
+
+      for (int j = candidates.nextSetBit(0); j >= 0;
+          j = candidates.nextSetBit(j + 1)) {
+        AtomicChangeOp in_op = in_ops.get(j);
+
+        if (in_op == out_op)
+          continue;
 
-      for (int j = 0; j < changes_lf_.size(); ++j) { // b of a.isBefore(b)
         Debug.dbg.print(out_op);
-        AtomicChangeOp in_op = changes_lf_.get(j);
+        ++tested_ct;
 
-          // Check for conflict; indicated by true isBefore() on both sides.
         if (isBefore(out_op, in_op)) {
-          if (in_op.getRelations().get(out_op) == Relation.BEFORE) {
-            out_op.addRelation(in_op, Relation.CONFLICT);
-            in_op.replaceRelation(out_op, Relation.CONFLICT);
-            Debug.dbg.print("><] ");
-          }
-          else {
-            out_op.addRelation(in_op, Relation.BEFORE);
-            Debug.dbg.print("<] ");
-          }
+          before.set(j);
+          Debug.dbg.print((is_final
+              && in_op.getRelation(out_op) == Relation.BEFORE)
+              ? "><] " : "<] ");
         }
         else
           Debug.dbg.print("~] ");
 
         Debug.dbg.println(in_op);
       }
-    }
 
-    dumpOpRelations(changes_lf_, changes_rt_);
+      befores[i] = before;
+      tested_cts[i] = tested_ct;
+    }
   }
 
 
   private void orderChangeOps() {
-    changes_list_ = new ArrayList<ChangeOp>(changes_set_);
-    int sz = changes_set_.size();
-    int lo_idx;
-    int hi_idx;
-
-    // Move any conflicts to bottom of change op list.
-    for (lo_idx = 0, hi_idx = sz - 1; lo_idx <= hi_idx; ++lo_idx) {
-      ChangeOp lo_blk = changes_list_.get(lo_idx);
-
-      if (lo_blk.isConflict()) {
-        for (; hi_idx > lo_idx; --hi_idx) {
-          ChangeOp hi_blk = changes_list_.get(hi_idx);
-
-          if (!hi_blk.isConflict()) {
-            changes_list_.set(hi_idx--, lo_blk);
-            changes_list_.set(lo_idx, hi_blk);
-            break;
-          }
-        }
-      }
-    }
-
+    // Partitions in the order their first changes were extracted.
+    List<ChangeOp> blks = new ArrayList<ChangeOp>(changes_set_.size());
+    Set<ChangeOp> seen = Collections.newSetFromMap(
+        new IdentityHashMap<ChangeOp, Boolean>());
 
-    // Move unresolved conflicts below resolved conflicts.
-    for (lo_idx = hi_idx, hi_idx = sz - 1; lo_idx <= hi_idx; ++lo_idx) {
-      if (!(changes_list_.get(lo_idx) instanceof ContradictChangeOp))
-        continue;
+    List<AtomicChangeOp> ops = new ArrayList<AtomicChangeOp>(changes_lf_);
+    ops.addAll(changes_rt_);
 
-      ContradictChangeOp lo_blk = (ContradictChangeOp) changes_list_.get(lo_idx);
+    for (AtomicChangeOp op : ops) {
+      ChangeOp blk = changes_map_.get(op);
 
-      if (!lo_blk.isResolved()) {
-        for (; hi_idx > lo_idx; --hi_idx) {
-          ContradictChangeOp hi_blk = (ContradictChangeOp) changes_list_.get(hi_idx);
-
-          if (hi_blk.isResolved()) {
-            changes_list_.set(hi_idx--, lo_blk);
-            changes_list_.set(lo_idx, hi_blk);
-            break;
-          }
-        }
-      }
+      if (blk != null && seen.add(blk))
+        blks.add(blk);
     }
-//    changes_list_.clear();
-//    changes_list_.add(changes_map_.get(ops_lf_.get(5)));
-//    changes_list_.add(changes_map_.get(ops_lf_.get(4)));
-//    changes_list_.add(changes_map_.get(ops_rt_.get(2)));
-//    changes_list_.add(changes_map_.get(ops_lf_.get(0)));
-//    changes_list_.add(changes_map_.get(ops_lf_.get(3)));
-//    changes_list_.add(changes_map_.get(ops_lf_.get(1)));
-
-//    Debug.dbg.println("\n\n\n\t    --- UNORDERED CHANGE OP PARTITIONS ---");
-//    for (Change blk : changes_list_)
-//      Debug.dbg.println(blk);
-
-
-    boolean no_change = false;
-    for (int i = 1; i <= sz && !no_change; ++i) { // TODO:3 Find better exit criteria.
-    no_change = true;
-
-      for (int j = 0; j < sz; ++j) {
-        ChangeOp out_blk = changes_list_.get(j);
-
-        for (int k = j + 1; k < sz; ++k) {
-          ChangeOp in_blk = changes_list_.get(k);
-
-          if (in_blk.isBefore(out_blk)) {
-            changes_list_.remove(k);
-            changes_list_.add(j, in_blk);
-            no_change = false;
-            out_blk = in_blk;
-            k = j + 1;
-          }
-        }
-      }
 
-      if (i == sz && sz > 1)  // FIXME: Hack to handle lists of only one conflict.
-        throw new MiradorException("Change op partition has circular reference.");
+    for (ChangeOp blk : changes_set_) {
+      if (seen.add(blk))
+        blks.add(blk);
     }
 
-//    Debug.dbg.println("\n\n\n\t    --- UNORDERED CHANGE OP PARTITIONS ---");
-//    for (Change blk : changes_list_)
-//      Debug.dbg.println(blk);
-
-
-    int top = 0;
-    int bot = 1;
-    for (int i = 0; i < sz; ++i) {
-      if (changes_list_.get(i).isConflict()) {
-        bot = i;
-        break;
-      }
-    }
-
-
-    for (int i = bot; i < sz; ++i) {
-      ChangeOp out_blk = changes_list_.get(i);
-
-      if (!out_blk.isConflict()) { // FIXME:2 Sort resolved conflicts.
-        for (int j = i - 1; j >= top; --j) {
-          ChangeOp in_blk = changes_list_.get(j);
-
-          if (in_blk.isBefore(out_blk))
-            break;
-          else {
-            changes_list_.remove(i);
-            changes_list_.add(j, out_blk);
-            bot = Math.max(bot, i);
-
-            if (--i == top) {
-              ++top;
-              i = bot;
-            }
-          }
-        }
-      }
-    }
+    changes_list_ = ChangeOpSorter.sort(blks, changes_map_);
 
     // TODO:2 Resolved conflicts should remain paired in moving.
     Debug.dbg.println("\n\n\n\t    --- ORDERED & RESOLVED CHANGE OPS ---");
@@ -546,66 +545,127 @@ public class ChangeOpPlane {
 //        changes_rt_.add(R3); changes_rt_.add(R4); changes_rt_.add(R5);
 
 
-    changes_map_ = new HashMap<AtomicChangeOp, ChangeOp>();
+    changes_map_ = partitionChanges(relation_store_);
+    changes_set_ = new HashSet<ChangeOp>(changes_map_.values());
+    Debug.dbg.println("\n\n\n\t    --- CHANGE OP PARTITIONS ---");
+    for (ChangeOp blk : changes_set_)
+      Debug.dbg.println(blk);
+  }
 
-    for (AtomicChangeOp out_op : changes_lf_) {
-      ContradictChangeOp out_blk =  // Map only holds conflicts so far.
-          (ContradictChangeOp) changes_map_.get(out_op);
 
-      for (Iterator<Entry<AtomicChangeOp, Relation>> it =
-          out_op.getRelations().entrySet().iterator(); it.hasNext();) {
-        Entry<AtomicChangeOp, Relation> rel_entry = it.next();
+  /**
+   * Partitions the changes of a relation store by conflict: changes related
+   * by conflict, directly or through others, make up one partition. A change
+   * in conflict with none is its own partition.
+   *
+   * @param  store  Changes and their relations.
+   * @return  Partition of each change.
+   */
+  static public Map<AtomicChangeOp, ChangeOp> partitionChanges(
+      RelationStore store) {
+    // Join conflicting changes into components, by union-find over their
+    // numbers in the store.
+    int sz = store.size();
+    int[] parents = new int[sz];
+    int[] sizes = new int[sz];
 
-        if (rel_entry.getValue() == Relation.CONFLICT) {
-          AtomicChangeOp in_op = rel_entry.getKey();
-          ContradictChangeOp in_blk =  // Map only holds conflicts so far.
-              (ContradictChangeOp) changes_map_.get(in_op);
+    for (int i = 0; i < sz; ++i) {
+      parents[i] = i;
+      sizes[i] = 1;
+    }
 
-          if (in_blk == null) {
-            if (out_blk == null)
-              out_blk = out_op.addToPartition(null);  // Atomic(null)
+    for (int i = 0; i < sz; ++i) {
+      BitSet conflicts = store.getRelated(i, Relation.CONFLICT);
 
-            in_op.addToPartition(out_blk);  // Atomic/Conflict(Conflict)
-            changes_map_.put(in_op, out_blk);
-            changes_map_.put(out_op, out_blk);
-          }
-          else {
-            out_op.addToPartition(in_blk);  // Atomic/Conflict(Conflict)
-            changes_map_.put(in_op, in_blk);
-            changes_map_.put(out_op, in_blk);
-          }
-        }
-      }
+      for (int j = conflicts.nextSetBit(0); j >= 0;
+          j = conflicts.nextSetBit(j + 1))
+        joinComponents(parents, sizes, i, j);
     }
 
 
-    for (AtomicChangeOp out_op : changes_lf_) {
-      if (changes_map_.get(out_op) == null)
-        changes_map_.put(out_op, out_op);
+    // One partition per component of more than one change, taking its
+    // changes in list order.
+    Map<AtomicChangeOp, ChangeOp> rc =
+        new HashMap<AtomicChangeOp, ChangeOp>();
+    Map<Integer, ContradictChangeOp> partitions =
+        new HashMap<Integer, ContradictChangeOp>();
+
+    for (int i = 0; i < sz; ++i) {
+      AtomicChangeOp op = store.getChange(i);
+      int root = findComponent(parents, i);
+
+      if (sizes[root] == 1)
+        rc.put(op, op);
+      else {
+        ContradictChangeOp blk =
+            op.addToPartition(partitions.get(root));  // Atomic(null/Conflict)
+        partitions.put(root, blk);
+        rc.put(op, blk);
+      }
     }
 
+    return rc;
+  }
 
-    for (AtomicChangeOp out_op : changes_rt_) {
-      if (changes_map_.get(out_op) == null)
-        changes_map_.put(out_op, out_op);
+
+  /**
+   * Gives the root of the component holding a change, halving the path to
+   * it along the way.
+   */
+  static private int findComponent(int[] parents, int i) {
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
     }
 
+    return i;
+  }
 
-    changes_set_ = new HashSet<ChangeOp>(changes_map_.values());
-    Debug.dbg.println("\n\n\n\t    --- CHANGE OP PARTITIONS ---");
-    for (ChangeOp blk : changes_set_)
-      Debug.dbg.println(blk);
+
+  /**
+   * Joins the components of two changes, hanging the smaller from the
+   * larger.
+   */
+  static private void joinComponents(int[] parents, int[] sizes, int i,
+      int j) {
+    int root_i = findComponent(parents, i);
+    int root_j = findComponent(parents, j);
+
+    if (root_i == root_j)
+      return;
+
+    if (sizes[root_i] < sizes[root_j]) {
+      int swap = root_i;
+      root_i = root_j;
+      root_j = swap;
+    }
+
+    parents[root_j] = root_i;
+    sizes[root_i] += sizes[root_j];
   }
 
 
   private void resolveConflicts() {
     Debug.dbg.println("\n\n\n\t    --- AUTO RESOLVING CONFLICTS ---");
+    List<ContradictChangeOp> conflicts = new ArrayList<ContradictChangeOp>();
 
     for (ChangeOp change : changes_set_) {
-      if (change instanceof ContradictChangeOp) {
-        ContradictChangeOp conflict = (ContradictChangeOp) change;
+      if (change instanceof ContradictChangeOp)
+        conflicts.add((ContradictChangeOp) change);
+    }
+
+    // Conflicts share no changes, so may be resolved concurrently as long as
+    // the table leaves the models untouched.
+    int conflict_ct = conflicts.size();
+
+    if (parallelism_ > 1 && conflict_ct > 1 && !Debug.dbg.isDebug()
+        && getResolveTable().isReadOnly()) {
+      int grain = Math.max(1, conflict_ct / (parallelism_ * TASKS_PER_THREAD));
+      getPool().invoke(new ResolveTask(conflicts, 0, conflict_ct, grain));
+    }
+    else {
+      for (ContradictChangeOp conflict : conflicts)
         resolveConflict(conflict);
-      }
     }
 
     changes_set_.clear();
@@ -710,14 +770,26 @@ public class ChangeOpPlane {
 
   private List<AtomicChangeOp> changes_lf_;
   private List<AtomicChangeOp> changes_rt_;
+  private RelationStore relation_store_;
 
   private Map<AtomicChangeOp, ChangeOp> changes_map_;
   private Set<ChangeOp> changes_set_;
   private List<ChangeOp> changes_list_;
+
+  /** Change pairs tested for precedence, and those passed over. */
+  private int tested_ct_;
+  private int pruned_ct_;
   // End instance data ------------------------------------------------------
 
 
   // Class data -------------------------------------------------------------
+  /** Threads used to evaluate decision tables. Set from the UI thread. */
+  static private volatile int parallelism_ = 1;
+  static private ForkJoinPool pool_;
+
+  /** Tasks made per thread, to even out changes of uneven candidate counts. */
+  static private final int TASKS_PER_THREAD = 8;
+
   // Construct default decision tables in case none get loaded.
   static private final Tristate Y = Tristate.TRUE;
   static private final Tristate N = Tristate.FALSE;
@@ -916,4 +988,109 @@ public class ChangeOpPlane {
     conflict_aux_.buildMasks();
   }
   // End class data ---------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Fork/join task that tests a slice of leading changes for precedence over
+   * the following changes, leaving what it finds for the calling thread to
+   * record.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  private class PrecedenceTask extends RecursiveAction {
+    PrecedenceTask(List<AtomicChangeOp> out_ops, List<AtomicChangeOp> in_ops,
+        ChangeOpIndex index, boolean is_final, BitSet[] befores,
+        int[] tested_cts, int lo, int hi, int grain) {
+      out_ops_ = out_ops;
+      in_ops_ = in_ops;
+      index_ = index;
+      is_final_ = is_final;
+      befores_ = befores;
+      tested_cts_ = tested_cts;
+      lo_ = lo;
+      hi_ = hi;
+      grain_ = grain;
+    }
+
+
+    @Override protected void compute() {
+      if (hi_ - lo_ > grain_) { // Split slice in two.
+        int mid = (lo_ + hi_) >>> 1;
+        invokeAll(
+            new PrecedenceTask(out_ops_, in_ops_, index_, is_final_, befores_,
+                tested_cts_, lo_, mid, grain_),
+            new PrecedenceTask(out_ops_, in_ops_, index_, is_final_, befores_,
+                tested_cts_, mid, hi_, grain_));
+        return;
+      }
+
+      findPrecedence(out_ops_, in_ops_, index_, is_final_, befores_,
+          tested_cts_, lo_, hi_);
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final List<AtomicChangeOp> out_ops_;
+    private final List<AtomicChangeOp> in_ops_;
+    private final ChangeOpIndex index_;
+    private final boolean is_final_;
+    private final BitSet[] befores_;
+    private final int[] tested_cts_;
+    private final int lo_;
+    private final int hi_;
+    private final int grain_;
+    // End instance data ----------------------------------------------------
+
+
+    // Class data -----------------------------------------------------------
+    static private final long serialVersionUID = 1L;
+    // End class data -------------------------------------------------------
+  }
+
+
+  /**
+   * Fork/join task that resolves a slice of conflicts. Conflicts share no
+   * changes, so each is resolved on its own.
+   *
+   * @since   v0.85 - Oct 18, 2026
+   * @author  Stephen Barrett
+   */
+  private class ResolveTask extends RecursiveAction {
+    ResolveTask(List<ContradictChangeOp> conflicts, int lo, int hi,
+        int grain) {
+      conflicts_ = conflicts;
+      lo_ = lo;
+      hi_ = hi;
+      grain_ = grain;
+    }
+
+
+    @Override protected void compute() {
+      if (hi_ - lo_ > grain_) { // Split slice in two.
+        int mid = (lo_ + hi_) >>> 1;
+        invokeAll(new ResolveTask(conflicts_, lo_, mid, grain_),
+            new ResolveTask(conflicts_, mid, hi_, grain_));
+        return;
+      }
+
+      for (int i = lo_; i < hi_; ++i)
+        resolveConflict(conflicts_.get(i));
+    }
+
+
+    // Instance data --------------------------------------------------------
+    private final List<ContradictChangeOp> conflicts_;
+    private final int lo_;
+    private final int hi_;
+    private final int grain_;
+    // End instance data ----------------------------------------------------
+
+
+    // Class data -----------------------------------------------------------
+    static private final long serialVersionUID = 1L;
+    // End class data -------------------------------------------------------
+  }
+  // End nested types -------------------------------------------------------
 }
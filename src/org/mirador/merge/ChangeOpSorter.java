@@ -0,0 +1,219 @@
+/* --------------------------------------------------------------------------+
+   ChangeOpSorter.java - Topological ordering of change op partitions by
+     the before relation among their atomic changes.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Partitions are ordered by Kahn's algorithm: one is placed once every
+   partition before it has been. Among those ready to be placed, plain
+   changes go first, then resolved conflicts, then unresolved ones, so that
+   conflicts sink as far down as precedence lets them. Partitions never
+   placed lie on, or after, a cycle; the cycles are found as the strongly
+   connected components (Tarjan) of what remains and named in the error.
+   -------------------------------------------------------------------------*/
+package ca.dsrg.mirador.merge;
+import ca.dsrg.mirador.MiradorException;
+import ca.dsrg.mirador.merge.AtomicChangeOp.Relation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Map.Entry;
+
+
+/**
+ * Orders change op partitions so that each follows every partition before
+ * it, with conflicts kept as low as the order allows.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class ChangeOpSorter {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Suppress default constructor for noninstantiability.
+   */
+  private ChangeOpSorter() {
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Orders change op partitions by the before relation among their atomic
+   * changes. Partitions of equal standing keep their given order.
+   *
+   * @param  blks  Partitions to order.
+   * @param  blk_map  Partition of each atomic change.
+   * @return  Partitions in order.
+   * @throws  MiradorException  If the partitions are circularly related.
+   */
+  static public List<ChangeOp> sort(List<ChangeOp> blks,
+      Map<AtomicChangeOp, ChangeOp> blk_map) {
+    int sz = blks.size();
+    Map<ChangeOp, Integer> positions = new IdentityHashMap<ChangeOp, Integer>();
+
+    for (int i = 0; i < sz; ++i)
+      positions.put(blks.get(i), i);
+
+    List<Set<Integer>> afters = new ArrayList<Set<Integer>>(sz);
+    int[] in_degrees = new int[sz];
+
+    for (int i = 0; i < sz; ++i)
+      afters.add(new LinkedHashSet<Integer>());
+
+    for (Entry<AtomicChangeOp, ChangeOp> entry : blk_map.entrySet()) {
+      AtomicChangeOp op = entry.getKey();
+      Integer from = positions.get(entry.getValue());
+      BitSet befores = op.getRelated(Relation.BEFORE);
+
+      for (int k = befores.nextSetBit(0); k >= 0;
+          k = befores.nextSetBit(k + 1)) {
+        Integer to =
+            positions.get(blk_map.get(op.getRelationStore().getChange(k)));
+
+        if (from != null && to != null && !from.equals(to)
+            && afters.get(from).add(to))
+          ++in_degrees[to];
+      }
+    }
+
+    final int[] ranks = new int[sz];
+    for (int i = 0; i < sz; ++i)
+      ranks[i] = rankOf(blks.get(i));
+
+    PriorityQueue<Integer> ready = new PriorityQueue<Integer>(Math.max(1, sz),
+        new Comparator<Integer>() {
+          @Override public int compare(Integer x, Integer y) {
+            return (ranks[x] != ranks[y]) ? ranks[x] - ranks[y] : x - y;
+          }
+        });
+
+    for (int i = 0; i < sz; ++i) {
+      if (in_degrees[i] == 0)
+        ready.add(i);
+    }
+
+    List<ChangeOp> rc = new ArrayList<ChangeOp>(sz);
+
+    while (!ready.isEmpty()) {
+      int i = ready.poll();
+      rc.add(blks.get(i));
+
+      for (int j : afters.get(i)) {
+        if (--in_degrees[j] == 0)
+          ready.add(j);
+      }
+    }
+
+    if (rc.size() < sz)
+      throw new MiradorException("Change op partition has circular reference: "
+          + findCycles(blks, afters, in_degrees));
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the partitions on each cycle among those left unplaced, as the
+   * strongly connected components of more than one partition.
+   */
+  static private List<List<ChangeOp>> findCycles(List<ChangeOp> blks,
+      List<Set<Integer>> afters, int[] in_degrees) {
+    int sz = blks.size();
+    int[] indexes = new int[sz];
+    int[] lows = new int[sz];
+    boolean[] is_stacked = new boolean[sz];
+    Deque<Integer> stack = new ArrayDeque<Integer>();
+    Deque<Integer> calls = new ArrayDeque<Integer>();
+    List<Iterator<Integer>> iters = new ArrayList<Iterator<Integer>>(sz);
+    List<List<ChangeOp>> rc = new ArrayList<List<ChangeOp>>();
+    int count = 0;
+
+    for (int i = 0; i < sz; ++i) {
+      indexes[i] = -1;
+      iters.add(afters.get(i).iterator());
+    }
+
+    for (int root = 0; root < sz; ++root) {
+      if (in_degrees[root] == 0 || indexes[root] != -1)
+        continue;  // Placed, or already visited.
+
+      indexes[root] = lows[root] = count++;
+      stack.push(root);
+      is_stacked[root] = true;
+      calls.push(root);
+
+      while (!calls.isEmpty()) {
+        int i = calls.peek();
+        Iterator<Integer> iter = iters.get(i);
+
+        if (iter.hasNext()) {
+          int j = iter.next();
+
+          if (in_degrees[j] == 0)
+            continue;
+
+          if (indexes[j] == -1) {
+            indexes[j] = lows[j] = count++;
+            stack.push(j);
+            is_stacked[j] = true;
+            calls.push(j);
+          }
+          else if (is_stacked[j])
+            lows[i] = Math.min(lows[i], indexes[j]);
+
+          continue;
+        }
+
+        calls.pop();
+        if (!calls.isEmpty())
+          lows[calls.peek()] = Math.min(lows[calls.peek()], lows[i]);
+
+        if (lows[i] == indexes[i]) {
+          List<ChangeOp> component = new ArrayList<ChangeOp>();
+          int j;
+
+          do {
+            j = stack.pop();
+            is_stacked[j] = false;
+            component.add(0, blks.get(j));
+          } while (j != i);
+
+          if (component.size() > 1)
+            rc.add(component);
+        }
+      }
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the standing of a partition among those ready to be placed: plain
+   * changes, then resolved conflicts, then unresolved conflicts.
+   */
+  static private int rankOf(ChangeOp blk) {
+    if (!blk.isConflict())
+      return 0;
+
+    if (blk instanceof ContradictChangeOp
+        && ((ContradictChangeOp) blk).isResolved())
+      return 1;
+
+    return 2;
+  }
+}
@@ -14,6 +14,7 @@
 package ca.dsrg.mirador.merge;
 import ca.dsrg.mirador.MiradorException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -59,7 +60,9 @@ public class CompositeChangeOp extends ChangeOp {
 
 
   public ChangeOp setChange(int index, AtomicChangeOp to_set) {
-    return changes_.set(index, to_set);
+    ChangeOp rc = changes_.set(index, to_set);
+    indexMembers();
+    return rc;
   }
 
 
@@ -70,7 +73,9 @@ public class CompositeChangeOp extends ChangeOp {
    * @category  collection
    */
   public AtomicChangeOp removeChange(int index) {
-    return changes_.remove(index);
+    AtomicChangeOp rc = changes_.remove(index);
+    indexMembers();
+    return rc;
   }
 
 
@@ -89,6 +94,7 @@ public class CompositeChangeOp extends ChangeOp {
     if (!is_added)
       is_added = changes_.add(to_add);
 
+    addMember(to_add);
     return is_added;
   }
 
@@ -109,6 +115,47 @@ public class CompositeChangeOp extends ChangeOp {
   }
 
 
+  /**
+   * Gives the relation store numbers of the changes that make up this
+   * composite. The set is the composite's own and is not to be modified.
+   *
+   * @return  Numbers of the component changes.
+   * @category  collection
+   */
+  public BitSet getMembers() {
+    return members_;
+  }
+
+
+  /**
+   * Gives the store holding the relations of this composite's changes.
+   *
+   * @return  Relation store, null if the changes are in none.
+   * @category  getter
+   */
+  public RelationStore getRelationStore() {
+    return store_;
+  }
+
+
+  private void addMember(AtomicChangeOp member) {
+    if (member.getRelationStore() == null)
+      return;
+
+    store_ = member.getRelationStore();
+    members_.set(member.getIndex());
+  }
+
+
+  private void indexMembers() {
+    store_ = null;
+    members_.clear();
+
+    for (AtomicChangeOp member : changes_)
+      addMember(member);
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
   @Override public boolean isBefore(AtomicChangeOp to_test) {
     boolean rc = false;
@@ -197,5 +244,9 @@ public class CompositeChangeOp extends ChangeOp {
 
   // Instance data ----------------------------------------------------------
   private List<AtomicChangeOp> changes_ = new ArrayList<AtomicChangeOp>();
+
+  /** Store numbers of the changes, for testing against them as a group. */
+  private final BitSet members_ = new BitSet();
+  private RelationStore store_;
   // End instance data ------------------------------------------------------
 }
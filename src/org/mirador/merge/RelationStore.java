@@ -0,0 +1,165 @@
+/* --------------------------------------------------------------------------+
+   RelationStore.java - Relations among the atomic change operations of a
+     change op plane, held as bit rows over densely numbered changes.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Each change of the plane is numbered by its position in the store. For
+   every kind of relation a change has a bit row, set at the numbers of the
+   changes it is so related to; rows are made only once first needed. A
+   pair holds at most one relation, so setting one clears the others.
+   Testing a relation is then a bit lookup, and testing a change against a
+   group of changes a row intersection.
+   -------------------------------------------------------------------------*/
+package ca.dsrg.mirador.merge;
+import ca.dsrg.mirador.merge.AtomicChangeOp.Relation;
+import java.util.BitSet;
+import java.util.List;
+
+
+/**
+ * Relations among a fixed list of atomic change operations, each change
+ * numbered by its position in the list. A change may be related only to
+ * changes of the same store.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class RelationStore {
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ constructors
+  /**
+   * Numbers a list of changes and makes this the store of their relations.
+   * Relations the changes held before are dropped.
+   *
+   * @param  ops  Changes to be related, in numbering order.
+   */
+  public RelationStore(List<AtomicChangeOp> ops) {
+    ops_ = ops;
+    rows_ = new BitSet[Relation.values().length][ops.size()];
+
+    for (int i = 0; i < ops.size(); ++i)
+      ops.get(i).setRelationStore(this, i);
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the change of the given number.
+   *
+   * @param  index  Number of the change.
+   * @return  Change so numbered.
+   * @category  getter
+   */
+  public AtomicChangeOp getChange(int index) {
+    return ops_.get(index);
+  }
+
+
+  /**
+   * Gives the relation of one change to another.
+   *
+   * @param  from  Number of the relating change.
+   * @param  to  Number of the related change.
+   * @return  Relation of the pair, null if none.
+   * @category  getter
+   */
+  public Relation getRelation(int from, int to) {
+    for (Relation relation : RELATIONS) {
+      BitSet row = rows_[relation.ordinal()][from];
+
+      if (row != null && row.get(to))
+        return relation;
+    }
+
+    return null;
+  }
+
+
+  /**
+   * Sets the relation of one change to another, in place of any it held.
+   *
+   * @param  from  Number of the relating change.
+   * @param  to  Number of the related change.
+   * @param  relation  Relation of the pair, null for none.
+   * @category  setter
+   */
+  public void setRelation(int from, int to, Relation relation) {
+    for (Relation old : RELATIONS) {
+      BitSet row = rows_[old.ordinal()][from];
+
+      if (row != null)
+        row.clear(to);
+    }
+
+    if (relation != null) {
+      BitSet[] rows = rows_[relation.ordinal()];
+
+      if (rows[from] == null)
+        rows[from] = new BitSet();
+
+      rows[from].set(to);
+    }
+  }
+
+
+  /**
+   * Gives the numbers of the changes a change is related to by the given
+   * relation. The row is the store's own and is not to be modified.
+   *
+   * @param  from  Number of the relating change.
+   * @param  relation  Relation sought.
+   * @return  Numbers of the related changes.
+   * @category  getter
+   */
+  public BitSet getRelated(int from, Relation relation) {
+    BitSet row = rows_[relation.ordinal()][from];
+    return (row != null) ? row : EMPTY;
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
+  /**
+   * Gives the number of changes in the store.
+   *
+   * @return  Number of changes.
+   * @category  collection
+   */
+  public int size() {
+    return ops_.size();
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ predicates
+  /**
+   * Tells whether a change is related, by the given relation, to any of a
+   * group of changes.
+   *
+   * @param  from  Number of the relating change.
+   * @param  relation  Relation sought.
+   * @param  to  Numbers of the group of changes.
+   * @return  true = related to one at least, false = related to none
+   */
+  public boolean isRelated(int from, Relation relation, BitSet to) {
+    BitSet row = rows_[relation.ordinal()][from];
+    return (row != null && row.intersects(to));
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private final List<AtomicChangeOp> ops_;
+
+  /** Bit row of each change, by relation then change number. */
+  private final BitSet[][] rows_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final Relation[] RELATIONS = Relation.values();
+  static private final BitSet EMPTY = new BitSet(0);
+  // End class data ---------------------------------------------------------
+}
@@ -145,6 +145,28 @@ public class EcoreExtra {
   }
 
 
+  /**
+   * Gives the name signature last worked out for the element, which may be
+   * stale if the name has since changed. The signature is opaque here; only
+   * the name evaluator knows its type.
+   *
+   * @return  Cached name signature, null if none.
+   * @category  getter
+   */
+  public Object getNameSignature() {
+    return name_signature_;
+  }
+
+
+  /**
+   * @param  signature  Name signature to keep with the element.
+   * @category  setter
+   */
+  public void setNameSignature(Object signature) {
+    name_signature_ = signature;
+  }
+
+
   public TreePath getTreePath() { // Implement viewable??3
     return tree_path_;
   }
@@ -201,6 +223,28 @@ public class EcoreExtra {
   }
 
 
+  /**
+   * Tells whether the element was moved to another container, as well as, or
+   * instead of, having its features altered.
+   *
+   * @return  true = moved, false = not moved
+   * @category  getter
+   */
+  public boolean isMoved() {
+    return is_moved_;
+  }
+
+
+  /**
+   * Flags the element as moved to another container.
+   *
+   * @category  setter
+   */
+  public void setMoved() {
+    is_moved_ = true;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ state accessors
   @Override public String toString() {
     if (element_ == null)
@@ -262,6 +306,12 @@ public class EcoreExtra {
   private EcoreExtra match_;
 
   private boolean is_keep_match_;
+
+  /** Whether the altered element moved to another container. */
+  private boolean is_moved_;
+
+  /** Character pairs of the element name, kept for name evaluation. */
+  private Object name_signature_;
   // End instance data ------------------------------------------------------
 
 
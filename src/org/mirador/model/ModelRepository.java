@@ -19,6 +19,7 @@ package ca.dsrg.mirador.model;
 import ca.dsrg.mirador.Debug;
 import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
 import ca.dsrg.mirador.difference.EcoreDifference;
+import ca.dsrg.mirador.difference.EcoreDifference.ChangeConsumer;
 import ca.dsrg.mirador.difference.EcoreTyper;
 import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
 import ca.dsrg.mirador.match.MeasureMatrix;
@@ -38,6 +39,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -151,6 +153,30 @@ abstract public class ModelRepository {
   }
 
 
+  /**
+   * Gives the extras of the added, deleted, and altered elements of the left
+   * difference model, in the order they were found while differencing.
+   *
+   * @return  Extras of changed left difference model elements.
+   * @category  getter
+   */
+  public List<EcoreExtra> getDiffChangesLeft() {
+    return dchanges_lf_;
+  }
+
+
+  /**
+   * Gives the extras of the added, deleted, and altered elements of the right
+   * difference model, in the order they were found while differencing.
+   *
+   * @return  Extras of changed right difference model elements.
+   * @category  getter
+   */
+  public List<EcoreExtra> getDiffChangesRight() {
+    return dchanges_rt_;
+  }
+
+
   /**
    * Gives the input file for the common base model.
    *
@@ -257,48 +283,58 @@ abstract public class ModelRepository {
 
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
+  /**
+   * Builds the left and right difference models from the base model. Elements
+   * are categorized for both sides in a single walk of the base model, after
+   * which each side is built in turn, as both read the base model's EMF
+   * objects, which are not safe to share between threads. The changes of
+   * each side are collected as they are found, so that they need not be
+   * searched out of the difference models afterward.
+   */
   public void buildDifferenceModels() {
-    EcoreDifference differ;
-    String proj_id;
-    EPackage proj;
-    EPackage root;
+    EcoreDifference differ_lf =
+        new EcoreDifference(model_bs_.getXmiModel(), model_lf_.getXmiModel());
+    EcoreDifference differ_rt =
+        new EcoreDifference(model_bs_.getXmiModel(), model_rt_.getXmiModel());
 
-    differ =
-      new EcoreDifference(model_bs_.getXmiModel(), model_lf_.getXmiModel());
+    dchanges_lf_ = new ArrayList<EcoreExtra>();
+    dchanges_rt_ = new ArrayList<EcoreExtra>();
+    differ_lf.setChangeConsumer(collectorFor(dchanges_lf_));
+    differ_rt.setChangeConsumer(collectorFor(dchanges_rt_));
 
-    proj = (EPackage) EcoreUtil.copy(model_lf_.getProject());
-    proj_id = "project_left";
+    EcoreDifference.categorizeElements(differ_lf, differ_rt);
 
-    dmodel_lf_ = differ.differenceElements(proj);
-    dmodel_lf_.getXmiModel().setID(proj, proj_id);
+    dmodel_lf_ = buildDifferenceModel(differ_lf, model_lf_, "project_left");
+    dmodel_rt_ = buildDifferenceModel(differ_rt, model_rt_, "project_right");
+  }
 
-    // Make new project package part of difference model...
-    dmodel_lf_.addElement(proj_id, proj);
-    dmodel_lf_.setProject(proj);
-    dmodel_lf_.addExtra(proj, new EcoreExtra(proj, proj_id, EcoreType.NONE));
-
-    //   ...and set pointer to the model's root.
-    root = (EPackage) dmodel_lf_.getElement(model_lf_.getId(model_lf_.getRoot()));
-    dmodel_lf_.setRoot(root);
 
+  static private ChangeConsumer collectorFor(final List<EcoreExtra> changes) {
+    return new ChangeConsumer() {
+      @Override public void consume(EcoreExtra change) {
+        changes.add(change);
+      }
+    };
+  }
 
-    differ =
-        new EcoreDifference(model_bs_.getXmiModel(), model_rt_.getXmiModel());
 
-    proj = (EPackage) EcoreUtil.copy(model_rt_.getProject());
-    proj_id = "project_right";
+  static private MiradorModel buildDifferenceModel(EcoreDifference differ,
+      MiradorModel model, String proj_id) {
+    EPackage proj = (EPackage) EcoreUtil.copy(model.getProject());
 
-    dmodel_rt_ = differ.differenceElements(proj);
-    dmodel_rt_.getXmiModel().setID(proj, proj_id);
+    MiradorModel dmodel = differ.differenceElements(proj);
+    dmodel.getXmiModel().setID(proj, proj_id);
 
     // Make new project package part of difference model...
-    dmodel_rt_.addElement(proj_id, proj);
-    dmodel_rt_.setProject(proj);
-    dmodel_rt_.addExtra(proj, new EcoreExtra(proj, proj_id, EcoreType.NONE));
+    dmodel.addElement(proj_id, proj);
+    dmodel.setProject(proj);
+    dmodel.addExtra(proj, new EcoreExtra(proj, proj_id, EcoreType.NONE));
 
     //   ...and set pointer to the model's root.
-    root = (EPackage) dmodel_rt_.getElement(model_rt_.getId(model_rt_.getRoot()));
-    dmodel_rt_.setRoot(root);
+    EPackage root = (EPackage) dmodel.getElement(model.getId(model.getRoot()));
+    dmodel.setRoot(root);
+
+    return dmodel;
   }
 
 
@@ -516,6 +552,10 @@ abstract public class ModelRepository {
   protected MiradorModel dmodel_lf_;
   protected MiradorModel dmodel_rt_;
 
+  /** Changed difference model elements, in the order found. */
+  protected List<EcoreExtra> dchanges_lf_;
+  protected List<EcoreExtra> dchanges_rt_;
+
   /** Merged trace of change operations in various forms. */
   protected Map<AtomicChangeOp, ChangeOp> changes_map_;
   protected Set<ChangeOp> changes_set_;
@@ -28,7 +28,11 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({TestConstants.class, TestFujabaPluginLaunch.class,
     TestFujabaRecords.class, TestFujabaRecordFactory.class,
-    TestFujabaTransaction.class}) //TestEvaluators.class, TestMChangeRepository.class
+    TestFujabaTransaction.class, TestAssignmentMatcher.class,
+    TestElementMatcher.class, TestDependencyEvaluator.class,
+    TestSimilarityCache.class, TestEcoreDifference.class,
+    TestChangeOpSorter.class, TestChangeOpPlane.class,
+    TestRelationStore.class}) //TestEvaluators.class, TestMChangeRepository.class
 public class AllUnits {
   @Before
   public void setUp() throws Exception {
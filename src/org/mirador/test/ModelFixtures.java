@@ -0,0 +1,61 @@
+/* --------------------------------------------------------------------------+
+   ModelFixtures.java - Builds the model elements and change operations the
+     unit tests work on.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.difference.EcoreTyper;
+import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
+import ca.dsrg.mirador.merge.AddChangeOp;
+import ca.dsrg.mirador.merge.AtomicChangeOp;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EcoreFactory;
+
+
+/**
+ * Provides model elements and change operations for test purposes.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ */
+public class ModelFixtures {
+  /**
+   * Makes a change adding a class, named by its ID in upper case.
+   *
+   * @param  id  ID of the added class.
+   * @param  side  Side the change is from.
+   * @return  Atomic change, in no relation store.
+   */
+  static public AtomicChangeOp makeOp(String id, MergeSide side) {
+    EClass element = EcoreFactory.eINSTANCE.createEClass();
+    element.setName(id.toUpperCase());
+    return new AddChangeOp(new EcoreExtra(element, id, EcoreType.CLASS),
+        side);
+  }
+
+
+  /**
+   * Enters an element into a model under the given ID, with its extra.
+   *
+   * @param  model  Model holding the element.
+   * @param  element  Element entered.
+   * @param  id  XMI ID of the element.
+   */
+  static public void register(MiradorModel model, ENamedElement element,
+      String id) {
+    model.getXmiModel().setID(element, id);
+    model.addElement(id, element);
+    model.addExtra(element,
+        new EcoreExtra(element, id, EcoreTyper.typeEObject(element)));
+  }
+}
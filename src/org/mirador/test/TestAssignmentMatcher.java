@@ -0,0 +1,225 @@
+/* --------------------------------------------------------------------------+
+   TestAssignmentMatcher.java - Unit tests for the optimal assignment of
+     matches over a rankings matrix.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Small matrices of random sparse measures are matched both by the matcher
+   and by trying every assignment, and the totals compared. Measures are
+   multiples of one tenth, so that ties are common.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
+import ca.dsrg.mirador.match.AssignmentMatcher;
+import ca.dsrg.mirador.match.MatchStrategy;
+import ca.dsrg.mirador.match.MeasureMatrix;
+import ca.dsrg.mirador.model.EcoreExtra;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Tests that class <b>AssignmentMatcher</b> finds the assignment of greatest
+ * total measure, and leaves kept matches as they are.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  AssignmentMatcher
+ */
+public class TestAssignmentMatcher {
+  @Before public void setUp() {
+    strategies_ = new ArrayList<MatchStrategy>();
+    strategies_.add(new MatchStrategy(null, 1f, "Overall", null, null));
+    random_ = new Random(3);
+  }
+
+  /**
+   * Asserts the matched total against that of every possible assignment.
+   */
+  @Test public final void testOptimal() {
+    for (int trial = 0; trial < TRIALS; ++trial) {
+      makeMatrix();
+      float limit = random_.nextInt(3) * 0.2f;
+
+      assertEquals("\nMatched total, trial " + trial,
+          bruteForce(0, new boolean[to_.length], limit),
+          AssignmentMatcher.matchOptimal(rankings_, limit), TOLERANCE);
+    }
+  }
+
+
+  /**
+   * Asserts that the returned total is that of the matches made, and that
+   * no element is matched twice or below the limit.
+   */
+  @Test public final void testMatches() {
+    for (int trial = 0; trial < TRIALS; ++trial) {
+      makeMatrix();
+      float limit = random_.nextInt(3) * 0.2f;
+      float total = AssignmentMatcher.matchOptimal(rankings_, limit);
+      Set<EcoreExtra> matched = new HashSet<EcoreExtra>();
+      float sum = 0;
+
+      for (int i = 0; i < from_.length; ++i) {
+        EcoreExtra to = from_[i].getMatch();
+
+        if (to != null) {
+          int j = Integer.parseInt(to.getId().substring(1));
+
+          assertTrue("\nMatched once, trial " + trial, matched.add(to));
+          assertTrue("\nMatched at or above limit, trial " + trial,
+              measures_[i][j] >= limit);
+          sum += measures_[i][j];
+        }
+      }
+
+      assertEquals("\nReturned total, trial " + trial, sum, total, TOLERANCE);
+    }
+  }
+
+
+  /**
+   * Asserts that a kept match survives, and that neither of its elements is
+   * offered to the others.
+   */
+  @Test public final void testKeepMatch() {
+    for (int trial = 0; trial < TRIALS; ++trial) {
+      makeMatrix();
+
+      if (from_.length < 2 || to_.length < 2)
+        continue;
+
+      from_[0].setMatch(to_[0]);
+      from_[0].setKeepMatch();
+
+      for (int j = 0; j < to_.length; ++j)
+        measures_[0][j] = NONE;
+      for (int i = 0; i < from_.length; ++i)
+        measures_[i][0] = NONE;
+
+      float limit = random_.nextInt(3) * 0.2f;
+
+      assertEquals("\nMatched total with kept match, trial " + trial,
+          bruteForce(0, new boolean[to_.length], limit),
+          AssignmentMatcher.matchOptimal(rankings_, limit), TOLERANCE);
+      assertSame("\nKept match, trial " + trial, to_[0], from_[0].getMatch());
+
+      for (int i = 1; i < from_.length; ++i)
+        assertTrue("\nKept element offered, trial " + trial,
+            from_[i].getMatch() != to_[0]);
+    }
+  }
+
+
+  /**
+   * Asserts that nothing below the limit is matched.
+   */
+  @Test public final void testLimit() {
+    makeElements(1, 1);
+    rankings_.put(from_[0], to_[0]);
+    rankings_.get("f0", "t0").put(0, 0.3f);
+
+    assertEquals("\nMatched total below limit",
+        0f, AssignmentMatcher.matchOptimal(rankings_, 0.5f), TOLERANCE);
+    assertNull("\nMatch below limit", from_[0].getMatch());
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Gives the greatest total over the assignments of rows from the given one
+   * on, trying each free column and no column for the row.
+   */
+  private float bruteForce(int i, boolean[] is_used, float limit) {
+    if (i == from_.length)
+      return 0;
+
+    float rc = bruteForce(i + 1, is_used, limit);
+
+    for (int j = 0; j < to_.length; ++j) {
+      if (!is_used[j] && measures_[i][j] != NONE
+          && measures_[i][j] >= limit) {
+        is_used[j] = true;
+        rc = Math.max(rc, measures_[i][j] + bruteForce(i + 1, is_used, limit));
+        is_used[j] = false;
+      }
+    }
+
+    return rc;
+  }
+
+
+  private void makeElements(int from_ct, int to_ct) {
+    rankings_ = new MeasureMatrix(strategies_);
+    from_ = new EcoreExtra[from_ct];
+    to_ = new EcoreExtra[to_ct];
+    measures_ = new float[from_ct][to_ct];
+
+    for (int i = 0; i < from_ct; ++i)
+      from_[i] = makeElement("f" + i);
+    for (int j = 0; j < to_ct; ++j)
+      to_[j] = makeElement("t" + j);
+  }
+
+
+  private EcoreExtra makeElement(String id) {
+    EClass element = EcoreFactory.eINSTANCE.createEClass();
+    element.setName(id);
+    return new EcoreExtra(element, id, EcoreType.CLASS);
+  }
+
+
+  /**
+   * Makes a matrix of up to six rows and columns, about two in three of its
+   * cells holding a measure.
+   */
+  private void makeMatrix() {
+    makeElements(1 + random_.nextInt(6), 1 + random_.nextInt(6));
+
+    for (int i = 0; i < from_.length; ++i) {
+      for (int j = 0; j < to_.length; ++j) {
+        measures_[i][j] = NONE;
+
+        if (random_.nextInt(3) > 0) {
+          measures_[i][j] = random_.nextInt(11) / 10f;
+          rankings_.put(from_[i], to_[j]);
+          rankings_.get(from_[i].getId(), to_[j].getId())
+              .put(0, measures_[i][j]);
+        }
+      }
+    }
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private List<MatchStrategy> strategies_;
+  private Random random_;
+  private MeasureMatrix rankings_;
+  private EcoreExtra[] from_;
+  private EcoreExtra[] to_;
+  private float[][] measures_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int TRIALS = 300;
+  static private final float NONE = -1f;
+  static private final float TOLERANCE = 1e-4f;
+  // End class data ---------------------------------------------------------
+}
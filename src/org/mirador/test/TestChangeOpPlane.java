@@ -0,0 +1,150 @@
+/* --------------------------------------------------------------------------+
+   TestChangeOpPlane.java - Unit tests for the partitioning of change
+     operations by conflict.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   The store numbers three left changes, then two right ones, as the plane
+   does. Conflicts are marked both ways, as precedence marking leaves them.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.merge.AtomicChangeOp;
+import ca.dsrg.mirador.merge.AtomicChangeOp.Relation;
+import ca.dsrg.mirador.merge.ChangeOp;
+import ca.dsrg.mirador.merge.ChangeOpPlane;
+import ca.dsrg.mirador.merge.CompositeChangeOp;
+import ca.dsrg.mirador.merge.ContradictChangeOp;
+import ca.dsrg.mirador.merge.RelationStore;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Tests that class <b>ChangeOpPlane</b> partitions changes by the conflicts
+ * among them, joining partitions once a conflict links them.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  ChangeOpPlane
+ */
+public class TestChangeOpPlane {
+  @Before public void setUp() {
+    ops_ = new ArrayList<AtomicChangeOp>();
+
+    for (int i = 0; i < LEFT_CT; ++i)
+      ops_.add(ModelFixtures.makeOp("l" + i, MergeSide.LEFT));
+    for (int i = 0; i < RIGHT_CT; ++i)
+      ops_.add(ModelFixtures.makeOp("r" + i, MergeSide.RIGHT));
+
+    store_ = new RelationStore(ops_);
+  }
+
+  /**
+   * Asserts that unlinked conflicts make separate partitions, and that a
+   * change in conflict with none is its own partition.
+   */
+  @Test public final void testSeparatePartitions() {
+    conflict(L0, R0);
+    conflict(L1, R1);
+
+    Map<AtomicChangeOp, ChangeOp> blk_map =
+        ChangeOpPlane.partitionChanges(store_);
+
+    assertPartition(blk_map, Arrays.asList(L0), Arrays.asList(R0));
+    assertPartition(blk_map, Arrays.asList(L1), Arrays.asList(R1));
+    assertNotSame("\nPartitions joined",
+        blk_map.get(ops_.get(L0)), blk_map.get(ops_.get(L1)));
+    assertSame("\nPartition of change in no conflict",
+        ops_.get(L2), blk_map.get(ops_.get(L2)));
+  }
+
+
+  /**
+   * Asserts that two partitions formed separately are joined into one when
+   * a conflict found after them links them.
+   */
+  @Test public final void testJoinedPartitions() {
+    conflict(L0, R0);
+    conflict(L1, R1);
+    conflict(R0, L1);  // Reached only once both partitions are formed.
+
+    Map<AtomicChangeOp, ChangeOp> blk_map =
+        ChangeOpPlane.partitionChanges(store_);
+
+    assertPartition(blk_map, Arrays.asList(L0, L1), Arrays.asList(R0, R1));
+    assertSame("\nPartition of change in no conflict",
+        ops_.get(L2), blk_map.get(ops_.get(L2)));
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Asserts that the given left and right changes, and only they, make up
+   * one conflict partition, each side in store order.
+   */
+  private void assertPartition(Map<AtomicChangeOp, ChangeOp> blk_map,
+      List<Integer> lefts, List<Integer> rights) {
+    ChangeOp blk = blk_map.get(ops_.get(lefts.get(0)));
+
+    assertTrue("\nConflict partition", blk instanceof ContradictChangeOp);
+    assertEquals("\nLeft changes", lefts,
+        indexesOf(((ContradictChangeOp) blk).getChangeLeft()));
+    assertEquals("\nRight changes", rights,
+        indexesOf(((ContradictChangeOp) blk).getChangeRight()));
+
+    for (AtomicChangeOp op : ops_) {
+      assertEquals("\nPartition of " + op,
+          lefts.contains(op.getIndex()) || rights.contains(op.getIndex()),
+          blk_map.get(op) == blk);
+    }
+  }
+
+
+  private List<Integer> indexesOf(CompositeChangeOp blk) {
+    List<Integer> rc = new ArrayList<Integer>();
+
+    for (int i = 0; i < blk.changesSize(); ++i)
+      rc.add(blk.getChange(i).getIndex());
+
+    return rc;
+  }
+
+
+  private void conflict(int left, int right) {
+    ops_.get(left).addRelation(ops_.get(right), Relation.CONFLICT);
+    ops_.get(right).addRelation(ops_.get(left), Relation.CONFLICT);
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private List<AtomicChangeOp> ops_;
+  private RelationStore store_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int LEFT_CT = 3;
+  static private final int RIGHT_CT = 2;
+
+  /** Store numbers of the changes. */
+  static private final int L0 = 0;
+  static private final int L1 = 1;
+  static private final int L2 = 2;
+  static private final int R0 = LEFT_CT;
+  static private final int R1 = LEFT_CT + 1;
+  // End class data ---------------------------------------------------------
+}
@@ -0,0 +1,197 @@
+/* --------------------------------------------------------------------------+
+   TestChangeOpSorter.java - Unit tests for the topological ordering of
+     change op partitions.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Each case numbers a few atomic changes in one relation store, groups them
+   into partitions, and relates partitions through before relations among
+   their changes.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import ca.dsrg.mirador.MiradorException;
+import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.merge.AtomicChangeOp;
+import ca.dsrg.mirador.merge.AtomicChangeOp.Relation;
+import ca.dsrg.mirador.merge.ChangeOp;
+import ca.dsrg.mirador.merge.ChangeOpSorter;
+import ca.dsrg.mirador.merge.CompositeChangeOp;
+import ca.dsrg.mirador.merge.ContradictChangeOp;
+import ca.dsrg.mirador.merge.RelationStore;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Tests that class <b>ChangeOpSorter</b> places each partition after those
+ * before it, sinks conflicts as far as that allows, and names the cycles of
+ * partitions that cannot be ordered.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  ChangeOpSorter
+ */
+public class TestChangeOpSorter {
+  @Before public void setUp() {
+    ops_ = new ArrayList<AtomicChangeOp>();
+    blk_map_ = new LinkedHashMap<AtomicChangeOp, ChangeOp>();
+
+    for (int i = 0; i < OP_CT; ++i) {
+      ops_.add(ModelFixtures.makeOp("c" + i,
+          (i % 2 == 0) ? MergeSide.LEFT : MergeSide.RIGHT));
+    }
+
+    new RelationStore(ops_);
+  }
+
+  /**
+   * Asserts that, with no precedence among them, plain partitions go first,
+   * then resolved conflicts, then unresolved ones, each in given order.
+   */
+  @Test public final void testConflictSinking() {
+    ChangeOp unresolved = makeConflict(0, 1, false);
+    ChangeOp resolved = makeConflict(2, 3, true);
+    ChangeOp plain1 = makePlain(4);
+    ChangeOp plain2 = makePlain(6);
+
+    assertEquals("\nOrder of unrelated partitions",
+        Arrays.asList(plain1, plain2, resolved, unresolved),
+        ChangeOpSorter.sort(
+            Arrays.asList(unresolved, resolved, plain1, plain2), blk_map_));
+  }
+
+
+  /**
+   * Asserts that precedence overrides sinking: conflicts before plain
+   * partitions are placed ahead of them, the resolved one first.
+   */
+  @Test public final void testPrecedence() {
+    ChangeOp unresolved = makeConflict(0, 1, false);
+    ChangeOp resolved = makeConflict(2, 3, true);
+    ChangeOp plain1 = makePlain(4);
+    ChangeOp plain2 = makePlain(6);
+
+    relate(4, 6);  // plain1 before plain2.
+    relate(3, 6);  // resolved before plain2.
+    relate(1, 4);  // unresolved before plain1.
+
+    List<ChangeOp> blks = Arrays.asList(plain2, plain1, resolved, unresolved);
+
+    assertEquals("\nOrder of related partitions",
+        Arrays.asList(resolved, unresolved, plain1, plain2),
+        ChangeOpSorter.sort(blks, blk_map_));
+  }
+
+
+  /**
+   * Asserts that a partition of related changes within itself, and one
+   * related to changes outside the partition list, are ordered as unrelated.
+   */
+  @Test public final void testIgnoredRelations() {
+    ChangeOp plain1 = makePlain(0, 2);
+    ChangeOp plain2 = makePlain(4);
+    makePlain(6);
+
+    relate(0, 2);
+    relate(2, 0);
+    relate(6, 4);
+
+    assertEquals("\nOrder of partitions", Arrays.asList(plain2, plain1),
+        ChangeOpSorter.sort(Arrays.asList(plain2, plain1), blk_map_));
+  }
+
+
+  /**
+   * Asserts that circularly related partitions are refused, and that the
+   * error names each cycle, in search order, but not the partitions merely
+   * before or after one.
+   */
+  @Test public final void testCycles() {
+    ChangeOp head = makePlain(0);
+    ChangeOp cycle1a = makePlain(1);
+    ChangeOp cycle1b = makePlain(2);
+    ChangeOp cycle1c = makePlain(3);
+    ChangeOp cycle2a = makePlain(4);
+    ChangeOp cycle2b = makePlain(5);
+    ChangeOp tail = makePlain(6);
+
+    relate(0, 1);
+    relate(1, 2);
+    relate(2, 3);
+    relate(3, 1);  // First cycle.
+    relate(3, 4);
+    relate(4, 5);
+    relate(5, 4);  // Second cycle, after the first.
+    relate(5, 6);
+
+    try {
+      ChangeOpSorter.sort(Arrays.asList(tail, cycle2b, cycle2a, cycle1c,
+          cycle1b, cycle1a, head), blk_map_);
+      fail("\nCircular partitions ordered");
+    }
+    catch (MiradorException ex) {
+      assertEquals("\nNamed cycles", "Change op partition has circular"
+          + " reference: " + Arrays.asList(Arrays.asList(cycle2b, cycle2a),
+              Arrays.asList(cycle1c, cycle1a, cycle1b)), ex.getMessage());
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Makes a partition of changes from one side.
+   */
+  private ChangeOp makePlain(int... indexes) {
+    CompositeChangeOp rc = new CompositeChangeOp(ops_.get(indexes[0]));
+    blk_map_.put(ops_.get(indexes[0]), rc);
+
+    for (int i = 1; i < indexes.length; ++i) {
+      ops_.get(indexes[i]).addToComposite(rc);
+      blk_map_.put(ops_.get(indexes[i]), rc);
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Makes a conflict partition of a left and a right change.
+   */
+  private ChangeOp makeConflict(int left, int right, boolean is_resolved) {
+    ContradictChangeOp rc =
+        new ContradictChangeOp(ops_.get(left), ops_.get(right));
+    rc.setDebug(is_resolved);
+    blk_map_.put(ops_.get(left), rc);
+    blk_map_.put(ops_.get(right), rc);
+
+    return rc;
+  }
+
+
+  private void relate(int from, int to) {
+    ops_.get(from).addRelation(ops_.get(to), Relation.BEFORE);
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private List<AtomicChangeOp> ops_;
+  private Map<AtomicChangeOp, ChangeOp> blk_map_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int OP_CT = 7;
+  // End class data ---------------------------------------------------------
+}
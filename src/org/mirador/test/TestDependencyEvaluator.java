@@ -0,0 +1,264 @@
+/* --------------------------------------------------------------------------+
+   TestDependencyEvaluator.java - Unit tests for the propagation of
+     similarity across model element dependencies.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Pairs are seeded directly in the matrix, as if measured by a name strategy,
+   and then propagated. The timed case generates two like models of a given
+   number of classes, each class with a supertype, attributes and references,
+   and pairs the elements of like kind within a window of classes; the
+   matrix size and propagation time for each size go to the debug stream.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.match.DependencyEvaluator;
+import ca.dsrg.mirador.match.MatchStrategy;
+import ca.dsrg.mirador.match.MeasureMatrix;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureCell;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureRow;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Tests that class <b>DependencyEvaluator</b> leaves pairs unmeasured until
+ * propagated, and then favours pairs whose dependencies are alike.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  DependencyEvaluator
+ */
+public class TestDependencyEvaluator {
+  @Before public void setUp() {
+    evaluator_ = new DependencyEvaluator(0.5f);
+    strategies_ = new ArrayList<MatchStrategy>();
+    strategies_.add(new MatchStrategy(null, 1f, "Overall", null, null));
+    strategies_.add(new MatchStrategy(null, 0.5f, "by Name", null, null));
+    strategies_.add(new MatchStrategy(evaluator_, 0.5f, "by Depend", null,
+        null));
+  }
+
+  /**
+   * Asserts that a pair of classes rises above its rivals once propagated
+   * from the pair of references typed by them, and the pair of classes
+   * containing those references likewise.
+   */
+  @Test public final void testPropagate() {
+    MiradorModel lhs = makeModel(2, 0, 0);
+    MiradorModel rhs = makeModel(2, 0, 0);
+    MeasureMatrix measures = new MeasureMatrix(strategies_);
+
+    // Every pair of classes is alike by name; only the references are told.
+    for (String from_id : new String[] {"c0", "c1"}) {
+      for (String to_id : new String[] {"c0", "c1"}) {
+        seed(measures, lhs, rhs, from_id, to_id, 0.5f);
+
+        assertEquals("\nDependency measure before propagating",
+            0f, evaluator_.evaluate(lhs.getExtra(from_id),
+                rhs.getExtra(to_id)), 0f);
+      }
+    }
+
+    seed(measures, lhs, rhs, "c0r0", "c0r0", 1f);
+    seed(measures, lhs, rhs, "c1r0", "c1r0", 1f);
+
+    assertTrue("\nPropagated", evaluator_.propagate(measures, DEPEND));
+
+    // c0 holds a reference typed by c1, and c1 one typed by c0.
+    for (String from_id : new String[] {"c0", "c1"}) {
+      String rival_id = from_id.equals("c0") ? "c1" : "c0";
+      float same = measures.get(from_id, from_id).getMeasure(DEPEND);
+      float rival = measures.get(from_id, rival_id).getMeasure(DEPEND);
+
+      assertTrue("\nLinked pair " + from_id + " rises above rival: "
+          + same + " <= " + rival, same > rival);
+      assertTrue("\nLinked pair " + from_id + " rises above its seed: "
+          + same + " <= " + 0.5f, same > 0.5f);
+    }
+  }
+
+
+  /**
+   * Asserts that an empty matrix, or one without models, is left as is.
+   */
+  @Test public final void testNothingToPropagate() {
+    assertTrue("\nPropagated empty matrix",
+        !evaluator_.propagate(new MeasureMatrix(strategies_), DEPEND));
+  }
+
+
+  /**
+   * Asserts that propagation recovers renamed classes from their
+   * dependencies, timing it over generated models of growing size.
+   */
+  @Test public final void testGenerated() {
+    for (int class_ct : CLASS_COUNTS) {
+      MiradorModel lhs = makeModel(class_ct, 3, 0);
+      MiradorModel rhs = makeModel(class_ct, 3, 4);
+      MeasureMatrix measures = seedWindow(lhs, rhs, class_ct, 3);
+      int pair_ct = 0;
+
+      for (MeasureRow row : measures.values())
+        pair_ct += row.size();
+
+      int element_ct = 0;
+      for (Iterator<EcoreExtra> it = lhs.extraIterator(); it.hasNext();) {
+        it.next();
+        ++element_ct;
+      }
+
+      long start = System.nanoTime();
+      evaluator_.propagate(measures, DEPEND);
+      long elapsed = (System.nanoTime() - start) / 1000000;
+
+      int renamed_ct = 0;
+      int recovered_ct = 0;
+
+      for (int i = 0; i < class_ct; i += 4) {
+        String id = "c" + i;
+        MeasureRow row = measures.get(id);
+        MeasureCell best = null;
+
+        for (MeasureCell cell : row.values()) {
+          if (best == null
+              || cell.getMeasure(DEPEND) > best.getMeasure(DEPEND))
+            best = cell;
+        }
+
+        ++renamed_ct;
+        if (best.getToElement().getId().equals(id))
+          ++recovered_ct;
+      }
+
+      Debug.dbg.format("Dependency propagation: %d elements, %d pairs,"
+          + " %d ms, %d of %d renamed classes recovered\n",
+          element_ct, pair_ct, elapsed, recovered_ct, renamed_ct);
+      assertTrue("\nRenamed classes recovered: " + recovered_ct + " of "
+          + renamed_ct, recovered_ct * 10 >= renamed_ct * 9);
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Makes a model of classes in one package. Class i has class (i - 1) / 2
+   * as supertype, a few string attributes, and two references, typed by
+   * classes i + 1 and 3i + 2 (modulo the number of classes).
+   *
+   * @param  renamed  Every so many classes are renamed, 0 for none.
+   */
+  private MiradorModel makeModel(int class_ct, int attribute_ct,
+      int renamed) {
+    EcoreFactory factory = EcoreFactory.eINSTANCE;
+    MiradorModel rc = new MiradorModel();
+    EPackage pkg = factory.createEPackage();
+    pkg.setName("root");
+    rc.getXmiModel().getContents().add(pkg);
+    ModelFixtures.register(rc, pkg, "root");
+
+    EClass[] classes = new EClass[class_ct];
+    for (int i = 0; i < class_ct; ++i) {
+      classes[i] = factory.createEClass();
+      classes[i].setName(((renamed > 0 && i % renamed == 0) ? "Renamed" : "C")
+          + i);
+      pkg.getEClassifiers().add(classes[i]);
+      ModelFixtures.register(rc, classes[i], "c" + i);
+    }
+
+    for (int i = 0; i < class_ct; ++i) {
+      if (i > 0)
+        classes[i].getESuperTypes().add(classes[(i - 1) / 2]);
+
+      for (int j = 0; j < attribute_ct; ++j) {
+        EAttribute attribute = factory.createEAttribute();
+        attribute.setName("a" + j);
+        attribute.setEType(EcorePackage.Literals.ESTRING);
+        classes[i].getEStructuralFeatures().add(attribute);
+        ModelFixtures.register(rc, attribute, "c" + i + "a" + j);
+      }
+
+      int[] types = {(i + 1) % class_ct, (3 * i + 2) % class_ct};
+      for (int j = 0; j < types.length; ++j) {
+        EReference reference = factory.createEReference();
+        reference.setName("r" + j);
+        reference.setEType(classes[types[j]]);
+        classes[i].getEStructuralFeatures().add(reference);
+        ModelFixtures.register(rc, reference, "c" + i + "r" + j);
+      }
+    }
+
+    return rc;
+  }
+
+
+  private void seed(MeasureMatrix measures, MiradorModel lhs,
+      MiradorModel rhs, String from_id, String to_id, float measure) {
+    measures.put(lhs.getExtra(from_id),
+        rhs.getExtra(to_id));
+    measures.get(from_id, to_id).put(NAME, measure);
+  }
+
+
+  /**
+   * Pairs each element with those of like kind and position in the classes
+   * within a window either side of its own, seeding as a name strategy
+   * would: alike names score high, others by chance lower.
+   */
+  private MeasureMatrix seedWindow(MiradorModel lhs, MiradorModel rhs,
+      int class_ct, int window) {
+    MeasureMatrix rc = new MeasureMatrix(strategies_);
+    Random random = new Random(7);
+
+    for (int i = 0; i < class_ct; ++i) {
+      for (int k = Math.max(0, i - window);
+          k <= Math.min(class_ct - 1, i + window); ++k) {
+        String class_name = rhs.getElement("c" + k).getName();
+        seed(rc, lhs, rhs, "c" + i, "c" + k,
+            class_name.equals(lhs.getElement("c" + i).getName())
+                ? 1f : 0.5f * random.nextFloat());
+
+        for (String member : new String[] {"a0", "a1", "a2", "r0", "r1"}) {
+          seed(rc, lhs, rhs, "c" + i + member, "c" + k + member,
+              0.5f + 0.5f * random.nextFloat());
+        }
+      }
+    }
+
+    return rc;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private DependencyEvaluator evaluator_;
+  private List<MatchStrategy> strategies_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int NAME = 1;
+  static private final int DEPEND = 2;
+
+  /** Sizes of the generated models timed, in classes. */
+  static private final int[] CLASS_COUNTS = {1000, 4000};
+  // End class data ---------------------------------------------------------
+}
@@ -0,0 +1,489 @@
+/* --------------------------------------------------------------------------+
+   TestEcoreDifference.java - Unit tests for the differencing of a replica
+     from its original model.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   The categorizing cases make a small original of a few classes, and replicas
+   of it with renamed, moved, retyped, deleted, and added elements, and edited
+   supertypes. An element is altered when its own feature values change, or
+   it moves to another container. Elements it refers to count by ID, so are
+   no cause of alteration when they change. Every altered element is to give
+   its alteration a non-zero mask of changed features.
+
+   The timed case generates an original model of a given number of classes,
+   each with attributes and references, and a replica of it in which some
+   classes lose an attribute and others gain one. It times differencing the
+   replica at each size, taking the best of a few runs after a warm-up, and
+   bounds the growth of the time by that of the model, times a constant
+   slack for noise: growth with the square of the size would exceed it more
+   than twice over.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import ca.dsrg.mirador.Debug;
+import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.difference.EcoreDifference;
+import ca.dsrg.mirador.difference.MiradorTyper.MiradorType;
+import ca.dsrg.mirador.merge.AlterChangeOp;
+import ca.dsrg.mirador.model.AlteredEElement;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+
+/**
+ * Tests the differencing of a replica from its original model by class
+ * <b>EcoreDifference</b>.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  EcoreDifference
+ */
+public class TestEcoreDifference {
+  /**
+   * Asserts that a renamed element is altered, but not those referring to
+   * it, nor its container.
+   */
+  @Test public final void testRename() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    ((EClass) replica.getElement("A")).setName("Account");
+
+    MiradorModel diff = difference(original, replica);
+
+    assertEquals("\nAltered by rename", ids("A"),
+        idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nDeleted by rename", ids(),
+        idsOf(diff, MiradorType.DELETE));
+    assertEquals("\nAdded by rename", ids(), idsOf(diff, MiradorType.ADD));
+  }
+
+
+  /**
+   * Asserts that an element moved to another container is altered, but
+   * neither container is.
+   */
+  @Test public final void testMove() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    ((EClass) replica.getElement("C")).getEStructuralFeatures().add(
+        (EAttribute) replica.getElement("b1"));
+
+    MiradorModel diff = difference(original, replica);
+
+    assertEquals("\nAltered by move", ids("b1"),
+        idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nDeleted by move", ids(),
+        idsOf(diff, MiradorType.DELETE));
+  }
+
+
+  /**
+   * Asserts that a class whose supertypes are edited is altered, but not
+   * its old or new supertype, nor its subtypes.
+   */
+  @Test public final void testSupertypes() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    EClass d_cls = (EClass) replica.getElement("D");
+    d_cls.getESuperTypes().clear();
+    d_cls.getESuperTypes().add((EClass) replica.getElement("G"));
+
+    MiradorModel diff = difference(original, replica);
+
+    assertEquals("\nAltered by supertype edit", ids("D"),
+        idsOf(diff, MiradorType.ALTER));
+  }
+
+
+  /**
+   * Asserts that deleting and retyping attributes gives just the deleted
+   * and retyped attributes, not their containers.
+   */
+  @Test public final void testDeleteRetype() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    ((EClass) replica.getElement("F")).getEStructuralFeatures().remove(
+        replica.getElement("f1"));
+    ((EAttribute) replica.getElement("g0")).setEType(
+        EcorePackage.Literals.EINT);
+
+    MiradorModel diff = difference(original, replica);
+
+    assertEquals("\nAltered by retype", ids("g0"),
+        idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nDeleted", ids("f1"), idsOf(diff, MiradorType.DELETE));
+  }
+
+
+  /**
+   * Asserts that deleting a class deletes its contents too, save those
+   * moved out of it first, which are altered.
+   */
+  @Test public final void testDeleteSubtree() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    EClass f_cls = (EClass) replica.getElement("F");
+    ((EClass) replica.getElement("G")).getEStructuralFeatures().add(
+        (EAttribute) replica.getElement("f0"));
+    ((EPackage) replica.getElement("root")).getEClassifiers().remove(f_cls);
+
+    MiradorModel diff = difference(original, replica);
+
+    assertEquals("\nAltered by delete", ids("f0"),
+        idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nDeleted", ids("F", "f1"),
+        idsOf(diff, MiradorType.DELETE));
+  }
+
+
+  /**
+   * Asserts that an edit to a feature the difference model holds, but that
+   * was once compared by neither, alters the element with that feature in
+   * its mask, and that a move sets the container feature in the mask.
+   */
+  @Test public final void testFeatureMasks() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    ((EAttribute) replica.getElement("b0")).setID(true);
+    ((EReference) replica.getElement("e0")).setContainment(true);
+    ((EClass) replica.getElement("C")).getEStructuralFeatures().add(
+        (EAttribute) replica.getElement("f1"));
+
+    Map<String, Long> masks = masksOf(difference(original, replica));
+
+    assertEquals("\nAltered", ids("b0", "e0", "f1"), masks.keySet());
+    assertEquals("\nMask of iD edit",
+        1L << EcorePackage.EATTRIBUTE__ID, (long) masks.get("b0"));
+    assertEquals("\nMask of containment edit",
+        1L << EcorePackage.EREFERENCE__CONTAINMENT, (long) masks.get("e0"));
+    assertEquals("\nMask of move",
+        1L << EcorePackage.EATTRIBUTE__ECONTAINING_CLASS,
+        (long) masks.get("f1"));
+  }
+
+
+  /**
+   * Asserts that edits to features the comparator passes over alter nothing:
+   * a reference retyped to a class of the same kind, and its keys.
+   */
+  @Test public final void testUncomparedEdits() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel replica = makeSmallModel();
+    EReference reference = (EReference) replica.getElement("e0");
+    reference.setEType((EClass) replica.getElement("B"));
+    reference.getEKeys().add((EAttribute) replica.getElement("b0"));
+
+    assertEquals("\nAltered by uncompared edits", ids(),
+        masksOf(difference(original, replica)).keySet());
+  }
+
+
+  /**
+   * Asserts that two replicas categorized together each give the elements
+   * they would on their own.
+   */
+  @Test public final void testBothReplicas() {
+    MiradorModel original = makeSmallModel();
+    MiradorModel left = makeSmallModel();
+    MiradorModel right = makeSmallModel();
+    ((EClass) left.getElement("A")).setName("Account");
+    ((EClass) left.getElement("F")).getEStructuralFeatures().remove(
+        left.getElement("f1"));
+    ((EClass) right.getElement("C")).getEStructuralFeatures().add(
+        (EAttribute) right.getElement("b1"));
+    addAttribute(right, (EClass) right.getElement("G"), "g1");
+
+    EcoreDifference left_diff =
+        new EcoreDifference(original.getXmiModel(), left.getXmiModel());
+    EcoreDifference right_diff =
+        new EcoreDifference(original.getXmiModel(), right.getXmiModel());
+    EcoreDifference.categorizeElements(left_diff, right_diff);
+
+    MiradorModel diff =
+        left_diff.differenceElements(EcoreFactory.eINSTANCE.createEPackage());
+    assertEquals("\nLeft altered", ids("A"), idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nLeft deleted", ids("f1"),
+        idsOf(diff, MiradorType.DELETE));
+    assertEquals("\nLeft added", ids(), idsOf(diff, MiradorType.ADD));
+
+    diff =
+        right_diff.differenceElements(EcoreFactory.eINSTANCE.createEPackage());
+    assertEquals("\nRight altered", ids("b1"),
+        idsOf(diff, MiradorType.ALTER));
+    assertEquals("\nRight deleted", ids(), idsOf(diff, MiradorType.DELETE));
+    assertEquals("\nRight added", ids("g1"), idsOf(diff, MiradorType.ADD));
+  }
+
+
+  /**
+   * Asserts the added and deleted elements found in generated models of
+   * growing size, and that the time to difference them grows linearly.
+   */
+  @Test public final void testGenerated() {
+    differenceGenerated(CLASS_COUNTS[0]);  // Warm up.
+
+    long first_time = Long.MAX_VALUE;
+    long last_time = Long.MAX_VALUE;
+
+    for (int i = 0; i < REPEATS; ++i) {
+      first_time = Math.min(first_time, differenceGenerated(CLASS_COUNTS[0]));
+      last_time = Math.min(last_time,
+          differenceGenerated(CLASS_COUNTS[CLASS_COUNTS.length - 1]));
+    }
+
+    long size_ratio = CLASS_COUNTS[CLASS_COUNTS.length - 1] / CLASS_COUNTS[0];
+
+    assertTrue("\nDifference time grows linearly: " + first_time + " ns to "
+        + last_time + " ns for " + size_ratio + " times the elements",
+        last_time <= LINEAR_SLACK * size_ratio * Math.max(first_time, 1));
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Differences a generated replica from its original, asserting the added
+   * and deleted elements found.
+   *
+   * @return  Time taken to difference, in nanoseconds.
+   */
+  private long differenceGenerated(int class_ct) {
+    MiradorModel original = makeModel(class_ct);
+    MiradorModel replica = makeModel(class_ct);
+    int deleted_ct = 0;
+    int added_ct = 0;
+
+    for (int i = 0; i < class_ct; ++i) {
+      EClass cls = (EClass) replica.getElement("c" + i);
+
+      if (i % 5 == 0) {
+        cls.getEStructuralFeatures().remove(0);
+        ++deleted_ct;
+      }
+
+      if (i % 11 == 0) {
+        addAttribute(replica, cls, "c" + i + "n");
+        ++added_ct;
+      }
+    }
+
+    int element_ct = 0;
+    for (Iterator<EcoreExtra> it = original.extraIterator(); it.hasNext();) {
+      it.next();
+      ++element_ct;
+    }
+
+    long start = System.nanoTime();
+    MiradorModel diff = new EcoreDifference(original.getXmiModel(),
+        replica.getXmiModel()).differenceElements(
+            EcoreFactory.eINSTANCE.createEPackage());
+    long elapsed = System.nanoTime() - start;
+
+    Debug.dbg.format("Difference: %d elements, %d ms\n",
+        element_ct, elapsed / 1000000);
+
+    Map<MiradorType, Integer> counts = countTypes(diff);
+    assertEquals("\nDeleted elements of " + element_ct,
+        deleted_ct, (int) counts.get(MiradorType.DELETE));
+    assertEquals("\nAdded elements of " + element_ct,
+        added_ct, (int) counts.get(MiradorType.ADD));
+
+    return elapsed;
+  }
+
+
+  private MiradorModel difference(MiradorModel original,
+      MiradorModel replica) {
+    return new EcoreDifference(original.getXmiModel(), replica.getXmiModel())
+        .differenceElements(EcoreFactory.eINSTANCE.createEPackage());
+  }
+
+
+  private Set<String> ids(String... ids) {
+    return new TreeSet<String>(Arrays.asList(ids));
+  }
+
+
+  /**
+   * Gives the IDs of the elements of a category in a difference model, as
+   * they are in the original and replica.
+   */
+  private Set<String> idsOf(MiradorModel diff, MiradorType type) {
+    Set<String> rc = new TreeSet<String>();
+
+    for (Iterator<EcoreExtra> it = diff.extraIterator(); it.hasNext();) {
+      EcoreExtra extra = it.next();
+
+      if (extra.getMiradorType() == type) {
+        String id = extra.getId();
+        assertTrue("\nAltered element ID " + id,
+            type != MiradorType.ALTER || id.endsWith("_"));
+        rc.add((type == MiradorType.ALTER)
+            ? id.substring(0, id.length() - 1) : id);
+      }
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the changed feature mask of each altered element of a difference
+   * model, by its ID in the original, asserting that none is 0.
+   */
+  private Map<String, Long> masksOf(MiradorModel diff) {
+    Map<String, Long> rc = new TreeMap<String, Long>();
+
+    for (Iterator<EcoreExtra> it = diff.extraIterator(); it.hasNext();) {
+      EcoreExtra extra = it.next();
+
+      if (extra.getMiradorType() == MiradorType.ALTER) {
+        EcoreExtra update = diff.getExtra(
+            ((AlteredEElement) extra.getElement()).getUpdated());
+        long mask = new AlterChangeOp(extra, update, MergeSide.LEFT)
+            .getChangedFeatures();
+        String id = extra.getId().substring(0, extra.getId().length() - 1);
+
+        assertTrue("\nMask of altered " + id, mask != 0);
+        rc.put(id, mask);
+      }
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Makes a model of classes A to G in one package. A, C, and D have no
+   * features; B, F, and G have string attributes; E refers to A, and D has
+   * supertype C.
+   */
+  private MiradorModel makeSmallModel() {
+    EcoreFactory factory = EcoreFactory.eINSTANCE;
+    MiradorModel rc = new MiradorModel();
+    EPackage pkg = factory.createEPackage();
+    pkg.setName("root");
+    rc.getXmiModel().getContents().add(pkg);
+    ModelFixtures.register(rc, pkg, "root");
+
+    for (String name : new String[] {"A", "B", "C", "D", "E", "F", "G"}) {
+      EClass cls = factory.createEClass();
+      cls.setName(name);
+      pkg.getEClassifiers().add(cls);
+      ModelFixtures.register(rc, cls, name);
+    }
+
+    addAttribute(rc, (EClass) rc.getElement("B"), "b0");
+    addAttribute(rc, (EClass) rc.getElement("B"), "b1");
+    addAttribute(rc, (EClass) rc.getElement("F"), "f0");
+    addAttribute(rc, (EClass) rc.getElement("F"), "f1");
+    addAttribute(rc, (EClass) rc.getElement("G"), "g0");
+    ((EClass) rc.getElement("D")).getESuperTypes().add(
+        (EClass) rc.getElement("C"));
+
+    EReference reference = factory.createEReference();
+    reference.setName("account");
+    reference.setEType((EClass) rc.getElement("A"));
+    ((EClass) rc.getElement("E")).getEStructuralFeatures().add(reference);
+    ModelFixtures.register(rc, reference, "e0");
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the number of elements of a difference model of each category.
+   */
+  private Map<MiradorType, Integer> countTypes(MiradorModel diff) {
+    Map<MiradorType, Integer> rc =
+        new EnumMap<MiradorType, Integer>(MiradorType.class);
+
+    for (MiradorType type : MiradorType.values())
+      rc.put(type, 0);
+
+    for (Iterator<EcoreExtra> it = diff.extraIterator(); it.hasNext();) {
+      MiradorType type = it.next().getMiradorType();
+      rc.put(type, rc.get(type) + 1);
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Makes a model of classes in one package, each with a few string
+   * attributes and references to other classes.
+   */
+  private MiradorModel makeModel(int class_ct) {
+    EcoreFactory factory = EcoreFactory.eINSTANCE;
+    MiradorModel rc = new MiradorModel();
+    EPackage pkg = factory.createEPackage();
+    pkg.setName("root");
+    rc.getXmiModel().getContents().add(pkg);
+    ModelFixtures.register(rc, pkg, "root");
+
+    EClass[] classes = new EClass[class_ct];
+    for (int i = 0; i < class_ct; ++i) {
+      classes[i] = factory.createEClass();
+      classes[i].setName("C" + i);
+      pkg.getEClassifiers().add(classes[i]);
+      ModelFixtures.register(rc, classes[i], "c" + i);
+    }
+
+    for (int i = 0; i < class_ct; ++i) {
+      for (int j = 0; j < 6; ++j)
+        addAttribute(rc, classes[i], "c" + i + "a" + j);
+
+      for (int j = 0; j < 3; ++j) {
+        EReference reference = factory.createEReference();
+        reference.setName("r" + j);
+        reference.setEType(classes[(7 * i + j) % class_ct]);
+        classes[i].getEStructuralFeatures().add(reference);
+        ModelFixtures.register(rc, reference, "c" + i + "r" + j);
+      }
+    }
+
+    return rc;
+  }
+
+
+  private void addAttribute(MiradorModel model, EClass cls, String id) {
+    EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+    attribute.setName(id);
+    attribute.setEType(EcorePackage.Literals.ESTRING);
+    cls.getEStructuralFeatures().add(attribute);
+    ModelFixtures.register(model, attribute, id);
+  }
+
+
+  // Class data -------------------------------------------------------------
+  /** Sizes of the generated models timed, in classes of ten elements. */
+  static private final int[] CLASS_COUNTS = {600, 6000};
+
+  /** Runs timed at each size, the best taken. */
+  static private final int REPEATS = 3;
+
+  /** Growth of difference time allowed beyond that of the model size. */
+  static private final long LINEAR_SLACK = 4;
+  // End class data ---------------------------------------------------------
+}
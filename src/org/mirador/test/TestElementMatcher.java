@@ -0,0 +1,209 @@
+/* --------------------------------------------------------------------------+
+   TestElementMatcher.java - Unit tests for the ranking anew of candidate
+     matches once strategy weights change.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   One match matrix of random measures is shared by two models, one ranked
+   in full and the other ranked anew from its earlier ranking. Measures are
+   multiples of one twentieth, so that ties are common.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import ca.dsrg.mirador.difference.EcoreTyper.EcoreType;
+import ca.dsrg.mirador.match.ElementMatcher;
+import ca.dsrg.mirador.match.MatchStrategy;
+import ca.dsrg.mirador.match.MeasureMatrix;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureCell;
+import ca.dsrg.mirador.match.MeasureMatrix.MeasureRow;
+import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Tests that class <b>ElementMatcher</b> ranks a rescored matrix anew as a
+ * full ranking would, keeping the ranked rows the new scores leave standing.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  ElementMatcher
+ */
+public class TestElementMatcher {
+  @Before public void setUp() {
+    strategies_ = new ArrayList<MatchStrategy>();
+    strategies_.add(new MatchStrategy(null, 1f, "Overall", null, null));
+    strategies_.add(new MatchStrategy(null, 1f, "by Name", null, null));
+    strategies_.add(new MatchStrategy(null, 0f, "by Structure", null, null));
+    random_ = new Random(5);
+  }
+
+  /**
+   * Asserts that ranking anew after each change of weights gives the
+   * candidates, and their order, of a full ranking.
+   */
+  @Test public final void testRerank() {
+    for (int trial = 0; trial < TRIALS; ++trial) {
+      makeModels();
+      int top_k = random_.nextInt(4);
+
+      ElementMatcher.rankSimilarlities(reranked_, 0, top_k);
+
+      for (int step = 0; step < STEPS; ++step) {
+        strategies_.get(1).setWeight(random_.nextInt(11) / 10f);
+        strategies_.get(2).setWeight(random_.nextInt(11) / 10f);
+        ElementMatcher.rescoreSimilarities(measures_);
+
+        ElementMatcher.rerankSimilarities(reranked_, 0, top_k);
+        ranked_.setRankMatrix(new MeasureMatrix(strategies_));
+        ElementMatcher.rankSimilarlities(ranked_, 0, top_k);
+
+        assertEquals("\nRanking, trial " + trial + " step " + step,
+            idsOf(ranked_.getRankMatrix()), idsOf(reranked_.getRankMatrix()));
+      }
+    }
+  }
+
+
+  /**
+   * Asserts that ranking anew with unchanged scores keeps every ranked row
+   * free of ties as it was.
+   */
+  @Test public final void testStanding() {
+    for (int trial = 0; trial < TRIALS; ++trial) {
+      makeModels();
+      int top_k = random_.nextInt(4);
+      ElementMatcher.rescoreSimilarities(measures_);
+      ElementMatcher.rankSimilarlities(reranked_, 0, top_k);
+
+      Map<String, MeasureRow> before =
+          new LinkedHashMap<String, MeasureRow>(reranked_.getRankMatrix());
+      ElementMatcher.rerankSimilarities(reranked_, 0, top_k);
+
+      for (Map.Entry<String, MeasureRow> entry : before.entrySet()) {
+        if (isTieFree(entry.getValue()))
+          assertSame("\nRow of " + entry.getKey() + ", trial " + trial,
+              entry.getValue(), reranked_.getRankMatrix().get(entry.getKey()));
+      }
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Gives the ranked candidate IDs of each element, in ranking order.
+   */
+  private List<List<String>> idsOf(MeasureMatrix rankings) {
+    List<List<String>> rc = new ArrayList<List<String>>();
+
+    for (MeasureRow row : rankings.values()) {
+      List<String> ids = new ArrayList<String>();
+      ids.add(row.getFromElement().getId());
+
+      for (MeasureCell cell : row.values())
+        ids.add(cell.getToElement().getId());
+
+      rc.add(ids);
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Tells if a row leaves every other candidate strictly below its least
+   * ranked one, with its own measures falling strictly.
+   */
+  private boolean isTieFree(MeasureRow ranked_row) {
+    MeasureRow row = measures_.get(ranked_row.getFromElement().getId());
+    float floor = Float.POSITIVE_INFINITY;
+
+    for (MeasureCell cell : ranked_row.values()) {
+      if (cell.getMeasure(0) >= floor)
+        return false;
+
+      floor = cell.getMeasure(0);
+    }
+
+    int reach_ct = 0;
+
+    for (MeasureCell cell : row.values()) {
+      if (cell.getMeasure(0) >= floor)
+        ++reach_ct;
+    }
+
+    return reach_ct == ranked_row.size();
+  }
+
+
+  private EcoreExtra makeElement(String id) {
+    EClass element = EcoreFactory.eINSTANCE.createEClass();
+    element.setName(id);
+    return new EcoreExtra(element, id, EcoreType.CLASS);
+  }
+
+
+  /**
+   * Makes a matrix of up to eight rows and columns, about two in three of
+   * its cells holding measures, and the two models sharing it.
+   */
+  private void makeModels() {
+    measures_ = new MeasureMatrix(strategies_);
+    int from_ct = 1 + random_.nextInt(8);
+    int to_ct = 1 + random_.nextInt(8);
+    EcoreExtra[] to = new EcoreExtra[to_ct];
+
+    for (int j = 0; j < to_ct; ++j)
+      to[j] = makeElement("t" + j);
+
+    for (int i = 0; i < from_ct; ++i) {
+      EcoreExtra from = makeElement("f" + i);
+
+      for (int j = 0; j < to_ct; ++j) {
+        if (random_.nextInt(3) > 0) {
+          measures_.put(from, to[j]);
+          MeasureCell cell = measures_.get(from.getId(), to[j].getId());
+          cell.put(1, random_.nextInt(21) / 20f);
+          cell.put(2, random_.nextInt(21) / 20f);
+        }
+      }
+    }
+
+    ranked_ = new MiradorModel();
+    ranked_.setMatchMatrix(measures_);
+    reranked_ = new MiradorModel();
+    reranked_.setMatchMatrix(measures_);
+    reranked_.setRankMatrix(new MeasureMatrix(strategies_));
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private List<MatchStrategy> strategies_;
+  private Random random_;
+  private MeasureMatrix measures_;
+
+  /** Models sharing the match matrix: ranked in full, and ranked anew. */
+  private MiradorModel ranked_;
+  private MiradorModel reranked_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int TRIALS = 200;
+  static private final int STEPS = 4;
+  // End class data ---------------------------------------------------------
+}
@@ -0,0 +1,171 @@
+/* --------------------------------------------------------------------------+
+   TestRelationStore.java - Unit tests for the bit row store of relations
+     among atomic change operations.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import ca.dsrg.mirador.MiradorException;
+import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.merge.AtomicChangeOp;
+import ca.dsrg.mirador.merge.AtomicChangeOp.Relation;
+import ca.dsrg.mirador.merge.RelationStore;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+
+/**
+ * Tests that class <b>RelationStore</b> holds at most one relation per pair
+ * of changes, each set relation replacing the one before.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  RelationStore
+ */
+public class TestRelationStore {
+  @Before public void setUp() {
+    ops_ = new ArrayList<AtomicChangeOp>();
+
+    for (int i = 0; i < OP_CT; ++i)
+      ops_.add(ModelFixtures.makeOp("c" + i, MergeSide.LEFT));
+
+    store_ = new RelationStore(ops_);
+  }
+
+  /**
+   * Asserts that each change is numbered by its position in the store.
+   */
+  @Test public final void testNumbering() {
+    assertEquals("\nStore size", OP_CT, store_.size());
+
+    for (int i = 0; i < OP_CT; ++i) {
+      assertEquals("\nNumber of change " + i, i, ops_.get(i).getIndex());
+      assertSame("\nStore of change " + i,
+          store_, ops_.get(i).getRelationStore());
+      assertSame("\nChange numbered " + i, ops_.get(i), store_.getChange(i));
+    }
+  }
+
+
+  /**
+   * Asserts that setting a relation replaces the one the pair held, in its
+   * row as in the lookup, and leaves the reverse pair and others alone.
+   */
+  @Test public final void testReplace() {
+    store_.setRelation(0, 1, Relation.BEFORE);
+    store_.setRelation(0, 2, Relation.BEFORE);
+    store_.setRelation(1, 0, Relation.REQUIRE);
+
+    assertEquals("\nRelation set", Relation.BEFORE, store_.getRelation(0, 1));
+
+    store_.setRelation(0, 1, Relation.CONFLICT);
+
+    assertEquals("\nRelation replaced",
+        Relation.CONFLICT, store_.getRelation(0, 1));
+    assertEquals("\nBefore row after replacing",
+        bits(2), store_.getRelated(0, Relation.BEFORE));
+    assertEquals("\nConflict row after replacing",
+        bits(1), store_.getRelated(0, Relation.CONFLICT));
+    assertEquals("\nRelation of other pair",
+        Relation.BEFORE, store_.getRelation(0, 2));
+    assertEquals("\nRelation of reverse pair",
+        Relation.REQUIRE, store_.getRelation(1, 0));
+
+    store_.setRelation(0, 1, Relation.BEFORE);
+
+    assertEquals("\nRelation replaced back",
+        Relation.BEFORE, store_.getRelation(0, 1));
+    assertEquals("\nBefore row after replacing back",
+        bits(1, 2), store_.getRelated(0, Relation.BEFORE));
+    assertEquals("\nConflict row after replacing back",
+        bits(), store_.getRelated(0, Relation.CONFLICT));
+  }
+
+
+  /**
+   * Asserts that setting no relation clears the one the pair held.
+   */
+  @Test public final void testClear() {
+    store_.setRelation(2, 3, Relation.REQUIRE);
+    store_.setRelation(2, 3, null);
+
+    assertNull("\nRelation cleared", store_.getRelation(2, 3));
+    assertEquals("\nRow after clearing",
+        bits(), store_.getRelated(2, Relation.REQUIRE));
+
+    store_.setRelation(1, 2, null);
+
+    assertNull("\nUnrelated pair cleared", store_.getRelation(1, 2));
+  }
+
+
+  /**
+   * Asserts that a change relates only to changes of its own store, and that
+   * the change's view of its relations follows the store.
+   */
+  @Test public final void testChangeRelations() {
+    AtomicChangeOp from = ops_.get(0);
+    from.addRelation(ops_.get(3), Relation.BEFORE);
+    from.replaceRelation(ops_.get(3), Relation.CONFLICT);
+    from.replaceRelation(ops_.get(2), Relation.CONFLICT);
+
+    assertEquals("\nRelation replaced by change",
+        Relation.CONFLICT, from.getRelation(ops_.get(3)));
+    assertNull("\nRelation added by replacing", from.getRelation(ops_.get(2)));
+    assertEquals("\nRelations of change", 1, from.getRelations().size());
+    assertTrue("\nRelated to group", store_.isRelated(0, Relation.CONFLICT,
+        bits(1, 3)));
+    assertTrue("\nRelated to group by other relation",
+        !store_.isRelated(0, Relation.BEFORE, bits(1, 3)));
+
+    AtomicChangeOp stranger =
+        ModelFixtures.makeOp("c" + OP_CT, MergeSide.LEFT);
+    List<AtomicChangeOp> others = new ArrayList<AtomicChangeOp>();
+    others.add(stranger);
+    new RelationStore(others);
+
+    try {
+      from.addRelation(stranger, Relation.BEFORE);
+      fail("\nRelated to change of other store");
+    }
+    catch (MiradorException ex) {
+      assertNull("\nRelation to change of other store",
+          from.getRelation(stranger));
+    }
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  private BitSet bits(int... indexes) {
+    BitSet rc = new BitSet();
+
+    for (int index : indexes)
+      rc.set(index);
+
+    return rc;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private List<AtomicChangeOp> ops_;
+  private RelationStore store_;
+  // End instance data ------------------------------------------------------
+
+
+  // Class data -------------------------------------------------------------
+  static private final int OP_CT = 4;
+  // End class data ---------------------------------------------------------
+}
@@ -0,0 +1,265 @@
+/* --------------------------------------------------------------------------+
+   TestSimilarityCache.java - Unit tests for the on-disk cache of similarity
+     measures.
+
+   Created by: Stephen Barrett
+               Concordia University
+               Montreal, Quebec
+               ste_barr@encs.concorida.ca
+
+   Licensed Material - Dependable Software Research Group
+   --------------------------------------------------------------------------+
+   Each case keeps its cache in a fresh temporary file, which is reopened to
+   stand in for a later session.
+   --------------------------------------------------------------------------*/
+package ca.dsrg.mirador.test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import ca.dsrg.mirador.match.NameEvaluator;
+import ca.dsrg.mirador.match.SimilarityCache;
+import ca.dsrg.mirador.model.MiradorModel;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+
+/**
+ * Tests that class <b>SimilarityCache</b> gives back, in a later session, the
+ * measures saved for pairs whose content is unchanged, and only those.
+ *
+ * @since   v0.85 - Oct 18, 2026
+ * @author  Stephen Barrett
+ * @see  SimilarityCache
+ */
+public class TestSimilarityCache {
+  @Before public void setUp() throws IOException {
+    cache_file_ = File.createTempFile("mirador", ".cache");
+    cache_file_.delete();
+    evaluator_key_ = SimilarityCache.evaluatorKey(new NameEvaluator(0.5f));
+    lhs_ = makeModel("Order");
+    rhs_ = makeModel("Order");
+  }
+
+  @After public void tearDown() {
+    cache_file_.delete();
+    new File(cache_file_.getPath() + ".tmp").delete();
+  }
+
+  /**
+   * Asserts that a saved measure is found again once the cache is reopened.
+   */
+  @Test public final void testRoundTrip() {
+    SimilarityCache cache = new SimilarityCache(cache_file_);
+    cache.hashContents(lhs_, rhs_);
+    long pair_hash = cache.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0"));
+    cache.put(evaluator_key_, pair_hash, 0.75f);
+    cache.save();
+
+    assertTrue("\nCache file written", cache_file_.exists());
+    assertEquals("\nUnsaved measures after save", 0, cache.getAddedCount());
+    assertEquals("\nMeasure after save",
+        0.75f, cache.get(evaluator_key_, pair_hash), 0f);
+
+    SimilarityCache reopened = new SimilarityCache(cache_file_);
+    reopened.hashContents(lhs_, rhs_);
+
+    assertEquals("\nPair hash of unchanged pair", pair_hash,
+        reopened.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0")));
+    assertEquals("\nMeasure of unchanged pair",
+        0.75f, reopened.get(evaluator_key_, pair_hash), 0f);
+    assertTrue("\nMeasure of another evaluator", Float.isNaN(
+        reopened.get(evaluator_key_ + 1, pair_hash)));
+    assertTrue("\nMeasure of unmeasured pair", Float.isNaN(reopened.get(
+        evaluator_key_,
+        reopened.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0a0")))));
+  }
+
+
+  /**
+   * Asserts that a pair is no longer found once the content of one of its
+   * elements changes, be it the element itself or one of its contents.
+   */
+  @Test public final void testContentChange() {
+    SimilarityCache cache = new SimilarityCache(cache_file_);
+    cache.hashContents(lhs_, rhs_);
+    cache.put(evaluator_key_,
+        cache.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0")), 0.75f);
+    cache.save();
+
+    ((EClass) rhs_.getElement("c0")).setName("Purchase");
+
+    SimilarityCache reopened = new SimilarityCache(cache_file_);
+    reopened.hashContents(lhs_, rhs_);
+
+    assertTrue("\nMeasure of renamed element", Float.isNaN(reopened.get(
+        evaluator_key_,
+        reopened.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0")))));
+
+    ((EClass) rhs_.getElement("c0")).setName("Order");
+    ((EAttribute) rhs_.getElement("c0a0")).setEType(EcorePackage.Literals.EINT);
+    reopened.hashContents(lhs_, rhs_);
+
+    assertTrue("\nMeasure of element with retyped content", Float.isNaN(
+        reopened.get(evaluator_key_,
+            reopened.pairHash(lhs_.getExtra("c0"), rhs_.getExtra("c0")))));
+  }
+
+
+  /**
+   * Asserts that measures cached under one version of an evaluator's measure
+   * are not found under another.
+   */
+  @Test public final void testVersionChange() {
+    long key = SimilarityCache.evaluatorKey(new VersionedEvaluator(1));
+    long revised_key = SimilarityCache.evaluatorKey(new VersionedEvaluator(2));
+
+    SimilarityCache cache = new SimilarityCache(cache_file_);
+    cache.put(key, 1, 0.75f);
+    cache.save();
+
+    SimilarityCache reopened = new SimilarityCache(cache_file_);
+
+    assertEquals("\nMeasure of same version", 0.75f, reopened.get(
+        SimilarityCache.evaluatorKey(new VersionedEvaluator(1)), 1), 0f);
+    assertTrue("\nMeasure of revised version",
+        Float.isNaN(reopened.get(revised_key, 1)));
+  }
+
+
+  /**
+   * Asserts that measures added over several saves are all kept, and that
+   * a remeasured pair takes its latest measure.
+   */
+  @Test public final void testMerge() {
+    SimilarityCache cache = new SimilarityCache(cache_file_);
+
+    for (long hash = 1; hash <= 600; ++hash)
+      cache.put(evaluator_key_, hash, 0.25f);
+    cache.save();
+
+    cache = new SimilarityCache(cache_file_);
+    for (long hash = 501; hash <= 1100; ++hash)
+      cache.put(evaluator_key_, hash, 0.5f);
+    cache.save();
+
+    cache = new SimilarityCache(cache_file_);
+    for (long hash = 1; hash <= 1100; ++hash)
+      assertEquals("\nMeasure of pair " + hash,
+          (hash <= 500) ? 0.25f : 0.5f, cache.get(evaluator_key_, hash), 0f);
+  }
+
+
+  /**
+   * Asserts that a full cache drops measures of earlier sessions first, and
+   * never grows past its bound.
+   */
+  @Test public final void testBound() {
+    SimilarityCache cache = new SimilarityCache(cache_file_, 1000);
+
+    for (long hash = 1; hash <= 800; ++hash)
+      cache.put(evaluator_key_, hash, 0.25f);
+    cache.save();
+    long length = cache_file_.length();
+
+    for (long hash = 801; hash <= 1400; ++hash)
+      cache.put(evaluator_key_, hash, 0.5f);
+    cache.save();
+
+    assertEquals("\nLength of full cache file", length, cache_file_.length());
+
+    cache = new SimilarityCache(cache_file_, 1000);
+    int kept_ct = 0;
+
+    for (long hash = 1; hash <= 1400; ++hash) {
+      float measure = cache.get(evaluator_key_, hash);
+
+      if (hash > 800)
+        assertEquals("\nMeasure of latest session, pair " + hash,
+            0.5f, measure, 0f);
+
+      if (!Float.isNaN(measure))
+        ++kept_ct;
+    }
+
+    assertEquals("\nMeasures kept", 1000, kept_ct);
+  }
+
+
+  /**
+   * Asserts that a file that is not a cache is neither read nor written.
+   */
+  @Test public final void testForeignFile() throws IOException {
+    FileOutputStream fout = new FileOutputStream(cache_file_);
+    fout.write("<xmi/>".getBytes("UTF-8"));
+    fout.close();
+
+    SimilarityCache cache = new SimilarityCache(cache_file_);
+    cache.put(evaluator_key_, 1, 0.5f);
+    cache.save();
+
+    assertEquals("\nLength of foreign file", 6, cache_file_.length());
+  }
+
+
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ helpers
+  /**
+   * Makes a model of a class with one string attribute.
+   */
+  private MiradorModel makeModel(String class_name) {
+    EcoreFactory factory = EcoreFactory.eINSTANCE;
+    MiradorModel rc = new MiradorModel();
+    EPackage pkg = factory.createEPackage();
+    pkg.setName("root");
+    rc.getXmiModel().getContents().add(pkg);
+    ModelFixtures.register(rc, pkg, "root");
+
+    EClass cls = factory.createEClass();
+    cls.setName(class_name);
+    pkg.getEClassifiers().add(cls);
+    ModelFixtures.register(rc, cls, "c0");
+
+    EAttribute attribute = factory.createEAttribute();
+    attribute.setName("number");
+    attribute.setEType(EcorePackage.Literals.ESTRING);
+    cls.getEStructuralFeatures().add(attribute);
+    ModelFixtures.register(rc, attribute, "c0a0");
+
+    return rc;
+  }
+
+
+  // Instance data ----------------------------------------------------------
+  private File cache_file_;
+  private long evaluator_key_;
+  private MiradorModel lhs_;
+  private MiradorModel rhs_;
+  // End instance data ------------------------------------------------------
+
+
+  // Nested types -----------------------------------------------------------
+  /**
+   * Name evaluator of a given measure version.
+   */
+  static private final class VersionedEvaluator extends NameEvaluator {
+    VersionedEvaluator(int version) {
+      version_ = version;
+    }
+
+
+    @Override public int getCacheVersion() {
+      return version_;
+    }
+
+
+    private final int version_;
+  }
+  // End nested types -------------------------------------------------------
+}
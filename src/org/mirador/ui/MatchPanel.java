@@ -16,13 +16,22 @@ import ca.dsrg.mirador.Debug;
 import ca.dsrg.mirador.InvocationParser;
 import ca.dsrg.mirador.Mirador;
 import ca.dsrg.mirador.change.ChangeRecord.MergeSide;
+import ca.dsrg.mirador.change.fujaba.FujabaModelRepository;
+import ca.dsrg.mirador.match.AssignmentMatcher;
+import ca.dsrg.mirador.match.CandidateIndex;
+import ca.dsrg.mirador.match.CandidateIndex.Blocking;
 import ca.dsrg.mirador.match.EclEvaluator;
 import ca.dsrg.mirador.match.ElementMatcher;
+import ca.dsrg.mirador.match.HistoryEvaluator;
 import ca.dsrg.mirador.match.MatchStrategy;
 import ca.dsrg.mirador.match.MeasureMatrix;
+import ca.dsrg.mirador.match.MeasureStore.Storage;
+import ca.dsrg.mirador.match.SimilarityCache;
 import ca.dsrg.mirador.match.SimilarityEvaluator;
+import ca.dsrg.mirador.match.StructureEvaluator;
 import ca.dsrg.mirador.merge.MergeWorks;
 import ca.dsrg.mirador.model.EcoreExtra;
+import ca.dsrg.mirador.model.MiradorModel;
 import ca.dsrg.mirador.model.ModelRepository;
 import com.jgoodies.forms.builder.PanelBuilder;
 import com.jgoodies.forms.factories.Borders;
@@ -38,6 +47,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -113,6 +123,79 @@ public class MatchPanel extends WizardPanel {
   }
 
 
+  /**
+   * Gives the key for blocking match candidates, as selected at invocation.
+   *
+   * @return  Candidate blocking key, Ecore type only by default.
+   * @category  getter
+   */
+  private Blocking getBlocking() {
+    String value = Mirador.getParser().optionValue("match_blocking");
+    Blocking rc = Blocking.TYPE;
+
+    if (value != null) {
+      try {
+        rc = Blocking.valueOf(value.toUpperCase());
+      }
+      catch (IllegalArgumentException ex) {
+        System.err.println("!!! Mirador - unknown blocking: " + value + " !!!");
+      }
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the number of threads to measure similarity with, as selected at
+   * invocation.
+   *
+   * @return  Parallelism level, one thread per processor by default.
+   * @category  getter
+   */
+  private int getParallelism() {
+    String value = Mirador.getParser().optionValue("match_threads");
+    int rc = Runtime.getRuntime().availableProcessors();
+
+    if (value != null) {
+      try {
+        rc = Integer.parseInt(value);
+      }
+      catch (NumberFormatException ex) {
+        System.err.println("!!! Mirador - unknown thread count: " + value
+            + " !!!");
+      }
+    }
+
+    return rc;
+  }
+
+
+  /**
+   * Gives the number of best candidates kept per element when ranking, as
+   * selected at invocation.
+   *
+   * @return  Candidates kept per element, 0 = all of them.
+   * @category  getter
+   */
+  private int getTopK() {
+    String value = Mirador.getParser().optionValue("match_top_k");
+    int rc = ElementMatcher.DEFAULT_TOP_K;
+
+    if (value != null) {
+      try {
+        rc = Integer.parseInt(value);
+      }
+      catch (NumberFormatException ex) {
+        System.err.println("!!! Mirador - unknown candidate count: " + value
+            + " !!!");
+      }
+    }
+
+    return rc;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ collections
   public void addStrategy(MatchStrategy to_add) {
     if (to_add != null && strategies_.size() < MAX_STRATEGIES)
@@ -152,16 +235,22 @@ public class MatchPanel extends WizardPanel {
 
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ operations
   private void matchThreshold() { // TODO:3 Add a spinner for lower cutoff (i.e., eliminate from table view).
-    if (merge_works_.getMasterSide() == MergeSide.LEFT) {
-      ElementMatcher.matchThreshold(
-          model_repo_.getDiffModelLeft().getRankMatrix(),
-          ((Number) limit_spn_.getValue()).floatValue());
-    }
-    else if (merge_works_.getMasterSide() == MergeSide.RIGHT) {
-      ElementMatcher.matchThreshold(
-          model_repo_.getDiffModelRight().getRankMatrix(),
-          ((Number) limit_spn_.getValue()).floatValue());
-    }
+    MeasureMatrix rankings = null;
+
+    if (merge_works_.getMasterSide() == MergeSide.LEFT)
+      rankings = model_repo_.getDiffModelLeft().getRankMatrix();
+    else if (merge_works_.getMasterSide() == MergeSide.RIGHT)
+      rankings = model_repo_.getDiffModelRight().getRankMatrix();
+
+    if (rankings == null)
+      return;
+
+    float limit = ((Number) limit_spn_.getValue()).floatValue();
+
+    if (Mirador.getParser().isOptionPassed("match_assign"))
+      AssignmentMatcher.matchOptimal(rankings, limit);
+    else
+      ElementMatcher.matchThreshold(rankings, limit);
   }
 
 
@@ -169,17 +258,30 @@ public class MatchPanel extends WizardPanel {
    *
    */
   private void measureSimilarlities() {
-    measure_lf_mtx_ = new MeasureMatrix(strategies_);
+    Storage storage = Mirador.getParser().isOptionPassed("match_offheap")
+        ? Storage.DIRECT : Storage.HEAP;
+
+    measure_lf_mtx_ = new MeasureMatrix(strategies_, storage);
+    ranking_lf_mtx_ = null;  // Rankings of earlier measures no longer apply.
+    ranking_rt_mtx_ = null;
+    ElementMatcher.setParallelism(getParallelism());
+    ElementMatcher.setSimilarityCache(similarity_cache_);
     model_repo_.getDiffModelLeft().setMatchMatrix(measure_lf_mtx_);
 
-    ElementMatcher.measureSimilarities(model_repo_.getDiffModelLeft(),
-       model_repo_.getDiffModelRight());
+    // Candidates depend only on the right model, so are indexed just once.
+    MiradorModel right = model_repo_.getDiffModelRight();
+    if (candidate_idx_ == null || candidate_idx_.getModel() != right
+        || candidate_idx_.getBlocking() != getBlocking())
+      candidate_idx_ = new CandidateIndex(right, getBlocking());
 
-    measure_rt_mtx_ = new MeasureMatrix(strategies_);
-    model_repo_.getDiffModelRight().setMatchMatrix(measure_rt_mtx_);
+    // Measure once, left to right, and derive right to left as a transpose.
+    ElementMatcher.measureSymmetric(model_repo_.getDiffModelLeft(), right,
+        candidate_idx_);
 
-    ElementMatcher.measureSimilarities(model_repo_.getDiffModelRight(),
-       model_repo_.getDiffModelLeft());
+    measure_rt_mtx_ = model_repo_.getDiffModelRight().getMatchMatrix();
+
+    if (similarity_cache_ != null)
+      similarity_cache_.save();
   }
 
 
@@ -191,7 +293,7 @@ public class MatchPanel extends WizardPanel {
     model_repo_.getDiffModelLeft().setRankMatrix(ranking_lf_mtx_);
 
     ElementMatcher.rankSimilarlities(model_repo_.getDiffModelLeft(),
-        ranking_lf_mtx_.getMatchStrategyIndex());
+        ranking_lf_mtx_.getMatchStrategyIndex(), getTopK());
 
     Debug.dbg.println("\n\n\n\t    --- LEFT to RIGHT SIMILARITIES ---");
     ranking_lf_mtx_.dump();
@@ -201,7 +303,27 @@ public class MatchPanel extends WizardPanel {
     model_repo_.getDiffModelRight().setRankMatrix(ranking_rt_mtx_);
 
     ElementMatcher.rankSimilarlities(model_repo_.getDiffModelRight(),
-        ranking_rt_mtx_.getMatchStrategyIndex());
+        ranking_rt_mtx_.getMatchStrategyIndex(), getTopK());
+
+    Debug.dbg.println("\n\n\n\t    --- RIGHT to LEFT SIMILARITIES ---");
+    ranking_rt_mtx_.dump();
+  }
+
+
+  /**
+   * Ranks both models anew after their measures have been rescored, keeping
+   * the rankings the new scores leave standing.
+   */
+  private void rerankSimilarities() {
+    ElementMatcher.rerankSimilarities(model_repo_.getDiffModelLeft(),
+        ranking_lf_mtx_.getMatchStrategyIndex(), getTopK());
+
+    Debug.dbg.println("\n\n\n\t    --- LEFT to RIGHT SIMILARITIES ---");
+    ranking_lf_mtx_.dump();
+
+
+    ElementMatcher.rerankSimilarities(model_repo_.getDiffModelRight(),
+        ranking_rt_mtx_.getMatchStrategyIndex(), getTopK());
 
     Debug.dbg.println("\n\n\n\t    --- RIGHT to LEFT SIMILARITIES ---");
     ranking_rt_mtx_.dump();
@@ -723,7 +845,15 @@ public class MatchPanel extends WizardPanel {
   }
 
 
+  /**
+   * Opens the cache of similarity measures kept from earlier sessions, if
+   * one is named by the -mc option.
+   */
   private void loadMatches() {  // TODO:2 Prematched elements.
+    String cache_name = Mirador.getParser().optionValue("match_cache");
+
+    similarity_cache_ = (cache_name != null)
+        ? new SimilarityCache(new File(cache_name)) : null;
   }
 
 
@@ -735,6 +865,22 @@ public class MatchPanel extends WizardPanel {
           model_repo_.getDiffModelLeft().getXmiModel(),
           model_repo_.getDiffModelRight().getXmiModel(), null);
     }
+
+    MatchStrategy structure_strategy = getStrategy("by Structure");
+
+    if (structure_strategy != null) {
+      ((StructureEvaluator) structure_strategy.getEvaluator()).fingerprint(
+          model_repo_.getDiffModelLeft(), model_repo_.getDiffModelRight());
+    }
+
+    MatchStrategy history_strategy = getStrategy("by History");
+
+    if (history_strategy != null
+        && model_repo_ instanceof FujabaModelRepository) {
+      ((HistoryEvaluator) history_strategy.getEvaluator()).summarize(
+          ((FujabaModelRepository) model_repo_).getChangeRepository(),
+          model_repo_.getDiffModelLeft(), model_repo_.getDiffModelRight());
+    }
   }
 
 
@@ -957,11 +1103,20 @@ public class MatchPanel extends WizardPanel {
           strategies_.get(i).getSpinner().getValue()).floatValue());
     }
 
-    // Obtain measures for all possible element pairings using new weights.
-    measureSimilarlities();  // TODO:2 Just multiple against nominal measures.
+    // Rescore cached measures of all element pairings using new weights.
+    boolean is_rescored = measure_lf_mtx_ != null;
 
-    // Order measures of selected matching criteria from high to low.
-    rankSimilarlities();
+    if (is_rescored)
+      ElementMatcher.rescoreSimilarities(measure_lf_mtx_);
+    else
+      measureSimilarlities();
+
+    // Order measures of selected matching criteria from high to low, ranking
+    // again only the elements whose kept candidates the new scores move.
+    if (is_rescored && ranking_lf_mtx_ != null)
+      rerankSimilarities();
+    else
+      rankSimilarlities();
 
     // Pair elements that meet or exceed similarity threshold.
     matchThreshold();
@@ -1031,6 +1186,12 @@ public class MatchPanel extends WizardPanel {
   private MeasureMatrix ranking_lf_mtx_;
   private MeasureMatrix ranking_rt_mtx_;
 
+  /** Candidates of the right model, kept between weight updates. */
+  private CandidateIndex candidate_idx_;
+
+  /** Measures kept across sessions, null = none. */
+  private SimilarityCache similarity_cache_;
+
   private List<MatchStrategy> strategies_ = new ArrayList<MatchStrategy>();
   // End instance data ------------------------------------------------------
 
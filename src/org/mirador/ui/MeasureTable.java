@@ -103,9 +103,8 @@ public class MeasureTable {
         EcoreExtra to_element = cell.getToElement();
         row.add(to_element);
 
-        List<Float> measures = cell.getMeasures();
-        for (int i = 0; i < measures.size(); ++i)
-          row.add(formatter.format(measures.get(i)));
+        for (int i = 0; i < match_headings_.size() - 1; ++i)
+          row.add(formatter.format(cell.getMeasure(i)));
 
         data.add(row);
       }
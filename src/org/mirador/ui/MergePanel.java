@@ -71,6 +71,32 @@ public class MergePanel extends WizardPanel {
   }
 
 
+  //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ accessors
+  /**
+   * Gives the number of threads to evaluate decision tables with, as
+   * selected at invocation.
+   *
+   * @return  Parallelism level, one thread per processor by default.
+   * @category  getter
+   */
+  private int getParallelism() {
+    String value = Mirador.getParser().optionValue("table_threads");
+    int rc = Runtime.getRuntime().availableProcessors();
+
+    if (value != null) {
+      try {
+        rc = Integer.parseInt(value);
+      }
+      catch (NumberFormatException ex) {
+        System.err.println("!!! Mirador - unknown thread count: " + value
+            + " !!!");
+      }
+    }
+
+    return rc;
+  }
+
+
   //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ state accessors
   private void dumpApplies() {
     for (int i = 0; i <= apply_tbl_.getSelectedRow(); ++i) {
@@ -611,6 +637,7 @@ public class MergePanel extends WizardPanel {
 
     updateNavigation();  // Synchronize panel buttons with current GUI state.
 
+    ChangeOpPlane.setParallelism(getParallelism());
     /*merge_plane_ =??*/ new ChangeOpPlane(model_repo_, wizard_.getMergeWorks());
 
     buildViews();  // Construct tree and table views.